@@ -0,0 +1,120 @@
+package com.example.visa.recon.batch;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.repeat.RepeatContext;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.batch.repeat.context.RepeatContextSupport;
+import org.springframework.batch.repeat.policy.CompletionPolicySupport;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+
+/**
+ * Chunk completion policy that resizes chunks to hit a target commit time.
+ * After every full chunk it measures the time from chunk start to commit and the items
+ * per second, then scales the next chunk size towards the target, by at most a factor of two
+ * per chunk and within [minSize, maxSize]. Must also be registered as a chunk listener of the
+ * step it completes.
+ * 
+ * The chosen size and the measured throughput are published as the
+ * {@code reconciliation.batch.chunk.size} and {@code reconciliation.batch.chunk.items-per-second}
+ * gauges tagged with the step name.
+ */
+public class AdaptiveChunkCompletionPolicy extends CompletionPolicySupport implements ChunkListener {
+    private static final Logger logger = LoggerFactory.getLogger(AdaptiveChunkCompletionPolicy.class);
+    private static final String SIZE_ATTRIBUTE = AdaptiveChunkCompletionPolicy.class.getName() + ".size";
+    private static final double MAX_STEP_FACTOR = 2.0;
+
+    private final String stepName;
+    private final int minSize;
+    private final int maxSize;
+    private final long targetMillis;
+    private final AtomicInteger chunkSize;
+    private final AtomicInteger itemsPerSecond = new AtomicInteger();
+
+    // Partition workers share the policy, so chunk timing is tracked per thread
+    private final ThreadLocal<long[]> chunkStart = new ThreadLocal<>();
+
+    public AdaptiveChunkCompletionPolicy(String stepName, int initialSize, int minSize, int maxSize, long targetMillis) {
+        this.stepName = stepName;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.targetMillis = targetMillis;
+        this.chunkSize = new AtomicInteger(Math.max(minSize, Math.min(maxSize, initialSize)));
+        Gauge.builder("reconciliation.batch.chunk.size", chunkSize, AtomicInteger::get)
+            .description("Chunk size chosen by the adaptive completion policy")
+            .tag("step", stepName)
+            .register(Metrics.globalRegistry);
+        Gauge.builder("reconciliation.batch.chunk.items-per-second", itemsPerSecond, AtomicInteger::get)
+            .description("Items per second of the last full chunk")
+            .tag("step", stepName)
+            .register(Metrics.globalRegistry);
+    }
+
+    public int getChunkSize() {
+        return chunkSize.get();
+    }
+
+    /**
+     * Fixes the size of the chunk being started, so a resize mid-chunk does not affect it.
+     */
+    @Override
+    public RepeatContext start(RepeatContext parent) {
+        RepeatContext context = new RepeatContextSupport(parent);
+        context.setAttribute(SIZE_ATTRIBUTE, chunkSize.get());
+        return context;
+    }
+
+    @Override
+    public boolean isComplete(RepeatContext context, RepeatStatus result) {
+        return result == null || !result.isContinuable() || isComplete(context);
+    }
+
+    @Override
+    public boolean isComplete(RepeatContext context) {
+        Integer size = (Integer) context.getAttribute(SIZE_ATTRIBUTE);
+        return context.getStartedCount() >= (size == null ? chunkSize.get() : size);
+    }
+
+    @Override
+    public void beforeChunk(ChunkContext context) {
+        StepExecution stepExecution = context.getStepContext().getStepExecution();
+        chunkStart.set(new long[] { System.nanoTime(), stepExecution.getReadCount(), chunkSize.get() });
+    }
+
+    @Override
+    public void afterChunk(ChunkContext context) {
+        long[] start = chunkStart.get();
+        chunkStart.remove();
+        if (start == null) {
+            return;
+        }
+        long elapsedNanos = System.nanoTime() - start[0];
+        long items = context.getStepContext().getStepExecution().getReadCount() - start[1];
+        int sizeUsed = (int) start[2];
+        if (items < sizeUsed || elapsedNanos <= 0) {
+            // The last chunk of a step is short and says nothing about the right size
+            return;
+        }
+        double elapsedMillis = elapsedNanos / 1_000_000.0;
+        itemsPerSecond.set((int) (items * 1000 / elapsedMillis));
+
+        double factor = Math.max(1 / MAX_STEP_FACTOR, Math.min(MAX_STEP_FACTOR, targetMillis / elapsedMillis));
+        int newSize = (int) Math.max(minSize, Math.min(maxSize, Math.round(sizeUsed * factor)));
+        if (newSize != sizeUsed && chunkSize.compareAndSet(sizeUsed, newSize)) {
+            logger.info("Step {}: chunk of {} committed in {} ms ({} items/s), next chunk size {}",
+                stepName, items, Math.round(elapsedMillis), itemsPerSecond.get(), newSize);
+        }
+    }
+
+    @Override
+    public void afterChunkError(ChunkContext context) {
+        chunkStart.remove();
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.visa.recon.batch;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Concatenates the part files written by the partitioned database-to-file step into the
+ * configured output file, in id range order, then deletes the parts. Runs right after the
+ * partition step, so the output contract is the same as for the single-step job.
+ *
+ * Parts are found through the latest execution of every worker step of the job instance, so
+ * partitions completed by an earlier execution of a restarted job are included. The output is
+ * rewritten from the start and the parts are only deleted after it has been forced to disk, so
+ * a failed merge can simply be rerun.
+ */
+public class DbToFileOutputMergeTasklet implements Tasklet {
+    private static final Logger logger = LoggerFactory.getLogger(DbToFileOutputMergeTasklet.class);
+
+    @Autowired
+    private JobExplorer jobExplorer;
+
+    private final String outputFilePath;
+    private final String workerStepName;
+
+    public DbToFileOutputMergeTasklet(String outputFilePath, String workerStepName) {
+        this.outputFilePath = outputFilePath;
+        this.workerStepName = workerStepName;
+    }
+
+    @Override
+    public RepeatStatus execute(StepContribution contribution, ChunkContext chunkContext) throws Exception {
+        JobExecution jobExecution = chunkContext.getStepContext().getStepExecution().getJobExecution();
+        TreeSet<Long> minIds = new TreeSet<>();
+        for (StepExecution workerExecution : latestWorkerExecutions(jobExecution).values()) {
+            if (workerExecution.getExecutionContext().containsKey(IdRangePartitioner.MIN_ID_KEY)) {
+                minIds.add(workerExecution.getExecutionContext().getLong(IdRangePartitioner.MIN_ID_KEY));
+            }
+        }
+
+        long bytes = 0;
+        try (FileChannel output = FileChannel.open(Paths.get(outputFilePath),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (Long minId : minIds) {
+                Path part = Paths.get(DbToFileReconciliationWriter.partPath(outputFilePath, minId));
+                if (!Files.exists(part)) {
+                    continue;
+                }
+                try (FileChannel input = FileChannel.open(part, StandardOpenOption.READ)) {
+                    bytes += transferFully(input, output);
+                }
+            }
+            output.force(false);
+        } catch (IOException e) {
+            throw new IOException("Error merging partition output into " + outputFilePath, e);
+        }
+
+        for (Long minId : minIds) {
+            Files.deleteIfExists(Paths.get(DbToFileReconciliationWriter.partPath(outputFilePath, minId)));
+        }
+        contribution.incrementWriteCount(minIds.size());
+        logger.info("Merged {} partition files ({} bytes) into {}", minIds.size(), bytes, outputFilePath);
+        return RepeatStatus.FINISHED;
+    }
+
+    /**
+     * @return Latest execution of every partition of the worker step run for the job instance,
+     *         by partition step name
+     */
+    private Map<String, StepExecution> latestWorkerExecutions(JobExecution jobExecution) {
+        Map<String, StepExecution> latest = new HashMap<>();
+        for (JobExecution execution : jobExplorer.getJobExecutions(jobExecution.getJobInstance())) {
+            for (StepExecution stepExecution : execution.getStepExecutions()) {
+                if (stepExecution.getStepName().startsWith(workerStepName + ":")) {
+                    latest.merge(stepExecution.getStepName(), stepExecution,
+                        (current, candidate) -> candidate.getId() > current.getId() ? candidate : current);
+                }
+            }
+        }
+        return latest;
+    }
+
+    private static long transferFully(FileChannel input, FileChannel output) throws IOException {
+        long size = input.size();
+        long position = 0;
+        while (position < size) {
+            position += input.transferTo(position, size - position, output);
+        }
+        return size;
+    }
+}
@@ -2,37 +2,44 @@ package com.example.visa.recon.batch;
 
 import org.springframework.batch.item.ItemProcessor;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.stereotype.Component;
 
 import com.example.visa.recon.mapper.VisaBase2RecordMapper;
+import com.example.visa.recon.model.Discrepancy;
 import com.example.visa.recon.model.dto.VisaBase2Record;
 import com.example.visa.recon.model.entity.VisaBase2RecordEntity;
-import com.example.visa.recon.service.FileReader;
 
-@Component
 public class DbToFileReconciliationProcessor implements ItemProcessor<VisaBase2RecordEntity, VisaBase2Record> {
 
     @Autowired
     private VisaBase2RecordMapper mapper;
 
     @Autowired
-    private FileReader fileReader;
+    private DiscrepancyCollector discrepancyCollector;
+
+    private final FileTransactionIdIndex fileIndex;
+    private final Long jobExecutionId;
+
+    public DbToFileReconciliationProcessor(FileTransactionIdIndex fileIndex, Long jobExecutionId) {
+        this.fileIndex = fileIndex;
+        this.jobExecutionId = jobExecutionId;
+    }
 
     @Override
     public VisaBase2Record process(VisaBase2RecordEntity entity) throws Exception {
-        // Convert entity to DTO
-        VisaBase2Record dto = mapper.toDto(entity);
-        
-        // Check if record exists in file
-        String filePath = "visa_base2_transactions.csv"; // This should be configurable
-        boolean existsInFile = fileReader.streamRecords(filePath)
-            .anyMatch(record -> record.getTransactionId().equals(dto.getTransactionId()));
-            
-        if (!existsInFile) {
+        String transactionId = entity.getTransactionId();
+        discrepancyCollector.countDbRecord();
+
+        // Check if record exists in file; the index screens with the file Bloom filter first
+        if (!fileIndex.contains(jobExecutionId, transactionId)) {
             // Record exists in DB but not in file
-            return dto;
+            return missingInFile(entity);
         }
         
         return null; // Skip if record exists in both places
     }
-} 
\ No newline at end of file
+
+    private VisaBase2Record missingInFile(VisaBase2RecordEntity entity) {
+        discrepancyCollector.addDbToFile(new Discrepancy(entity.getTransactionId(), "Missing in File"));
+        return mapper.toDto(entity);
+    }
+}
@@ -1,29 +1,79 @@
 package com.example.visa.recon.batch;
 
-import org.springframework.batch.item.ItemReader;
+import java.util.Iterator;
+import java.util.List;
+
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamReader;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.stereotype.Component;
+import org.springframework.data.domain.PageRequest;
 
 import com.example.visa.recon.model.entity.VisaBase2RecordEntity;
 import com.example.visa.recon.repository.VisaBase2RecordRepository;
 
-@Component
-public class DbToFileReconciliationReader implements ItemReader<VisaBase2RecordEntity> {
-    
+/**
+ * Reads the table in primary key order using keyset pagination: each page is
+ * {@code where id > lastId order by id limit pageSize}, so every query is an index range
+ * scan no matter how deep into the table the reader is. The ID of the last returned row is
+ * saved in the step's ExecutionContext, so a restarted step continues after the last
+ * committed chunk.
+ */
+public class DbToFileReconciliationReader implements ItemStreamReader<VisaBase2RecordEntity> {
+
+    static final String LAST_ID_KEY = "dbToFileReader.lastId";
+
     @Autowired
     private VisaBase2RecordRepository repository;
-    
-    private boolean initialized = false;
+
+    private final int pageSize;
+    private final long minId;
+    private final long maxId;
+    private long lastReadId;
+    private Iterator<VisaBase2RecordEntity> page;
+    private boolean exhausted;
+
+    public DbToFileReconciliationReader(int pageSize) {
+        this(pageSize, Long.MIN_VALUE + 1, Long.MAX_VALUE);
+    }
+
+    /**
+     * Reader over the rows with ids in [minId, maxId], for partitioned steps.
+     */
+    public DbToFileReconciliationReader(int pageSize, long minId, long maxId) {
+        this.pageSize = pageSize;
+        this.minId = minId;
+        this.maxId = maxId;
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        lastReadId = executionContext.getLong(LAST_ID_KEY, minId - 1);
+        page = null;
+        exhausted = false;
+    }
 
     @Override
     public VisaBase2RecordEntity read() throws Exception {
-        if (!initialized) {
-            initialized = true;
+        if (page == null || !page.hasNext()) {
+            if (exhausted) {
+                return null;
+            }
+            List<VisaBase2RecordEntity> rows = repository.findByIdGreaterThanAndIdLessThanEqualOrderByIdAsc(
+                lastReadId, maxId, PageRequest.of(0, pageSize));
+            exhausted = rows.size() < pageSize;
+            page = rows.iterator();
+            if (!page.hasNext()) {
+                return null;
+            }
         }
-        
-        // Read records from database
-        return repository.findAll().stream()
-            .findFirst()
-            .orElse(null);
+        VisaBase2RecordEntity entity = page.next();
+        lastReadId = entity.getId();
+        return entity;
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        executionContext.putLong(LAST_ID_KEY, lastReadId);
     }
-} 
\ No newline at end of file
+}
@@ -1,89 +1,123 @@
 package com.example.visa.recon.batch;
 
-import java.io.BufferedWriter;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.batch.item.Chunk;
-import org.springframework.batch.item.ItemWriter;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.stereotype.Component;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamWriter;
 
+import com.example.visa.recon.csv.CsvRecordEncoder;
 import com.example.visa.recon.model.dto.VisaBase2Record;
 
-@Component
-public class DbToFileReconciliationWriter implements ItemWriter<VisaBase2Record> {
+/**
+ * Writes records missing in the file as CSV lines to the output file.
+ * The file is opened once when the step opens and lines are encoded by {@link CsvRecordEncoder}
+ * into a reusable byte buffer. At each checkpoint the buffer is flushed, the file is forced to disk and the
+ * output size is saved in the ExecutionContext; on restart the file is truncated back to that
+ * size, so lines written by the failed chunk are not duplicated.
+ */
+public class DbToFileReconciliationWriter implements ItemStreamWriter<VisaBase2Record> {
+    private static final Logger logger = LoggerFactory.getLogger(DbToFileReconciliationWriter.class);
+    private static final int BUFFER_SIZE = 256 * 1024;
 
-    @Value("${reconciliation.output.file}")
-    private String outputFilePath;
+    static final String OFFSET_KEY = "dbToFileWriter.offset";
+
+    private final String outputFilePath;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private FileChannel channel;
+
+    public DbToFileReconciliationWriter(String outputFilePath) {
+        this.outputFilePath = outputFilePath;
+    }
+
+    /**
+     * @return Path of the part file written by the partition whose id range starts at
+     *         {@code minId}; parts are merged into the output file by {@link DbToFileOutputMergeTasklet}
+     */
+    public static String partPath(String outputFilePath, long minId) {
+        return outputFilePath + ".part-" + minId;
+    }
 
     @Override
-    public void write(Chunk<? extends VisaBase2Record> chunk) throws Exception {
-        Path path = Paths.get(outputFilePath);
-        
-        // Create output file if it doesn't exist
-        if (!Files.exists(path)) {
-            Files.createFile(path);
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        long offset = executionContext.getLong(OFFSET_KEY, 0L);
+        try {
+            channel = FileChannel.open(Paths.get(outputFilePath),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            // Drop anything written after the last checkpoint, or the previous run's output
+            channel.truncate(offset);
+            channel.position(offset);
+        } catch (IOException e) {
+            throw new ItemStreamException("Error opening output file: " + outputFilePath, e);
         }
+        buffer.clear();
+        if (offset > 0) {
+            logger.info("Resuming output file {} at byte {}", outputFilePath, offset);
+        }
+    }
 
-        // Append records to output file
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(path.toFile(), true))) {
-            for (VisaBase2Record record : chunk.getItems()) {
-                writer.write(recordToCsv(record));
-                writer.newLine();
+    @Override
+    public void write(Chunk<? extends VisaBase2Record> chunk) throws Exception {
+        CsvRecordEncoder encoder = CsvRecordEncoder.get();
+        for (VisaBase2Record record : chunk.getItems()) {
+            int length = encoder.encode(record);
+            if (buffer.remaining() < length) {
+                flush();
+            }
+            if (length > buffer.capacity()) {
+                writeFully(ByteBuffer.wrap(encoder.bytes(), 0, length));
+            } else {
+                buffer.put(encoder.bytes(), 0, length);
             }
+        }
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        if (channel == null) {
+            return;
+        }
+        try {
+            flush();
+            channel.force(false);
+            executionContext.putLong(OFFSET_KEY, channel.position());
         } catch (IOException e) {
-            throw new RuntimeException("Error writing to output file: " + outputFilePath, e);
+            throw new ItemStreamException("Error writing to output file: " + outputFilePath, e);
         }
     }
 
-    private String recordToCsv(VisaBase2Record record) {
-        return String.join(",", 
-            record.getTransactionType(),
-            record.getTransactionId(),
-            record.getCardNumber(),
-            record.getAmount(),
-            record.getStan(),
-            record.getCurrencyCode(),
-            record.getTransactionDate(),
-            record.getTransactionTime(),
-            record.getResponseCode(),
-            record.getAccountType(),
-            record.getAuthorizationCode(),
-            record.getMerchantId(),
-            record.getMerchantCategoryCode(),
-            record.getTerminalId(),
-            record.getCardExpiryDate(),
-            record.getCardholderName(),
-            record.getAccountHolderName(),
-            record.getTransactionFee(),
-            record.getAuthorizationIndicator(),
-            record.getAcquirerBin(),
-            record.getIssuerBin(),
-            record.getMerchantName(),
-            record.getTransactionCode(),
-            record.getReasonCode(),
-            record.getRrn(),
-            record.getOriginalTransactionId(),
-            record.getAcquirerReferenceNumber(),
-            record.getBatchNumber(),
-            record.getDateOfSettlement(),
-            record.getSettlementAmount(),
-            record.getIssuerResponseCode(),
-            record.getTransactionOrigin(),
-            record.getTransactionReference(),
-            record.getOriginalTransactionAmount(),
-            record.getRefundAmount(),
-            record.getAdjustmentAmount(),
-            record.getLoyaltyPointsEarned(),
-            record.getLoyaltyPointsRedeemed(),
-            record.getReversalIndicator(),
-            record.getAuthorizationDateTime(),
-            record.getOriginalAuthorizationCode(),
-            record.getNarrative()
-        );
+    @Override
+    public void close() throws ItemStreamException {
+        if (channel == null) {
+            return;
+        }
+        try {
+            flush();
+            channel.force(false);
+            channel.close();
+        } catch (IOException e) {
+            throw new ItemStreamException("Error closing output file: " + outputFilePath, e);
+        } finally {
+            channel = null;
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        writeFully(buffer);
+        buffer.clear();
+    }
+
+    private void writeFully(ByteBuffer source) throws IOException {
+        while (source.hasRemaining()) {
+            channel.write(source);
+        }
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,121 @@
+package com.example.visa.recon.batch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStream;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.example.visa.recon.model.Discrepancy;
+import com.example.visa.recon.repository.DiscrepancyStore;
+import com.example.visa.recon.repository.DiscrepancyStore.Direction;
+
+/**
+ * Discrepancies and record counts gathered by one step execution, for the report step.
+ * Thread-safe, so the threads of an AsyncItemProcessor can add to it.
+ * 
+ * Registered with the step as a stream: when a chunk commits, the discrepancies of the chunk
+ * are inserted into the {@link DiscrepancyStore} in the chunk transaction and the record
+ * counts are saved in the step's ExecutionContext. A failed chunk's findings are dropped with
+ * its transaction, and a restarted step continues from the counts of the last commit, so the
+ * report step can add up every execution of the job instance.
+ */
+public class DiscrepancyCollector implements ItemStream, ChunkListener {
+
+    static final String FILE_RECORDS_KEY = "discrepancyCollector.fileRecords";
+    static final String DB_RECORDS_KEY = "discrepancyCollector.dbRecords";
+
+    @Autowired
+    private DiscrepancyStore discrepancyStore;
+
+    private final long jobInstanceId;
+    private final long stepExecutionId;
+
+    // Findings of the current chunk, flushed on commit
+    private final ConcurrentLinkedQueue<Discrepancy> fileToDbDiscrepancies = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Discrepancy> dbToFileDiscrepancies = new ConcurrentLinkedQueue<>();
+    private final LongAdder chunkFileRecords = new LongAdder();
+    private final LongAdder chunkDbRecords = new LongAdder();
+
+    // Counts of the committed chunks of this step
+    private long fileRecords;
+    private long dbRecords;
+
+    public DiscrepancyCollector(long jobInstanceId, long stepExecutionId) {
+        this.jobInstanceId = jobInstanceId;
+        this.stepExecutionId = stepExecutionId;
+    }
+
+    public void addFileToDb(Discrepancy discrepancy) {
+        fileToDbDiscrepancies.add(discrepancy);
+    }
+
+    public void addDbToFile(Discrepancy discrepancy) {
+        dbToFileDiscrepancies.add(discrepancy);
+    }
+
+    public void countFileRecord() {
+        chunkFileRecords.increment();
+    }
+
+    public void countDbRecord() {
+        chunkDbRecords.increment();
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        fileRecords = executionContext.getLong(FILE_RECORDS_KEY, 0);
+        dbRecords = executionContext.getLong(DB_RECORDS_KEY, 0);
+    }
+
+    /**
+     * Called in the chunk transaction just before it commits.
+     */
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        discrepancyStore.insertAll(jobInstanceId, stepExecutionId, Direction.FILE_TO_DB, drain(fileToDbDiscrepancies));
+        discrepancyStore.insertAll(jobInstanceId, stepExecutionId, Direction.DB_TO_FILE, drain(dbToFileDiscrepancies));
+        fileRecords += chunkFileRecords.sumThenReset();
+        dbRecords += chunkDbRecords.sumThenReset();
+        executionContext.putLong(FILE_RECORDS_KEY, fileRecords);
+        executionContext.putLong(DB_RECORDS_KEY, dbRecords);
+    }
+
+    @Override
+    public void afterChunkError(ChunkContext context) {
+        fileToDbDiscrepancies.clear();
+        dbToFileDiscrepancies.clear();
+        chunkFileRecords.reset();
+        chunkDbRecords.reset();
+    }
+
+    /**
+     * @param executionContext Context of a step execution
+     * @return File records the step has counted up to its last commit
+     */
+    public static long fileRecords(ExecutionContext executionContext) {
+        return executionContext.getLong(FILE_RECORDS_KEY, 0);
+    }
+
+    /**
+     * @param executionContext Context of a step execution
+     * @return Database records the step has counted up to its last commit
+     */
+    public static long dbRecords(ExecutionContext executionContext) {
+        return executionContext.getLong(DB_RECORDS_KEY, 0);
+    }
+
+    private static List<Discrepancy> drain(ConcurrentLinkedQueue<Discrepancy> queue) {
+        List<Discrepancy> drained = new ArrayList<>();
+        for (Discrepancy discrepancy; (discrepancy = queue.poll()) != null; ) {
+            drained.add(discrepancy);
+        }
+        return drained;
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.visa.recon.batch;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.partition.support.Partitioner;
+import org.springframework.batch.item.ExecutionContext;
+
+import com.example.visa.recon.csv.CsvFileSplitter;
+import com.example.visa.recon.csv.CsvFileSplitter.ByteRange;
+
+/**
+ * Splits the input file into record-aligned byte ranges, one partition per range.
+ * Each partition context carries {@code startOffset} and {@code endOffset}.
+ */
+public class FileRangePartitioner implements Partitioner {
+    private static final Logger logger = LoggerFactory.getLogger(FileRangePartitioner.class);
+
+    public static final String START_OFFSET_KEY = "startOffset";
+    public static final String END_OFFSET_KEY = "endOffset";
+
+    private final String filePath;
+
+    public FileRangePartitioner(String filePath) {
+        this.filePath = filePath;
+    }
+
+    @Override
+    public Map<String, ExecutionContext> partition(int gridSize) {
+        List<ByteRange> ranges;
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            ranges = CsvFileSplitter.split(channel, gridSize);
+        } catch (IOException e) {
+            throw new RuntimeException("Error splitting file: " + filePath, e);
+        }
+
+        Map<String, ExecutionContext> partitions = new HashMap<>();
+        for (int i = 0; i < ranges.size(); i++) {
+            ExecutionContext context = new ExecutionContext();
+            context.putLong(START_OFFSET_KEY, ranges.get(i).getStart());
+            context.putLong(END_OFFSET_KEY, ranges.get(i).getEnd());
+            partitions.put("partition" + i, context);
+        }
+        logger.info("Split {} into {} partitions: {}", filePath, ranges.size(), ranges);
+        return partitions;
+    }
+}
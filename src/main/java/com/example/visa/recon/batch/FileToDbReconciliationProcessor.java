@@ -2,22 +2,37 @@ package com.example.visa.recon.batch;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.ItemReadListener;
+import org.springframework.batch.core.scope.context.ChunkContext;
 import org.springframework.batch.item.ItemProcessor;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.stereotype.Component;
+import org.springframework.beans.factory.annotation.Value;
 
 import com.example.visa.recon.mapper.VisaBase2RecordMapper;
 import com.example.visa.recon.model.dto.VisaBase2Record;
 import com.example.visa.recon.model.entity.VisaBase2RecordEntity;
 import com.example.visa.recon.repository.VisaBase2RecordRepository;
 import com.example.visa.recon.service.Discrepancy;
+import com.example.visa.recon.service.TransactionIdPrescreen.Screen;
 
-@Component
-public class FileToDbReconciliationProcessor implements ItemProcessor<VisaBase2Record, VisaBase2RecordEntity> {
+/**
+ * Compares file records with the database. Transaction IDs are collected as the chunk is
+ * read and looked up together before the first item of the chunk is processed, so a chunk
+ * costs a few bulk queries instead of one query per item. Registered with the step as a read
+ * and chunk listener because it implements those interfaces. IDs are screened with the
+ * database Bloom filter of the processor's own job execution.
+ */
+public class FileToDbReconciliationProcessor implements ItemProcessor<VisaBase2Record, VisaBase2RecordEntity>,
+        ItemReadListener<VisaBase2Record>, ChunkListener {
     private static final Logger logger = LoggerFactory.getLogger(FileToDbReconciliationProcessor.class);
 
     @Autowired
@@ -26,22 +41,63 @@ public class FileToDbReconciliationProcessor implements ItemProcessor<VisaBase2R
     @Autowired
     private VisaBase2RecordRepository repository;
 
+    @Autowired
+    private DiscrepancyCollector discrepancyCollector;
+
+    @Value("${reconciliation.batch.lookup-size:500}")
+    private int lookupSize;
+
+    private final TransactionIdPrescreenListener databasePrescreen;
+    private final Long jobExecutionId;
+
+    // IDs read for the current chunk but not yet looked up; guarded by this
+    private final Set<String> pending = new LinkedHashSet<>();
+    // Lookup results for the current chunk; IDs not in the database map to null; guarded by this
+    private final Map<String, VisaBase2RecordEntity> prefetched = new HashMap<>();
+
+    public FileToDbReconciliationProcessor(TransactionIdPrescreenListener databasePrescreen, Long jobExecutionId) {
+        this.databasePrescreen = databasePrescreen;
+        this.jobExecutionId = jobExecutionId;
+    }
+
+    @Override
+    public synchronized void afterRead(VisaBase2Record item) {
+        if (item.getTransactionId() != null) {
+            pending.add(item.getTransactionId());
+        }
+    }
+
+    @Override
+    public synchronized void afterChunk(ChunkContext context) {
+        pending.clear();
+        prefetched.clear();
+    }
+
+    @Override
+    public synchronized void afterChunkError(ChunkContext context) {
+        pending.clear();
+        prefetched.clear();
+    }
 
     @Override
     public VisaBase2RecordEntity process(VisaBase2Record record) throws Exception {
         logger.debug("Processing record with transaction ID: {}", record.getTransactionId());
+        discrepancyCollector.countFileRecord();
         
         // Convert DTO to entity
         VisaBase2RecordEntity entity = mapper.toEntity(record);
         
-        // Check if record exists in database by transactionId
-        VisaBase2RecordEntity existingEntity = repository.findByTransactionId(entity.getTransactionId());
+        // Check if record exists in database by transactionId, using the chunk prefetch
+        VisaBase2RecordEntity existingEntity = findExisting(entity.getTransactionId());
         
         if (existingEntity != null) {
             // Compare fields and detect discrepancies
             List<Discrepancy> discrepancies = detectDiscrepancies(record, existingEntity);
             if (!discrepancies.isEmpty()) {
                 logDiscrepancies(discrepancies);
+                // Keep the row's identity, so saveAll updates it instead of inserting a duplicate
+                entity.setId(existingEntity.getId());
+                entity.setCreatedAt(existingEntity.getCreatedAt());
                 return entity; // Return for update
             }
         } else {
@@ -57,6 +113,71 @@ public class FileToDbReconciliationProcessor implements ItemProcessor<VisaBase2R
         return null; // Skip if no changes needed
     }
 
+    /**
+     * Returns the database row for an ID, prefetching the rest of the chunk on first use.
+     * Synchronized because an AsyncItemProcessor calls process() from several threads; only
+     * the lookup is serialized, the field comparison runs concurrently.
+     */
+    private synchronized VisaBase2RecordEntity findExisting(String transactionId) {
+        prefetchPending();
+        if (prefetched.containsKey(transactionId)) {
+            return prefetched.get(transactionId);
+        }
+        return lookup(transactionId);
+    }
+
+    /**
+     * Looks up every ID read since the last prefetch with findByTransactionIdIn, in slices of
+     * {@code reconciliation.batch.lookup-size}, instead of one query per item.
+     * IDs the database Bloom filter rules out are not queried.
+     */
+    private void prefetchPending() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        Screen screen = databasePrescreen.screenFor(jobExecutionId);
+        List<String> toQuery = new ArrayList<>(pending.size());
+        for (String transactionId : pending) {
+            if (screen.definitelyAbsent(transactionId)) {
+                prefetched.put(transactionId, null);
+            } else {
+                toQuery.add(transactionId);
+            }
+        }
+        pending.clear();
+
+        for (int from = 0; from < toQuery.size(); from += lookupSize) {
+            List<String> slice = toQuery.subList(from, Math.min(from + lookupSize, toQuery.size()));
+            for (VisaBase2RecordEntity existing : repository.findByTransactionIdIn(slice)) {
+                prefetched.putIfAbsent(existing.getTransactionId(), existing);
+            }
+        }
+        for (String transactionId : toQuery) {
+            if (!prefetched.containsKey(transactionId)) {
+                screen.recordFalsePositive();
+                prefetched.put(transactionId, null);
+            }
+        }
+        logger.debug("Prefetched {} transaction IDs with {} queries",
+            toQuery.size(), (toQuery.size() + lookupSize - 1) / lookupSize);
+    }
+
+    /**
+     * Single-row lookup for items that were not seen by afterRead, e.g. when the processor
+     * is used outside a chunk-oriented step.
+     */
+    private VisaBase2RecordEntity lookup(String transactionId) {
+        Screen screen = databasePrescreen.screenFor(jobExecutionId);
+        if (screen.definitelyAbsent(transactionId)) {
+            return null;
+        }
+        VisaBase2RecordEntity existingEntity = repository.findByTransactionId(transactionId);
+        if (existingEntity == null) {
+            screen.recordFalsePositive();
+        }
+        return existingEntity;
+    }
+
     private List<Discrepancy> detectDiscrepancies(VisaBase2Record record, VisaBase2RecordEntity existingEntity) {
         List<Discrepancy> discrepancies = new ArrayList<>();
         
@@ -104,6 +225,11 @@ public class FileToDbReconciliationProcessor implements ItemProcessor<VisaBase2R
     }
 
     private void logDiscrepancy(Discrepancy discrepancy) {
+        discrepancyCollector.addFileToDb(new com.example.visa.recon.model.Discrepancy(
+            discrepancy.getTransactionId(),
+            discrepancy.getDiscrepancyType(),
+            discrepancy.getAmountSwitch(),
+            discrepancy.getAmountNetwork()));
         if (discrepancy.getAmountSwitch() != null && discrepancy.getAmountNetwork() != null) {
             logger.warn("Discrepancy detected for transaction {}: Type={}, Switch Amount={}, Network Amount={}",
                 discrepancy.getTransactionId(),
@@ -1,32 +1,94 @@
 package com.example.visa.recon.batch;
 
-import org.springframework.batch.item.ItemReader;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamReader;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.stereotype.Component;
 
+import com.example.visa.recon.csv.MappedCsvReader;
+import com.example.visa.recon.mapper.VisaBase2RecordMapper;
 import com.example.visa.recon.model.dto.VisaBase2Record;
-import com.example.visa.recon.service.FileReader;
 
-@Component
-public class FileToDbReconciliationReader implements ItemReader<VisaBase2Record> {
-    
+/**
+ * Reads the input file record by record through a memory-mapped reader.
+ * The byte offset and line number of the next record are saved in the step's
+ * ExecutionContext at every commit, so a restarted step resumes after the last
+ * committed chunk instead of at the top of the file.
+ */
+public class FileToDbReconciliationReader implements ItemStreamReader<VisaBase2Record> {
+    private static final Logger logger = LoggerFactory.getLogger(FileToDbReconciliationReader.class);
+
+    static final String OFFSET_KEY = "fileToDbReader.offset";
+    static final String LINE_NUMBER_KEY = "fileToDbReader.lineNumber";
+
     @Autowired
-    private FileReader fileReader;
-    
-    private String filePath;
-    private boolean initialized = false;
+    private VisaBase2RecordMapper mapper;
+
+    private final String filePath;
+    private final long startOffset;
+    private final long endOffset;
+    private MappedCsvReader reader;
+
+    public FileToDbReconciliationReader(String filePath) {
+        this(filePath, 0, Long.MAX_VALUE);
+    }
+
+    /**
+     * Reader over the lines that start in [startOffset, endOffset), for partitioned steps.
+     * Line numbers are counted from the start of the range.
+     */
+    public FileToDbReconciliationReader(String filePath, long startOffset, long endOffset) {
+        this.filePath = filePath;
+        this.startOffset = startOffset;
+        this.endOffset = endOffset;
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        long offset = executionContext.getLong(OFFSET_KEY, startOffset);
+        long lineNumber = executionContext.getLong(LINE_NUMBER_KEY, 0L);
+        try {
+            reader = MappedCsvReader.open(Paths.get(filePath), offset, endOffset, lineNumber);
+        } catch (UncheckedIOException e) {
+            throw new ItemStreamException("Error opening file: " + filePath, e);
+        }
+        if (offset == 0) {
+            reader.nextLine(); // Skip header if exists
+        } else if (executionContext.containsKey(OFFSET_KEY)) {
+            logger.info("Resuming {} at byte {} (line {})", filePath, offset, lineNumber);
+        }
+    }
 
     @Override
     public VisaBase2Record read() throws Exception {
-        if (!initialized) {
-            // Initialize the file reader with the file path
-            filePath = "visa_base2_transactions.csv"; // This should be configurable    
-            initialized = true;
+        while (reader.nextLine()) {
+            try {
+                return mapper.fromCsv(reader);
+            } catch (Exception e) {
+                logger.error("Error parsing line {} of {}: {}", reader.lineNumber(), filePath, e.getMessage());
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        if (reader != null) {
+            executionContext.putLong(OFFSET_KEY, reader.nextOffset());
+            executionContext.putLong(LINE_NUMBER_KEY, reader.lineNumber());
+        }
+    }
+
+    @Override
+    public void close() throws ItemStreamException {
+        if (reader != null) {
+            reader.close();
+            reader = null;
         }
-        
-        // Use the existing FileReader service to read records
-        return fileReader.streamRecords(filePath)
-            .findFirst()
-            .orElse(null);
     }
-} 
\ No newline at end of file
+}
@@ -6,16 +6,16 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import com.example.visa.recon.model.entity.VisaBase2RecordEntity;
-import com.example.visa.recon.repository.VisaBase2RecordRepository;
+import com.example.visa.recon.repository.VisaBase2RecordWriter;
 
 @Component
 public class FileToDbReconciliationWriter implements ItemWriter<VisaBase2RecordEntity> {
 
     @Autowired
-    private VisaBase2RecordRepository repository;
+    private VisaBase2RecordWriter recordWriter;
 
     @Override
     public void write(Chunk<? extends VisaBase2RecordEntity> chunk) throws Exception {
-        repository.saveAll(chunk.getItems());
+        recordWriter.writeAll(chunk.getItems());
     }
-} 
\ No newline at end of file
+}
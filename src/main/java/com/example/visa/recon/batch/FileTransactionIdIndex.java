@@ -0,0 +1,118 @@
+package com.example.visa.recon.batch;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+
+import com.example.visa.recon.index.TransactionIdSet;
+import com.example.visa.recon.index.TransactionIdSetFactory;
+import com.example.visa.recon.service.FileReader;
+import com.example.visa.recon.service.TransactionIdPrescreen;
+import com.example.visa.recon.service.TransactionIdPrescreen.Screen;
+import com.example.visa.recon.service.TransactionIdPrescreen.Side;
+
+/**
+ * Transaction IDs of the input file, shared by the processors of a step and its partitions.
+ * As a step listener it reads the file once before the step starts, taking the path from the
+ * {@code filePath} job parameter, and frees the index when the step ends. When the Bloom
+ * filter pre-screen is enabled the file filter is filled in the same pass.
+ * 
+ * Indexes are kept per job execution, so executions running at the same time, such as two
+ * launches through the asynchronous job launcher, each look up their own file.
+ */
+public class FileTransactionIdIndex implements StepExecutionListener {
+    private static final Logger logger = LoggerFactory.getLogger(FileTransactionIdIndex.class);
+
+    @Autowired
+    private FileReader fileReader;
+
+    @Autowired
+    private TransactionIdSetFactory transactionIdSetFactory;
+
+    @Autowired
+    private TransactionIdPrescreen prescreen;
+
+    @Value("${reconciliation.input.file}")
+    private String inputFile;
+
+    private final Map<Long, FileIds> indexes = new ConcurrentHashMap<>();
+
+    @Override
+    public void beforeStep(StepExecution stepExecution) {
+        String filePath = stepExecution.getJobParameters().getString("filePath", inputFile);
+        long startTime = System.currentTimeMillis();
+        long estimatedRecords = fileReader.estimateRecordCount(filePath);
+        TransactionIdSet index = transactionIdSetFactory.create((int) Math.min(estimatedRecords, Integer.MAX_VALUE));
+        Screen screen = prescreen.isEnabled() ? prescreen.create(Side.FILE, estimatedRecords) : Screen.NONE;
+        try (Stream<String> ids = fileReader.streamTransactionIds(filePath)) {
+            ids.forEach(transactionId -> {
+                index.add(transactionId);
+                screen.put(transactionId);
+            });
+        } catch (RuntimeException e) {
+            index.close();
+            throw e;
+        }
+        FileIds previous = indexes.put(stepExecution.getJobExecutionId(), new FileIds(index, screen));
+        if (previous != null) {
+            previous.index.close();
+        }
+        logger.info("Indexed {} transaction IDs from {} in {} ms",
+            index.size(), filePath, System.currentTimeMillis() - startTime);
+    }
+
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        FileIds fileIds = indexes.remove(stepExecution.getJobExecutionId());
+        if (fileIds != null) {
+            prescreen.release(fileIds.screen);
+            fileIds.index.close();
+        }
+        return stepExecution.getExitStatus();
+    }
+
+    /**
+     * Looks an ID up in the file of a job execution. IDs the file Bloom filter rules out are
+     * absent without touching the exact index.
+     * 
+     * @param jobExecutionId Job execution whose file is looked up
+     * @param transactionId ID to look up
+     * @return true if the file contains the ID
+     * @throws IllegalStateException if called outside the step that built the index
+     */
+    public boolean contains(Long jobExecutionId, String transactionId) {
+        FileIds fileIds = indexes.get(jobExecutionId);
+        if (fileIds == null) {
+            throw new IllegalStateException("File transaction ID index is not built for job execution " + jobExecutionId);
+        }
+        if (fileIds.screen.definitelyAbsent(transactionId)) {
+            return false;
+        }
+        if (!fileIds.index.contains(transactionId)) {
+            fileIds.screen.recordFalsePositive();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Exact index and Bloom filter screen of one execution's file.
+     */
+    private static class FileIds {
+        private final TransactionIdSet index;
+        private final Screen screen;
+
+        FileIds(TransactionIdSet index, Screen screen) {
+            this.index = index;
+            this.screen = screen;
+        }
+    }
+}
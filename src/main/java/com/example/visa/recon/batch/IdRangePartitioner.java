@@ -0,0 +1,54 @@
+package com.example.visa.recon.batch;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.partition.support.Partitioner;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.example.visa.recon.repository.VisaBase2RecordRepository;
+
+/**
+ * Splits the table into contiguous primary key ranges of equal width, one partition per
+ * range. Each partition context carries an inclusive {@code minId} and {@code maxId}.
+ */
+public class IdRangePartitioner implements Partitioner {
+    private static final Logger logger = LoggerFactory.getLogger(IdRangePartitioner.class);
+
+    public static final String MIN_ID_KEY = "minId";
+    public static final String MAX_ID_KEY = "maxId";
+
+    @Autowired
+    private VisaBase2RecordRepository repository;
+
+    @Override
+    public Map<String, ExecutionContext> partition(int gridSize) {
+        Map<String, ExecutionContext> partitions = new HashMap<>();
+        Long minId = repository.findMinId();
+        Long maxId = repository.findMaxId();
+        if (minId == null || maxId == null) {
+            // Empty table: a single partition that reads nothing
+            partitions.put("partition0", range(0, 0));
+            return partitions;
+        }
+
+        long width = Math.max(1, (maxId - minId) / gridSize + 1);
+        int index = 0;
+        for (long start = minId; start <= maxId; start += width) {
+            long end = Math.min(maxId, start + width - 1);
+            partitions.put("partition" + index++, range(start, end));
+        }
+        logger.info("Split ids {}..{} into {} partitions of width {}", minId, maxId, partitions.size(), width);
+        return partitions;
+    }
+
+    private ExecutionContext range(long minId, long maxId) {
+        ExecutionContext context = new ExecutionContext();
+        context.putLong(MIN_ID_KEY, minId);
+        context.putLong(MAX_ID_KEY, maxId);
+        return context;
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.visa.recon.batch;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.example.visa.recon.model.Discrepancy;
+import com.example.visa.recon.repository.DiscrepancyStore;
+import com.example.visa.recon.repository.DiscrepancyStore.Direction;
+import com.example.visa.recon.service.ExcelReportGenerator;
+
+/**
+ * Writes the Excel report from the discrepancies collected by the reconciliation steps.
+ * Runs as the last step, after both directions have completed.
+ * 
+ * Findings are read back for the whole job instance, so steps and partitions completed by an
+ * earlier execution of a restarted job are part of the report. Record counts are taken from
+ * the latest execution of every step, whose ExecutionContext carries the counts of the
+ * executions before it. The stored discrepancies are deleted once the report is written.
+ */
+public class ReconciliationReportTasklet implements Tasklet {
+    private static final Logger logger = LoggerFactory.getLogger(ReconciliationReportTasklet.class);
+
+    @Autowired
+    private ExcelReportGenerator reportGenerator;
+
+    @Autowired
+    private DiscrepancyStore discrepancyStore;
+
+    @Autowired
+    private JobExplorer jobExplorer;
+
+    private final String reportPath;
+
+    public ReconciliationReportTasklet(String reportPath) {
+        this.reportPath = reportPath;
+    }
+
+    @Override
+    public RepeatStatus execute(StepContribution contribution, ChunkContext chunkContext) throws Exception {
+        JobExecution jobExecution = chunkContext.getStepContext().getStepExecution().getJobExecution();
+        JobInstance jobInstance = jobExecution.getJobInstance();
+        long fileRecords = 0;
+        long dbRecords = 0;
+        for (StepExecution stepExecution : latestStepExecutions(jobInstance).values()) {
+            fileRecords += DiscrepancyCollector.fileRecords(stepExecution.getExecutionContext());
+            dbRecords += DiscrepancyCollector.dbRecords(stepExecution.getExecutionContext());
+        }
+        List<Discrepancy> fileToDb = discrepancyStore.findByJobInstance(jobInstance.getInstanceId(), Direction.FILE_TO_DB);
+        List<Discrepancy> dbToFile = discrepancyStore.findByJobInstance(jobInstance.getInstanceId(), Direction.DB_TO_FILE);
+
+        logger.info("Generating reconciliation report at {}", reportPath);
+        reportGenerator.generateReport(reportPath, fileToDb, dbToFile,
+            (int) fileRecords,
+            (int) dbRecords,
+            jobExecution.getStartTime(),
+            LocalDateTime.now());
+        discrepancyStore.deleteByJobInstance(jobInstance.getInstanceId());
+        return RepeatStatus.FINISHED;
+    }
+
+    /**
+     * @return Latest execution of every step and partition run for the job instance, by step name
+     */
+    private Map<String, StepExecution> latestStepExecutions(JobInstance jobInstance) {
+        Map<String, StepExecution> latest = new HashMap<>();
+        for (JobExecution execution : jobExplorer.getJobExecutions(jobInstance)) {
+            for (StepExecution stepExecution : execution.getStepExecutions()) {
+                latest.merge(stepExecution.getStepName(), stepExecution,
+                    (current, candidate) -> candidate.getId() > current.getId() ? candidate : current);
+            }
+        }
+        return latest;
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.visa.recon.batch;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+
+/**
+ * Logs the throughput of a step when it ends, so synchronous and asynchronous processing
+ * can be compared on the same input.
+ */
+public class ThroughputStepListener implements StepExecutionListener {
+    private static final Logger logger = LoggerFactory.getLogger(ThroughputStepListener.class);
+
+    private final String mode;
+
+    public ThroughputStepListener(String mode) {
+        this.mode = mode;
+    }
+
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        LocalDateTime start = stepExecution.getStartTime();
+        long elapsedMillis = start == null ? 0 : Duration.between(start, LocalDateTime.now()).toMillis();
+        long items = stepExecution.getReadCount();
+        double itemsPerSecond = elapsedMillis == 0 ? 0 : items * 1000.0 / elapsedMillis;
+        logger.info("Step {} ({}): read {}, written {}, filtered {} in {} ms ({} items/s, {} commits)",
+            stepExecution.getStepName(), mode, items, stepExecution.getWriteCount(),
+            stepExecution.getFilterCount(), elapsedMillis, String.format("%.1f", itemsPerSecond),
+            stepExecution.getCommitCount());
+        return stepExecution.getExitStatus();
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.visa.recon.batch;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+
+import com.example.visa.recon.service.TransactionIdPrescreen;
+import com.example.visa.recon.service.TransactionIdPrescreen.Screen;
+import com.example.visa.recon.service.TransactionIdPrescreen.Side;
+
+/**
+ * Builds the Bloom filter a reconciliation step screens against before the step starts
+ * and releases it when the step ends. Does nothing unless the pre-screen is enabled.
+ * 
+ * Screens are kept per job execution, so the partitions of a step share the one their
+ * manager step built and executions running at the same time never see each other's.
+ */
+public class TransactionIdPrescreenListener implements StepExecutionListener {
+
+    @Autowired
+    private TransactionIdPrescreen prescreen;
+
+    @Value("${reconciliation.input.file}")
+    private String inputFile;
+
+    private final Side side;
+    private final Map<Long, Screen> screens = new ConcurrentHashMap<>();
+
+    public TransactionIdPrescreenListener(Side side) {
+        this.side = side;
+    }
+
+    @Override
+    public void beforeStep(StepExecution stepExecution) {
+        if (!prescreen.isEnabled()) {
+            return;
+        }
+        Screen screen;
+        if (side == Side.DATABASE) {
+            screen = prescreen.buildFromDatabase();
+        } else {
+            String filePath = stepExecution.getJobParameters().getString("filePath", inputFile);
+            screen = prescreen.buildFromFile(filePath);
+        }
+        screens.put(stepExecution.getJobExecutionId(), screen);
+    }
+
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        Screen screen = screens.remove(stepExecution.getJobExecutionId());
+        if (screen != null) {
+            prescreen.release(screen);
+        }
+        return stepExecution.getExitStatus();
+    }
+
+    /**
+     * @param jobExecutionId Job execution whose step is running
+     * @return Screen built for the job execution, or {@link Screen#NONE} if there is none
+     */
+    public Screen screenFor(Long jobExecutionId) {
+        return screens.getOrDefault(jobExecutionId, Screen.NONE);
+    }
+}
@@ -1,30 +1,59 @@
 package com.example.visa.recon.config;
 
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.ItemReadListener;
 import org.springframework.batch.core.Job;
 import org.springframework.batch.core.Step;
+import org.springframework.batch.core.StepExecution;
 import org.springframework.batch.core.configuration.annotation.EnableBatchProcessing;
+import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.batch.core.job.builder.FlowBuilder;
+import org.springframework.batch.core.job.flow.Flow;
+import org.springframework.batch.core.job.flow.support.SimpleFlow;
 import org.springframework.batch.core.job.builder.JobBuilder;
+import org.springframework.batch.core.job.builder.SimpleJobBuilder;
 import org.springframework.batch.core.launch.JobLauncher;
 import org.springframework.batch.core.launch.support.TaskExecutorJobLauncher;
 import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.step.builder.SimpleStepBuilder;
 import org.springframework.batch.core.step.builder.StepBuilder;
+import org.springframework.batch.integration.async.AsyncItemProcessor;
+import org.springframework.batch.integration.async.AsyncItemWriter;
 import org.springframework.batch.item.ItemProcessor;
-import org.springframework.batch.item.ItemReader;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.item.ItemStreamWriter;
 import org.springframework.batch.item.ItemWriter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
 import org.springframework.transaction.PlatformTransactionManager;
 
+import com.example.visa.recon.batch.AdaptiveChunkCompletionPolicy;
+import com.example.visa.recon.batch.DbToFileOutputMergeTasklet;
 import com.example.visa.recon.batch.DbToFileReconciliationProcessor;
 import com.example.visa.recon.batch.DbToFileReconciliationReader;
 import com.example.visa.recon.batch.DbToFileReconciliationWriter;
+import com.example.visa.recon.batch.DiscrepancyCollector;
 import com.example.visa.recon.batch.FileToDbReconciliationProcessor;
 import com.example.visa.recon.batch.FileToDbReconciliationReader;
+import com.example.visa.recon.batch.FileRangePartitioner;
 import com.example.visa.recon.batch.FileToDbReconciliationWriter;
+import com.example.visa.recon.batch.FileTransactionIdIndex;
+import com.example.visa.recon.batch.IdRangePartitioner;
+import com.example.visa.recon.batch.ReconciliationReportTasklet;
+import com.example.visa.recon.batch.ThroughputStepListener;
+import com.example.visa.recon.batch.TransactionIdPrescreenListener;
 import com.example.visa.recon.model.dto.VisaBase2Record;
 import com.example.visa.recon.model.entity.VisaBase2RecordEntity;
+import com.example.visa.recon.service.TransactionIdPrescreen.Side;
 
 @Configuration
 @EnableBatchProcessing
@@ -36,6 +65,45 @@ public class ReconciliationBatchConfig {
     @Autowired
     private PlatformTransactionManager transactionManager;
 
+    @Autowired
+    @Qualifier("partitionExecutor")
+    private TaskExecutor partitionExecutor;
+
+    @Autowired
+    @Qualifier("splitExecutor")
+    private TaskExecutor splitExecutor;
+
+    @Autowired
+    @Qualifier("reconciliationExecutor")
+    private Executor reconciliationExecutor;
+
+    @Value("${reconciliation.batch.chunk.size:100}")
+    private int chunkSize;
+
+    @Value("${reconciliation.batch.chunk.adaptive:false}")
+    private boolean adaptiveChunks;
+
+    @Value("${reconciliation.batch.chunk.min-size:50}")
+    private int minChunkSize;
+
+    @Value("${reconciliation.batch.chunk.max-size:5000}")
+    private int maxChunkSize;
+
+    @Value("${reconciliation.batch.chunk.target-commit-ms:500}")
+    private long targetCommitMillis;
+
+    @Value("${reconciliation.batch.async:false}")
+    private boolean asyncProcessing;
+
+    @Value("${reconciliation.batch.concurrent:false}")
+    private boolean concurrent;
+
+    @Value("${reconciliation.batch.partitioned:false}")
+    private boolean partitioned;
+
+    @Value("${reconciliation.batch.grid-size:4}")
+    private int gridSize;
+
     @Bean
     public JobLauncher jobLauncher() {
         TaskExecutorJobLauncher jobLauncher = new TaskExecutorJobLauncher();
@@ -44,42 +112,246 @@ public class ReconciliationBatchConfig {
         return jobLauncher;
     }
 
+    /**
+     * Runs both reconciliation directions, then the report step. With
+     * {@code reconciliation.batch.concurrent} the two directions run side by side as a split
+     * flow, each on its own thread of the split executor, so the job takes about as long as the
+     * slower direction instead of both together. With {@code reconciliation.batch.partitioned}
+     * the database-to-file direction ends with a merge of the partition outputs, so either way
+     * the job leaves a single {@code reconciliation.output.file}.
+     */
     @Bean
     public Job reconciliationJob() {
-        return new JobBuilder("reconciliationJob", jobRepository)
-                .start(fileToDbReconciliationStep())
-                .next(dbToFileReconciliationStep())
+        Step fileToDbStep = partitioned ? fileToDbPartitionStep() : fileToDbReconciliationStep();
+        Step dbToFileStep = partitioned ? dbToFilePartitionStep() : dbToFileReconciliationStep();
+        if (concurrent) {
+            Flow fileToDbFlow = new FlowBuilder<SimpleFlow>("fileToDbFlow").start(fileToDbStep).build();
+            FlowBuilder<SimpleFlow> dbToFileFlow = new FlowBuilder<SimpleFlow>("dbToFileFlow").start(dbToFileStep);
+            if (partitioned) {
+                dbToFileFlow.next(dbToFileMergeStep());
+            }
+            Flow split = new FlowBuilder<SimpleFlow>("reconciliationSplit")
+                    .split(splitExecutor)
+                    .add(fileToDbFlow, dbToFileFlow.build())
+                    .build();
+            return new JobBuilder("reconciliationJob", jobRepository)
+                    .start(split)
+                    .next(reconciliationReportStep())
+                    .end()
+                    .build();
+        }
+        SimpleJobBuilder job = new JobBuilder("reconciliationJob", jobRepository)
+                .start(fileToDbStep)
+                .next(dbToFileStep);
+        if (partitioned) {
+            job.next(dbToFileMergeStep());
+        }
+        return job.next(reconciliationReportStep()).build();
+    }
+
+    @Bean
+    public Step reconciliationReportStep() {
+        return new StepBuilder("reconciliationReportStep", jobRepository)
+                .tasklet(reconciliationReportTasklet(null), transactionManager)
                 .build();
     }
 
+    @Bean
+    @StepScope
+    public ReconciliationReportTasklet reconciliationReportTasklet(
+            @Value("#{jobParameters['reportPath'] ?: '${reconciliation.report.path}'}") String reportPath) {
+        return new ReconciliationReportTasklet(reportPath);
+    }
+
+    /**
+     * One collector per step execution, so every step and partition, on whatever thread it
+     * runs, records into its own. The report step reads back the findings of the job instance.
+     */
+    @Bean
+    @StepScope
+    public DiscrepancyCollector discrepancyCollector(
+            @Value("#{stepExecution}") StepExecution stepExecution) {
+        return new DiscrepancyCollector(stepExecution.getJobExecution().getJobInstance().getInstanceId(),
+                stepExecution.getId());
+    }
+
     @Bean
     public Step fileToDbReconciliationStep() {
-        return new StepBuilder("fileToDbReconciliationStep", jobRepository)
-                .<VisaBase2Record, VisaBase2RecordEntity>chunk(100, transactionManager)
-                .reader(fileToDbReader())
-                .processor(fileToDbProcessor())
-                .writer(fileToDbWriter())
+        return fileToDbStepBuilder("fileToDbReconciliationStep")
+                .listener(databasePrescreenListener())
                 .build();
     }
 
     @Bean
     public Step dbToFileReconciliationStep() {
-        return new StepBuilder("dbToFileReconciliationStep", jobRepository)
-                .<VisaBase2RecordEntity, VisaBase2Record>chunk(100, transactionManager)
-                .reader(dbToFileReader())
-                .processor(dbToFileProcessor())
-                .writer(dbToFileWriter())
+        return dbToFileStepBuilder("dbToFileReconciliationStep")
+                .listener(fileTransactionIdIndex())
+                .build();
+    }
+
+    /**
+     * Partitioned file-to-database step: one worker per byte range of the file, run on the
+     * partition executor. Each partition is its own step execution in the job repository, so
+     * a restart reruns only the partitions that did not complete.
+     */
+    @Bean
+    public Step fileToDbPartitionStep() {
+        return new StepBuilder("fileToDbPartitionStep", jobRepository)
+                .partitioner("fileToDbWorkerStep", fileRangePartitioner(null))
+                .step(fileToDbWorkerStep())
+                .gridSize(gridSize)
+                .taskExecutor(partitionExecutor)
+                .listener(databasePrescreenListener())
+                .build();
+    }
+
+    /**
+     * Partitioned database-to-file step: one worker per id range. The file ID index is built
+     * once by the manager step and shared by all workers.
+     */
+    @Bean
+    public Step dbToFilePartitionStep() {
+        return new StepBuilder("dbToFilePartitionStep", jobRepository)
+                .partitioner("dbToFileWorkerStep", idRangePartitioner())
+                .step(dbToFileWorkerStep())
+                .gridSize(gridSize)
+                .taskExecutor(partitionExecutor)
+                .listener(fileTransactionIdIndex())
+                .build();
+    }
+
+    /**
+     * Concatenates the part files of the partitioned database-to-file step into the output file.
+     */
+    @Bean
+    public Step dbToFileMergeStep() {
+        return new StepBuilder("dbToFileMergeStep", jobRepository)
+                .tasklet(dbToFileOutputMergeTasklet(null), transactionManager)
                 .build();
     }
 
     @Bean
-    public ItemReader<VisaBase2Record> fileToDbReader() {
-        return new FileToDbReconciliationReader();
+    @StepScope
+    public DbToFileOutputMergeTasklet dbToFileOutputMergeTasklet(
+            @Value("${reconciliation.output.file}") String outputFilePath) {
+        return new DbToFileOutputMergeTasklet(outputFilePath, "dbToFileWorkerStep");
+    }
+
+    @Bean
+    public Step fileToDbWorkerStep() {
+        return fileToDbStepBuilder("fileToDbWorkerStep").build();
+    }
+
+    @Bean
+    public Step dbToFileWorkerStep() {
+        return dbToFileStepBuilder("dbToFileWorkerStep").build();
+    }
+
+    /**
+     * Chunk-oriented step with a fixed chunk size of {@code reconciliation.batch.chunk.size}, or
+     * with {@code reconciliation.batch.chunk.adaptive} a chunk size that adapts to the measured
+     * commit time within the configured bounds.
+     */
+    private <I, O> SimpleStepBuilder<I, O> chunkStepBuilder(String name) {
+        StepBuilder stepBuilder = new StepBuilder(name, jobRepository);
+        if (!adaptiveChunks) {
+            return stepBuilder.<I, O>chunk(chunkSize, transactionManager);
+        }
+        AdaptiveChunkCompletionPolicy policy = new AdaptiveChunkCompletionPolicy(
+                name, chunkSize, minChunkSize, maxChunkSize, targetCommitMillis);
+        return stepBuilder.<I, O>chunk(policy, transactionManager)
+                .listener((ChunkListener) policy);
+    }
+
+    /**
+     * With {@code reconciliation.batch.async} the processor runs through an AsyncItemProcessor
+     * on the reconciliation executor, so items of a chunk are looked up and compared
+     * concurrently, and an AsyncItemWriter unwraps the results on the step thread inside the
+     * chunk transaction. The processor's read and chunk listeners are registered explicitly
+     * because the async wrapper hides them from the step builder.
+     */
+    private SimpleStepBuilder<VisaBase2Record, ?> fileToDbStepBuilder(String name) {
+        if (asyncProcessing) {
+            FileToDbReconciliationProcessor processor = fileToDbProcessor(null);
+            return this.<VisaBase2Record, Future<VisaBase2RecordEntity>>chunkStepBuilder(name)
+                    .reader(fileToDbReader(null, null, null))
+                    .processor(asyncFileToDbProcessor())
+                    .writer(asyncFileToDbWriter())
+                    .listener((ItemReadListener<VisaBase2Record>) processor)
+                    .listener((ChunkListener) processor)
+                    .stream(discrepancyCollector(null))
+                    .listener((ChunkListener) discrepancyCollector(null))
+                    .listener(new ThroughputStepListener("async"));
+        }
+        return this.<VisaBase2Record, VisaBase2RecordEntity>chunkStepBuilder(name)
+                .reader(fileToDbReader(null, null, null))
+                .processor(fileToDbProcessor(null))
+                .writer(fileToDbWriter())
+                .stream(discrepancyCollector(null))
+                .listener((ChunkListener) discrepancyCollector(null))
+                .listener(new ThroughputStepListener("sync"));
+    }
+
+    @Bean
+    public AsyncItemProcessor<VisaBase2Record, VisaBase2RecordEntity> asyncFileToDbProcessor() {
+        AsyncItemProcessor<VisaBase2Record, VisaBase2RecordEntity> asyncProcessor = new AsyncItemProcessor<>();
+        asyncProcessor.setDelegate(fileToDbProcessor(null));
+        asyncProcessor.setTaskExecutor(new TaskExecutorAdapter(reconciliationExecutor));
+        return asyncProcessor;
+    }
+
+    @Bean
+    public AsyncItemWriter<VisaBase2RecordEntity> asyncFileToDbWriter() {
+        AsyncItemWriter<VisaBase2RecordEntity> asyncWriter = new AsyncItemWriter<>();
+        asyncWriter.setDelegate(fileToDbWriter());
+        return asyncWriter;
+    }
+
+    private SimpleStepBuilder<VisaBase2RecordEntity, VisaBase2Record> dbToFileStepBuilder(String name) {
+        return this.<VisaBase2RecordEntity, VisaBase2Record>chunkStepBuilder(name)
+                .reader(dbToFileReader(0, null, null))
+                .processor(dbToFileProcessor(null))
+                .writer(dbToFileWriter(null, null))
+                .stream(discrepancyCollector(null))
+                .listener((ChunkListener) discrepancyCollector(null));
+    }
+
+    @Bean
+    @StepScope
+    public FileRangePartitioner fileRangePartitioner(
+            @Value("#{jobParameters['filePath'] ?: '${reconciliation.input.file}'}") String filePath) {
+        return new FileRangePartitioner(filePath);
+    }
+
+    @Bean
+    public IdRangePartitioner idRangePartitioner() {
+        return new IdRangePartitioner();
     }
 
+    /**
+     * Reads the whole file, or only the byte range assigned when running as a partition.
+     */
     @Bean
-    public ItemProcessor<VisaBase2Record, VisaBase2RecordEntity> fileToDbProcessor() {
-        return new FileToDbReconciliationProcessor();
+    @StepScope
+    public ItemStreamReader<VisaBase2Record> fileToDbReader(
+            @Value("#{jobParameters['filePath'] ?: '${reconciliation.input.file}'}") String filePath,
+            @Value("#{stepExecutionContext['startOffset']}") Long startOffset,
+            @Value("#{stepExecutionContext['endOffset']}") Long endOffset) {
+        if (startOffset == null || endOffset == null) {
+            return new FileToDbReconciliationReader(filePath);
+        }
+        return new FileToDbReconciliationReader(filePath, startOffset, endOffset);
+    }
+
+    /**
+     * Step-scoped because it keeps the current chunk's prefetched rows; concurrent partitions
+     * each get their own instance.
+     */
+    @Bean
+    @StepScope
+    public FileToDbReconciliationProcessor fileToDbProcessor(
+            @Value("#{stepExecution.jobExecutionId}") Long jobExecutionId) {
+        return new FileToDbReconciliationProcessor(databasePrescreenListener(), jobExecutionId);
     }
 
     @Bean
@@ -87,18 +359,54 @@ public class ReconciliationBatchConfig {
         return new FileToDbReconciliationWriter();
     }
 
+    /**
+     * Reads the whole table, or only the id range assigned when running as a partition.
+     */
+    @Bean
+    @StepScope
+    public ItemStreamReader<VisaBase2RecordEntity> dbToFileReader(
+            @Value("${reconciliation.batch.page-size:1000}") int pageSize,
+            @Value("#{stepExecutionContext['minId']}") Long minId,
+            @Value("#{stepExecutionContext['maxId']}") Long maxId) {
+        if (minId == null || maxId == null) {
+            return new DbToFileReconciliationReader(pageSize);
+        }
+        return new DbToFileReconciliationReader(pageSize, minId, maxId);
+    }
+
+    /**
+     * Step-scoped so each worker looks up the file index of its own job execution.
+     */
+    @Bean
+    @StepScope
+    public ItemProcessor<VisaBase2RecordEntity, VisaBase2Record> dbToFileProcessor(
+            @Value("#{stepExecution.jobExecutionId}") Long jobExecutionId) {
+        return new DbToFileReconciliationProcessor(fileTransactionIdIndex(), jobExecutionId);
+    }
+
+    /**
+     * One output stream per step execution. Partitions write to their own part file, suffixed
+     * with the first id of their range, so concurrent workers never share a channel; the merge
+     * step joins the parts into the output file.
+     */
     @Bean
-    public ItemReader<VisaBase2RecordEntity> dbToFileReader() {
-        return new DbToFileReconciliationReader();
+    @StepScope
+    public ItemStreamWriter<VisaBase2Record> dbToFileWriter(
+            @Value("${reconciliation.output.file}") String outputFilePath,
+            @Value("#{stepExecutionContext['minId']}") Long minId) {
+        if (minId == null) {
+            return new DbToFileReconciliationWriter(outputFilePath);
+        }
+        return new DbToFileReconciliationWriter(DbToFileReconciliationWriter.partPath(outputFilePath, minId));
     }
 
     @Bean
-    public ItemProcessor<VisaBase2RecordEntity, VisaBase2Record> dbToFileProcessor() {
-        return new DbToFileReconciliationProcessor();
+    public TransactionIdPrescreenListener databasePrescreenListener() {
+        return new TransactionIdPrescreenListener(Side.DATABASE);
     }
 
     @Bean
-    public ItemWriter<VisaBase2Record> dbToFileWriter() {
-        return new DbToFileReconciliationWriter();
+    public FileTransactionIdIndex fileTransactionIdIndex() {
+        return new FileTransactionIdIndex();
     }
 } 
\ No newline at end of file
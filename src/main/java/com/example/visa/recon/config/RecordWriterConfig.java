@@ -0,0 +1,37 @@
+package com.example.visa.recon.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.example.visa.recon.repository.VisaBase2RecordBulkWriter;
+import com.example.visa.recon.repository.VisaBase2RecordRepository;
+import com.example.visa.recon.repository.VisaBase2RecordWriter;
+
+/**
+ * Chooses how records are written to the transaction table, for every writer of the table.
+ */
+@Configuration
+public class RecordWriterConfig {
+    private static final Logger logger = LoggerFactory.getLogger(RecordWriterConfig.class);
+
+    private static final String WRITER_JDBC = "jdbc";
+
+    /**
+     * {@code jdbc} sends batched {@code INSERT ... ON DUPLICATE KEY UPDATE} statements keyed on
+     * transaction_id; anything else, {@code jpa} by default, goes through {@code saveAll}.
+     */
+    @Bean
+    public VisaBase2RecordWriter visaBase2RecordWriter(@Value("${reconciliation.db.writer:jpa}") String writerType,
+                                                       VisaBase2RecordRepository repository,
+                                                       VisaBase2RecordBulkWriter bulkWriter) {
+        if (WRITER_JDBC.equalsIgnoreCase(writerType)) {
+            logger.info("Writing records with JDBC batch upserts");
+            return bulkWriter::upsertAll;
+        }
+        logger.info("Writing records with JPA saveAll");
+        return repository::saveAll;
+    }
+}
@@ -1,11 +1,14 @@
 package com.example.visa.recon.config;
 
 import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.concurrent.ThreadPoolExecutor;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
@@ -22,6 +25,12 @@ public class ThreadPoolConfig {
     @Value("${reconciliation.thread-pool.queue-capacity:100}")
     private int queueCapacity;
 
+    @Value("${reconciliation.partition.pool-size:4}")
+    private int partitionPoolSize;
+
+    @Value("${reconciliation.matching.parallelism:0}")
+    private int matchingParallelism;
+
     @Bean(name = "reconciliationExecutor")
     public Executor reconciliationExecutor() {
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
@@ -33,4 +42,45 @@ public class ThreadPoolConfig {
         executor.initialize();
         return executor;
     }
-} 
\ No newline at end of file
+
+    /**
+     * Runs the flows of the concurrent reconciliation job, one thread per direction.
+     */
+    @Bean(name = "splitExecutor")
+    public TaskExecutor splitExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(2);
+        executor.setThreadNamePrefix("ReconciliationFlow-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Runs the worker steps of partitioned reconciliation. Partitions are queued rather than
+     * run on the caller, so the manager step only waits for them.
+     */
+    @Bean(name = "partitionExecutor")
+    public TaskExecutor partitionExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(partitionPoolSize);
+        executor.setMaxPoolSize(partitionPoolSize);
+        executor.setThreadNamePrefix("Partition-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Runs parallel fuzzy matching, one worker per core unless
+     * {@code reconciliation.matching.parallelism} is set.
+     */
+    @Bean(name = "matchingPool", destroyMethod = "shutdown")
+    public ForkJoinPool matchingPool() {
+        int parallelism = matchingParallelism > 0 ? matchingParallelism : Runtime.getRuntime().availableProcessors();
+        return new ForkJoinPool(parallelism, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("Matching-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+    }
+}
@@ -64,6 +64,19 @@ public class ReconciliationController {
         }
     }
 
+    @PostMapping("reconcile/restart")
+    public String restartReconciliation(@RequestBody String request) {
+        try {
+            ObjectMapper objectMapper = new ObjectMapper();
+            JsonNode jsonNode = objectMapper.readTree(request);
+            long jobId = jsonNode.get("jobId").asLong();
+            return reconciliationJobService.restartReconciliation(jobId);
+        } catch (Exception e) {
+            logger.error("Error restarting reconciliation job: {}", e.getMessage(), e);
+            return "Error: " + e.getMessage();
+        }
+    }
+
     @PostMapping("/reconcile/two-way")
     public ResponseEntity<String> twoWayReconciliation(@RequestBody String request) {
         try {
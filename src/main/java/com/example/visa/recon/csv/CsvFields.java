@@ -0,0 +1,23 @@
+package com.example.visa.recon.csv;
+
+/**
+ * Read-only view over the fields of the current CSV record.
+ * Implementations keep field boundaries only and materialize a field as a String
+ * when it is asked for, so callers pay only for the fields they actually use.
+ */
+public interface CsvFields {
+
+    /**
+     * @return Number of fields in the current record
+     */
+    int fieldCount();
+
+    /**
+     * Materializes a single field with surrounding whitespace removed.
+     * 
+     * @param index Zero-based field index
+     * @return Field value, never null
+     * @throws IndexOutOfBoundsException if the record has no such field
+     */
+    String field(int index);
+}
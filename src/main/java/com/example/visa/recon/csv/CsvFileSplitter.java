@@ -0,0 +1,148 @@
+package com.example.visa.recon.csv;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Splits a CSV file into contiguous byte ranges whose boundaries fall on record starts,
+ * so each range can be parsed independently by its own {@link MappedCsvReader}.
+ * 
+ * A newline only ends a record when it is outside quotes, and whether a byte is inside quotes
+ * depends on every byte before it. The splitter therefore makes one sequential pass over the
+ * file, tracking quotes the way {@link MappedCsvReader} does, and cuts at the first record
+ * end at or past each nominal cut point, so records with line breaks in quoted fields are never
+ * cut in two. The pass creates no fields or strings and is much cheaper than parsing the ranges.
+ */
+public final class CsvFileSplitter {
+    private static final int SCAN_BUFFER_SIZE = 64 * 1024;
+    private static final byte DELIMITER = ',';
+    private static final byte QUOTE = '"';
+
+    // Quote states of MappedCsvReader; only a quote at the start of a field opens a quoted field
+    private static final int FIELD_START = 0;
+    private static final int UNQUOTED = 1;
+    private static final int QUOTED = 2;
+    private static final int QUOTE_IN_QUOTED = 3;
+    private static final int AFTER_QUOTED = 4;
+
+    private CsvFileSplitter() {
+        // Prevent instantiation
+    }
+
+    /**
+     * A half-open byte range [start, end) of a file.
+     */
+    public static final class ByteRange {
+        private final long start;
+        private final long end;
+
+        public ByteRange(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        public long getStart() {
+            return start;
+        }
+
+        public long getEnd() {
+            return end;
+        }
+
+        public long length() {
+            return end - start;
+        }
+
+        @Override
+        public String toString() {
+            return "[" + start + ", " + end + ")";
+        }
+    }
+
+    /**
+     * Divides the file behind the channel into at most {@code parts} ranges of roughly equal size.
+     * Each cut point is moved forward to the start of the next record; ranges that collapse
+     * because a record is longer than the nominal part size are dropped, so fewer ranges may be
+     * returned. A quote left open at the end of the file keeps the rest of the file in one range.
+     * 
+     * @param channel Channel of the file to split
+     * @param parts Desired number of ranges
+     * @return Ranges in file order covering the whole file; empty for an empty file
+     * @throws UncheckedIOException if the file cannot be read
+     */
+    public static List<ByteRange> split(FileChannel channel, int parts) {
+        try {
+            long size = channel.size();
+            if (size == 0) {
+                return Collections.emptyList();
+            }
+            int count = (int) Math.max(1, Math.min(parts, size));
+            List<ByteRange> ranges = new ArrayList<>(count);
+            ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+
+            long start = 0;
+            int nextCut = 1;
+            long target = size / count;
+            int state = FIELD_START;
+            long position = 0;
+            while (nextCut < count && position < size) {
+                buffer.clear();
+                int read = channel.read(buffer, position);
+                if (read <= 0) {
+                    break;
+                }
+                for (int i = 0; i < read && nextCut < count; i++) {
+                    byte b = buffer.get(i);
+                    if (b != '\n' || state == QUOTED) {
+                        state = next(state, b);
+                        continue;
+                    }
+                    state = FIELD_START;
+                    long boundary = position + i + 1;
+                    if (boundary >= target) {
+                        if (boundary < size) {
+                            ranges.add(new ByteRange(start, boundary));
+                            start = boundary;
+                        }
+                        while (nextCut < count && size * nextCut / count <= boundary) {
+                            nextCut++;
+                        }
+                        target = size * nextCut / count;
+                    }
+                }
+                position += read;
+            }
+            ranges.add(new ByteRange(start, size));
+            return ranges;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error splitting file into byte ranges", e);
+        }
+    }
+
+    /**
+     * Advances the quote state over a byte that is not a record-ending newline.
+     */
+    private static int next(int state, byte b) {
+        switch (state) {
+            case FIELD_START:
+                if (b == QUOTE) {
+                    return QUOTED;
+                }
+                return b == DELIMITER || (b & 0xFF) <= ' ' ? FIELD_START : UNQUOTED;
+            case QUOTED:
+                return b == QUOTE ? QUOTE_IN_QUOTED : QUOTED;
+            case QUOTE_IN_QUOTED:
+                if (b == QUOTE) {
+                    return QUOTED;
+                }
+                return b == DELIMITER ? FIELD_START : AFTER_QUOTED;
+            default:
+                return b == DELIMITER ? FIELD_START : state;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.visa.recon.csv;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.function.Function;
+
+import com.example.visa.recon.mapper.VisaBase2RecordMapper;
+import com.example.visa.recon.model.dto.VisaBase2Record;
+
+/**
+ * Encodes records as UTF-8 CSV lines in {@link VisaBase2RecordMapper#CSV_COLUMNS} order,
+ * straight into a reusable byte array. Fields containing a comma, quote, CR or LF are quoted
+ * as in RFC 4180, with embedded quotes doubled; null fields are written empty. Lines end with
+ * a single LF, like the files the generator has always produced.
+ * 
+ * Encoders are not thread-safe; use {@link #get()} for the current thread's instance.
+ * Encoding allocates nothing once the array has grown to the longest line.
+ */
+public final class CsvRecordEncoder {
+    private static final ThreadLocal<CsvRecordEncoder> ENCODERS = ThreadLocal.withInitial(CsvRecordEncoder::new);
+    private static final int PLAIN_ASCII = 0;
+    private static final int PLAIN = 1;
+    private static final int QUOTED = 2;
+
+    private byte[] line = new byte[1024];
+    private int length;
+
+    private CsvRecordEncoder() {
+    }
+
+    /**
+     * @return The encoder of the current thread
+     */
+    public static CsvRecordEncoder get() {
+        return ENCODERS.get();
+    }
+
+    /**
+     * Encodes a record, replacing the previously encoded line.
+     * 
+     * @param record Record to encode
+     * @return Number of bytes of the line, including the trailing LF
+     */
+    public int encode(VisaBase2Record record) {
+        length = 0;
+        boolean first = true;
+        for (Function<VisaBase2Record, String> column : VisaBase2RecordMapper.CSV_COLUMNS) {
+            if (!first) {
+                putByte(',');
+            }
+            first = false;
+            String value = column.apply(record);
+            if (value != null) {
+                putField(value);
+            }
+        }
+        putByte('\n');
+        return length;
+    }
+
+    /**
+     * Encodes a record and writes the line to a stream.
+     */
+    public void writeTo(OutputStream out, VisaBase2Record record) throws IOException {
+        encode(record);
+        out.write(line, 0, length);
+    }
+
+    /**
+     * @return Backing array of the last encoded line; valid up to {@link #length()} and only until
+     *         the next call to {@link #encode(VisaBase2Record)}
+     */
+    public byte[] bytes() {
+        return line;
+    }
+
+    /**
+     * @return Length in bytes of the last encoded line
+     */
+    public int length() {
+        return length;
+    }
+
+    private void putField(String value) {
+        int scan = scan(value);
+        if (scan == PLAIN_ASCII) {
+            putAscii(value);
+            return;
+        }
+        if (scan == PLAIN) {
+            putChars(value);
+            return;
+        }
+        putByte('"');
+        int start = 0;
+        int quote;
+        while ((quote = value.indexOf('"', start)) >= 0) {
+            putChars(value, start, quote + 1);
+            putByte('"');
+            start = quote + 1;
+        }
+        putChars(value, start, value.length());
+        putByte('"');
+    }
+
+    /**
+     * @return {@link #QUOTED} if the value contains a comma, quote, CR or LF, otherwise
+     *         {@link #PLAIN_ASCII} or {@link #PLAIN} depending on whether it is all ASCII
+     */
+    private static int scan(String value) {
+        int result = PLAIN_ASCII;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return QUOTED;
+            }
+            if (c >= 0x80) {
+                result = PLAIN;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Copies an all-ASCII value byte for byte. String.getBytes(int, int, byte[], int) keeps
+     * the low byte of each char, which is the UTF-8 encoding for ASCII, and is a plain array
+     * copy for the compact strings ASCII values are stored as.
+     */
+    @SuppressWarnings("deprecation")
+    private void putAscii(String value) {
+        int size = value.length();
+        ensureCapacity(length + size);
+        value.getBytes(0, size, line, length);
+        length += size;
+    }
+
+    private void putChars(String value) {
+        putChars(value, 0, value.length());
+    }
+
+    /**
+     * UTF-8 encodes value[from, to) without going through a charset encoder.
+     * Unpaired surrogates are written as '?', as String.getBytes does.
+     */
+    private void putChars(String value, int from, int to) {
+        ensureCapacity(length + (to - from) * 3);
+        for (int i = from; i < to; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                line[length++] = (byte) c;
+            } else if (c < 0x800) {
+                line[length++] = (byte) (0xC0 | (c >> 6));
+                line[length++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < to && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                line[length++] = (byte) (0xF0 | (codePoint >> 18));
+                line[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                line[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                line[length++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                line[length++] = (byte) '?';
+            } else {
+                line[length++] = (byte) (0xE0 | (c >> 12));
+                line[length++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                line[length++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    private void putByte(char c) {
+        ensureCapacity(length + 1);
+        line[length++] = (byte) c;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > line.length) {
+            line = Arrays.copyOf(line, Math.max(capacity, line.length * 2));
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.example.visa.recon.csv;
+
+import java.util.Arrays;
+
+/**
+ * Single-pass RFC 4180 tokenizer for character input read line by line.
+ * Fields may be quoted; inside quotes a doubled quote stands for one quote and commas and line
+ * breaks are plain content. A record whose quoted field spans several lines is built up by
+ * {@link #append(CharSequence)} calls until the closing quote is seen.
+ *
+ * Characters are copied once into a reusable buffer and field boundaries are kept in reusable
+ * int arrays; a field is only turned into a String when {@link #field(int)} is called. Unquoted
+ * fields are trimmed, quoted fields are returned exactly as written between the quotes.
+ * Instances are not thread-safe.
+ */
+public class CsvTokenizer implements CsvFields {
+    private static final char DELIMITER = ',';
+    private static final char QUOTE = '"';
+
+    private static final int FIELD_START = 0;
+    private static final int UNQUOTED = 1;
+    private static final int QUOTED = 2;
+    private static final int QUOTE_IN_QUOTED = 3;
+    private static final int AFTER_QUOTED = 4;
+
+    private char[] buffer = new char[1024];
+    private int length;
+
+    private int[] fieldStarts = new int[64];
+    private int[] fieldEnds = new int[64];
+    private boolean[] escaped = new boolean[64];
+    private int fieldCount;
+
+    private int state = FIELD_START;
+    private int fieldStart;
+    private boolean fieldEscaped;
+    private boolean complete = true;
+
+    /**
+     * Feeds one line, without its terminator, into the tokenizer.
+     * When the previous call ended inside a quoted field the line continues that record and the
+     * line break between them becomes part of the field; otherwise a new record is started.
+     *
+     * @param line Line to tokenize
+     * @return true if the record is complete, false if a quoted field is still open
+     */
+    public boolean append(CharSequence line) {
+        int from;
+        if (complete) {
+            length = 0;
+            fieldCount = 0;
+            state = FIELD_START;
+            from = 0;
+        } else {
+            ensureCapacity(length + 1);
+            buffer[length++] = '\n';
+            from = length;
+        }
+        int lineLength = line.length();
+        ensureCapacity(length + lineLength);
+        if (line instanceof String) {
+            ((String) line).getChars(0, lineLength, buffer, length);
+        } else {
+            for (int i = 0; i < lineLength; i++) {
+                buffer[length + i] = line.charAt(i);
+            }
+        }
+        length += lineLength;
+        scan(from, length);
+
+        complete = state != QUOTED;
+        if (complete) {
+            endRecord();
+        }
+        return complete;
+    }
+
+    /**
+     * Ends a record whose quoted field was never closed, at the end of the input.
+     * The field then runs to the end of the text appended so far. Does nothing if no field is open.
+     */
+    public void finish() {
+        if (!complete) {
+            complete = true;
+            endRecord();
+        }
+    }
+
+    /**
+     * @return true if the last {@link #append(CharSequence)} left a quoted field open
+     */
+    public boolean isPending() {
+        return !complete;
+    }
+
+    @Override
+    public int fieldCount() {
+        return complete ? fieldCount : 0;
+    }
+
+    @Override
+    public String field(int index) {
+        if (index < 0 || index >= fieldCount()) {
+            throw new IndexOutOfBoundsException("Field " + index + " of " + fieldCount());
+        }
+        int start = fieldStarts[index];
+        int end = fieldEnds[index];
+        if (!escaped[index]) {
+            return start == end ? "" : new String(buffer, start, end - start);
+        }
+        StringBuilder value = new StringBuilder(end - start);
+        for (int i = start; i < end; i++) {
+            char c = buffer[i];
+            value.append(c);
+            if (c == QUOTE) {
+                i++; // Skip the second quote of the pair
+            }
+        }
+        return value.toString();
+    }
+
+    private void scan(int from, int to) {
+        for (int i = from; i < to; i++) {
+            char c = buffer[i];
+            switch (state) {
+                case FIELD_START:
+                    if (c == QUOTE) {
+                        fieldStart = i + 1;
+                        fieldEscaped = false;
+                        state = QUOTED;
+                    } else if (c == DELIMITER) {
+                        addField(i, i, false);
+                    } else if (c > ' ') {
+                        fieldStart = i;
+                        state = UNQUOTED;
+                    }
+                    break;
+                case UNQUOTED:
+                    if (c == DELIMITER) {
+                        addTrimmedField(fieldStart, i);
+                        state = FIELD_START;
+                    }
+                    break;
+                case QUOTED:
+                    if (c == QUOTE) {
+                        state = QUOTE_IN_QUOTED;
+                    }
+                    break;
+                case QUOTE_IN_QUOTED:
+                    if (c == QUOTE) {
+                        fieldEscaped = true;
+                        state = QUOTED;
+                    } else {
+                        addField(fieldStart, i - 1, fieldEscaped);
+                        state = c == DELIMITER ? FIELD_START : AFTER_QUOTED;
+                    }
+                    break;
+                default:
+                    // Anything between a closing quote and the delimiter is ignored
+                    if (c == DELIMITER) {
+                        state = FIELD_START;
+                    }
+                    break;
+            }
+        }
+    }
+
+    private void endRecord() {
+        switch (state) {
+            case UNQUOTED:
+                addTrimmedField(fieldStart, length);
+                break;
+            case QUOTED:
+                addField(fieldStart, length, fieldEscaped);
+                break;
+            case QUOTE_IN_QUOTED:
+                addField(fieldStart, length - 1, fieldEscaped);
+                break;
+            case FIELD_START:
+                addField(length, length, false);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void addTrimmedField(int start, int end) {
+        while (end > start && buffer[end - 1] <= ' ') {
+            end--;
+        }
+        addField(start, end, false);
+    }
+
+    private void addField(int start, int end, boolean hasEscapes) {
+        if (fieldCount == fieldStarts.length) {
+            fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+            fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+            escaped = Arrays.copyOf(escaped, fieldCount * 2);
+        }
+        fieldStarts[fieldCount] = start;
+        fieldEnds[fieldCount] = end;
+        escaped[fieldCount] = hasEscapes;
+        fieldCount++;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(capacity, buffer.length * 2));
+        }
+    }
+}
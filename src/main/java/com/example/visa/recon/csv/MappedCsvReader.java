@@ -0,0 +1,395 @@
+package com.example.visa.recon.csv;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Byte-level CSV reader over a memory-mapped file.
+ * Records are located and split into fields in a single pass over the mapped bytes; no line
+ * String, regex or intermediate field array is created. Field boundaries are kept in reusable
+ * int arrays and a field is only decoded when {@link #field(int)} is called.
+ * 
+ * Fields follow RFC 4180: a quoted field may contain commas, doubled quotes and line breaks,
+ * so a record can span several physical lines. Unquoted fields are trimmed, quoted fields are
+ * returned exactly as written between the quotes.
+ * 
+ * The reader covers the byte range [start, end) of the file: it returns every record that
+ * starts inside the range, including a last record that runs past {@code end}. Large files are
+ * mapped through a sliding window, so files bigger than 2 GB are supported as long as a
+ * single record fits in the window. Instances are not thread-safe.
+ */
+public class MappedCsvReader implements CsvFields, Closeable {
+    private static final long DEFAULT_WINDOW_SIZE = 256L * 1024 * 1024;
+    private static final byte DELIMITER = ',';
+    private static final byte QUOTE = '"';
+
+    private static final int FIELD_START = 0;
+    private static final int UNQUOTED = 1;
+    private static final int QUOTED = 2;
+    private static final int QUOTE_IN_QUOTED = 3;
+    private static final int AFTER_QUOTED = 4;
+
+    private final FileChannel channel;
+    private final boolean ownsChannel;
+    private final long fileSize;
+    private final long end;
+    private final long windowSize;
+
+    private MappedByteBuffer window;
+    private long windowStart;
+    private int windowLimit;
+    private int position;
+
+    private int[] fieldStarts = new int[64];
+    private int[] fieldEnds = new int[64];
+    private boolean[] escaped = new boolean[64];
+    private int fieldCount;
+    private long lineOffset = -1;
+    private long lineNumber;
+    private byte[] scratch = new byte[128];
+
+    // Tokenizer state of the record being scanned
+    private int state;
+    private int fieldStart;
+    private boolean fieldEscaped;
+    private boolean hasContent;
+    private int recordLines;
+
+    /**
+     * Opens a reader over the whole file.
+     * 
+     * @param path File to read
+     * @return Reader positioned before the first line
+     * @throws UncheckedIOException if the file cannot be opened
+     */
+    public static MappedCsvReader open(Path path) {
+        return open(path, 0, 0);
+    }
+
+    /**
+     * Opens a reader over the rest of a file, resuming from a position saved earlier with
+     * {@link #nextOffset()} and {@link #lineNumber()}.
+     * 
+     * @param path File to read
+     * @param offset Offset of the first line to read; must be at a line start
+     * @param lineNumber Number of lines already consumed before the offset
+     * @return Reader positioned before the line at the offset
+     * @throws UncheckedIOException if the file cannot be opened
+     */
+    public static MappedCsvReader open(Path path, long offset, long lineNumber) {
+        return open(path, offset, Long.MAX_VALUE, lineNumber);
+    }
+
+    /**
+     * Opens a reader over a byte range of a file, owning its own channel. Lines starting at or
+     * after {@code end} belong to the next range and are not read.
+     * 
+     * @param path File to read
+     * @param offset Offset of the first line to read; must be at a line start
+     * @param end Offset after which no new line is started
+     * @param lineNumber Number of lines already consumed before the offset
+     * @return Reader positioned before the line at the offset
+     * @throws UncheckedIOException if the file cannot be opened
+     */
+    public static MappedCsvReader open(Path path, long offset, long end, long lineNumber) {
+        try {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+            MappedCsvReader reader = new MappedCsvReader(channel, true, offset, Math.min(end, channel.size()),
+                DEFAULT_WINDOW_SIZE);
+            reader.lineNumber = lineNumber;
+            return reader;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error opening file: " + path, e);
+        }
+    }
+
+    /**
+     * Creates a reader over a byte range of an already opened channel.
+     * The channel stays owned by the caller and is not closed by this reader.
+     * 
+     * @param channel Channel to read from
+     * @param start Offset of the first line to read; must be at a line start
+     * @param end Offset after which no new line is started
+     * @return Reader positioned before the first line of the range
+     */
+    public static MappedCsvReader range(FileChannel channel, long start, long end) {
+        try {
+            return new MappedCsvReader(channel, false, start, Math.min(end, channel.size()), DEFAULT_WINDOW_SIZE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error reading channel size", e);
+        }
+    }
+
+    MappedCsvReader(FileChannel channel, boolean ownsChannel, long start, long end, long windowSize) throws IOException {
+        this.channel = channel;
+        this.ownsChannel = ownsChannel;
+        this.fileSize = channel.size();
+        this.end = end;
+        this.windowSize = windowSize;
+        this.windowStart = start;
+    }
+
+    /**
+     * Advances to the next non-blank record of the range and splits it into fields.
+     * Line breaks inside quoted fields do not end the record.
+     * 
+     * @return true if a record is available, false at the end of the range
+     * @throws UncheckedIOException if the file cannot be mapped or a record exceeds the window
+     */
+    public boolean nextLine() {
+        while (true) {
+            long lineStart = windowStart + position;
+            if (lineStart >= end || lineStart >= fileSize) {
+                return false;
+            }
+            if (window == null || position >= windowLimit) {
+                mapWindow(lineStart);
+            }
+
+            int newline = tokenize(position);
+            int next;
+            if (newline < 0) {
+                if (windowStart + windowLimit < fileSize) {
+                    // Record continues past the mapped window: remap starting at this record
+                    if (position == 0) {
+                        throw new UncheckedIOException(new IOException(
+                            "Record at offset " + lineStart + " is longer than the mapping window"));
+                    }
+                    mapWindow(lineStart);
+                    continue;
+                }
+                newline = windowLimit;
+                next = windowLimit;
+            } else {
+                next = newline + 1;
+            }
+            endRecord(newline);
+            position = next;
+            lineNumber += recordLines;
+
+            if (!hasContent) {
+                continue;
+            }
+            lineOffset = lineStart;
+            return true;
+        }
+    }
+
+    @Override
+    public int fieldCount() {
+        return fieldCount;
+    }
+
+    @Override
+    public String field(int index) {
+        if (index < 0 || index >= fieldCount) {
+            throw new IndexOutOfBoundsException("Field " + index + " of " + fieldCount);
+        }
+        int start = fieldStarts[index];
+        int length = fieldEnds[index] - start;
+        if (length == 0) {
+            return "";
+        }
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        window.get(start, scratch, 0, length);
+        if (escaped[index]) {
+            length = unescape(scratch, length);
+        }
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return File offset of the current line
+     */
+    public long lineOffset() {
+        return lineOffset;
+    }
+
+    /**
+     * @return File offset just after the current line, where the next read starts
+     */
+    public long nextOffset() {
+        return windowStart + position;
+    }
+
+    /**
+     * @return Number of physical lines consumed so far, including blank ones and line breaks
+     *         inside quoted fields
+     */
+    public long lineNumber() {
+        return lineNumber;
+    }
+
+    @Override
+    public void close() {
+        window = null;
+        if (ownsChannel) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error closing file channel", e);
+            }
+        }
+    }
+
+    private void mapWindow(long offset) {
+        try {
+            long size = Math.min(windowSize, fileSize - offset);
+            window = channel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+            windowStart = offset;
+            windowLimit = (int) size;
+            position = 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error mapping file region at offset " + offset, e);
+        }
+    }
+
+    /**
+     * Splits the record starting at {@code from} into fields, stopping at the first line break
+     * outside quotes. The last field is left open for {@link #endRecord(int)}.
+     * 
+     * @return Index of the terminating line break, or -1 if the window ends first
+     */
+    private int tokenize(int from) {
+        fieldCount = 0;
+        state = FIELD_START;
+        hasContent = false;
+        recordLines = 1;
+        for (int i = from; i < windowLimit; i++) {
+            byte b = window.get(i);
+            if (!isWhitespace(b)) {
+                hasContent = true;
+            }
+            switch (state) {
+                case FIELD_START:
+                    if (b == '\n') {
+                        return i;
+                    } else if (b == QUOTE) {
+                        fieldStart = i + 1;
+                        fieldEscaped = false;
+                        state = QUOTED;
+                    } else if (b == DELIMITER) {
+                        addField(i, i, false);
+                    } else if (!isWhitespace(b)) {
+                        fieldStart = i;
+                        state = UNQUOTED;
+                    }
+                    break;
+                case UNQUOTED:
+                    if (b == '\n') {
+                        return i;
+                    } else if (b == DELIMITER) {
+                        addTrimmedField(fieldStart, i);
+                        state = FIELD_START;
+                    }
+                    break;
+                case QUOTED:
+                    if (b == QUOTE) {
+                        state = QUOTE_IN_QUOTED;
+                    } else if (b == '\n') {
+                        recordLines++;
+                    }
+                    break;
+                case QUOTE_IN_QUOTED:
+                    if (b == QUOTE) {
+                        fieldEscaped = true;
+                        state = QUOTED;
+                        break;
+                    }
+                    addField(fieldStart, i - 1, fieldEscaped);
+                    state = AFTER_QUOTED;
+                    if (b == '\n') {
+                        return i;
+                    } else if (b == DELIMITER) {
+                        state = FIELD_START;
+                    }
+                    break;
+                default:
+                    // Anything between a closing quote and the delimiter is ignored
+                    if (b == '\n') {
+                        return i;
+                    } else if (b == DELIMITER) {
+                        state = FIELD_START;
+                    }
+                    break;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Closes the last field of the record ending at {@code to}. A quoted field left open at the
+     * end of the file runs to the end of the file.
+     */
+    private void endRecord(int to) {
+        switch (state) {
+            case FIELD_START:
+                addField(to, to, false);
+                break;
+            case UNQUOTED:
+                addTrimmedField(fieldStart, to);
+                break;
+            case QUOTED:
+                addField(fieldStart, to, fieldEscaped);
+                break;
+            case QUOTE_IN_QUOTED:
+                addField(fieldStart, to - 1, fieldEscaped);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Collapses doubled quotes in place.
+     * 
+     * @return Length of the unescaped value
+     */
+    private static int unescape(byte[] value, int length) {
+        int out = 0;
+        for (int i = 0; i < length; i++) {
+            value[out++] = value[i];
+            if (value[i] == QUOTE) {
+                i++; // Skip the second quote of the pair
+            }
+        }
+        return out;
+    }
+
+    private void addTrimmedField(int start, int end) {
+        while (end > start && isWhitespace(window.get(end - 1))) {
+            end--;
+        }
+        addField(start, end, false);
+    }
+
+    /**
+     * Whitespace as {@link String#trim()} sees it. Bytes are compared unsigned, so the lead and
+     * continuation bytes of multi-byte UTF-8 characters, which are negative as Java bytes, are
+     * never taken for whitespace.
+     */
+    private static boolean isWhitespace(byte b) {
+        return (b & 0xFF) <= ' ';
+    }
+
+    private void addField(int start, int end, boolean hasEscapes) {
+        if (fieldCount == fieldStarts.length) {
+            fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+            fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+            escaped = Arrays.copyOf(escaped, fieldCount * 2);
+        }
+        fieldStarts[fieldCount] = start;
+        fieldEnds[fieldCount] = end;
+        escaped[fieldCount] = hasEscapes;
+        fieldCount++;
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.visa.recon.csv;
+
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import com.example.visa.recon.csv.CsvFileSplitter.ByteRange;
+
+/**
+ * Spliterator over the lines of a file that has been cut into byte ranges.
+ * Splitting hands whole ranges to other workers, and every range is parsed by its own
+ * {@link MappedCsvReader}, so a parallel stream built on it parses one range per thread
+ * instead of funnelling all I/O through a single reader. The encounter order is file order;
+ * callers that do not need it can drop it with {@code unordered()}.
+ *
+ * @param <T> Element type produced from each line
+ */
+public class MappedRangeSpliterator<T> implements Spliterator<T> {
+    private final FileChannel channel;
+    private final List<ByteRange> ranges;
+    private final Function<MappedCsvReader, T> converter;
+    private final boolean skipHeader;
+    private int current;
+    private final int fence;
+    private MappedCsvReader reader;
+
+    /**
+     * @param channel Channel shared by all ranges; closed by the caller
+     * @param ranges Record-aligned ranges in file order
+     * @param converter Converts the current line of a reader into an element
+     * @param skipHeader Whether the first line of the file is a header
+     */
+    public MappedRangeSpliterator(FileChannel channel, List<ByteRange> ranges,
+                                  Function<MappedCsvReader, T> converter, boolean skipHeader) {
+        this(channel, ranges, converter, skipHeader, 0, ranges.size());
+    }
+
+    private MappedRangeSpliterator(FileChannel channel, List<ByteRange> ranges,
+                                   Function<MappedCsvReader, T> converter, boolean skipHeader,
+                                   int origin, int fence) {
+        this.channel = channel;
+        this.ranges = ranges;
+        this.converter = converter;
+        this.skipHeader = skipHeader;
+        this.current = origin;
+        this.fence = fence;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        while (true) {
+            if (reader == null) {
+                if (current >= fence) {
+                    return false;
+                }
+                ByteRange range = ranges.get(current);
+                reader = MappedCsvReader.range(channel, range.getStart(), range.getEnd());
+                if (skipHeader && range.getStart() == 0) {
+                    reader.nextLine();
+                }
+            }
+            if (reader.nextLine()) {
+                action.accept(converter.apply(reader));
+                return true;
+            }
+            reader.close();
+            reader = null;
+            current++;
+        }
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+        // Only whole, not yet started ranges can be handed off as the prefix
+        if (reader != null || fence - current < 2) {
+            return null;
+        }
+        int middle = (current + fence) >>> 1;
+        MappedRangeSpliterator<T> prefix =
+            new MappedRangeSpliterator<>(channel, ranges, converter, skipHeader, current, middle);
+        current = middle;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        // Remaining bytes; proportional to the remaining lines, which is all the framework needs
+        long size = 0;
+        for (int i = current; i < fence; i++) {
+            size += ranges.get(i).length();
+        }
+        return size;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED;
+    }
+}
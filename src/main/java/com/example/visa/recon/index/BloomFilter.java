@@ -0,0 +1,143 @@
+package com.example.visa.recon.index;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bloom filter over transaction IDs used to pre-screen membership checks.
+ * A negative answer from {@link #mightContain(String)} is definite, a positive answer only
+ * means the ID may be present and has to be confirmed with an exact lookup.
+ * 
+ * The bit array is sized from the expected number of insertions and the target false-positive
+ * rate; bit positions are derived from two 64-bit hashes by double hashing. Insertions and
+ * lookups may run concurrently.
+ */
+public class BloomFilter {
+    private static final double LN2 = Math.log(2);
+    private static final long MAX_BITS = (long) Integer.MAX_VALUE * Long.SIZE;
+
+    private final AtomicLongArray words;
+    private final long bitSize;
+    private final int hashFunctions;
+    private final LongAdder insertions = new LongAdder();
+
+    private BloomFilter(long bitSize, int hashFunctions) {
+        this.words = new AtomicLongArray((int) ((bitSize + Long.SIZE - 1) / Long.SIZE));
+        this.bitSize = bitSize;
+        this.hashFunctions = hashFunctions;
+    }
+
+    /**
+     * Creates a filter sized for the given number of IDs and false-positive rate.
+     * 
+     * @param expectedInsertions Number of IDs expected to be added
+     * @param falsePositiveRate Target false-positive rate, between 0 and 1 exclusive
+     * @return Empty filter
+     */
+    public static BloomFilter create(long expectedInsertions, double falsePositiveRate) {
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("False-positive rate must be between 0 and 1: " + falsePositiveRate);
+        }
+        long n = Math.max(1, expectedInsertions);
+        long bits = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (LN2 * LN2));
+        bits = Math.min(MAX_BITS, Math.max(Long.SIZE, bits));
+        int hashFunctions = Math.max(1, (int) Math.round((double) bits / n * LN2));
+        return new BloomFilter(bits, hashFunctions);
+    }
+
+    /**
+     * Adds a transaction ID to the filter.
+     * 
+     * @param transactionId ID to add, not null
+     */
+    public void put(String transactionId) {
+        long hash1 = hash(transactionId);
+        long hash2 = mix(hash1 ^ 0x9E3779B97F4A7C15L);
+        for (int i = 0; i < hashFunctions; i++) {
+            setBit(Long.remainderUnsigned(hash1 + i * hash2, bitSize));
+        }
+        insertions.increment();
+    }
+
+    /**
+     * @param transactionId ID to check, not null
+     * @return false if the ID was definitely never added, true if it may have been
+     */
+    public boolean mightContain(String transactionId) {
+        long hash1 = hash(transactionId);
+        long hash2 = mix(hash1 ^ 0x9E3779B97F4A7C15L);
+        for (int i = 0; i < hashFunctions; i++) {
+            long bit = Long.remainderUnsigned(hash1 + i * hash2, bitSize);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return Size of the bit array in bits
+     */
+    public long bitSize() {
+        return bitSize;
+    }
+
+    /**
+     * @return Heap used by the bit array, in bytes
+     */
+    public long sizeInBytes() {
+        return (long) words.length() * Long.BYTES;
+    }
+
+    /**
+     * @return Number of hash functions applied per ID
+     */
+    public int hashFunctions() {
+        return hashFunctions;
+    }
+
+    /**
+     * @return Number of IDs added so far, including duplicates
+     */
+    public long insertions() {
+        return insertions.sum();
+    }
+
+    /**
+     * Estimates the current false-positive rate from the number of insertions,
+     * using (1 - e^(-k * n / m))^k.
+     * 
+     * @return Expected false-positive rate of {@link #mightContain(String)}
+     */
+    public double expectedFalsePositiveRate() {
+        double fill = 1 - Math.exp(-(double) hashFunctions * insertions() / bitSize);
+        return Math.pow(fill, hashFunctions);
+    }
+
+    private void setBit(long bit) {
+        int index = (int) (bit >>> 6);
+        long mask = 1L << bit;
+        long word = words.get(index);
+        while ((word & mask) == 0 && !words.compareAndSet(index, word, word | mask)) {
+            word = words.get(index);
+        }
+    }
+
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
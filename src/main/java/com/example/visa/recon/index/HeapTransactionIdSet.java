@@ -0,0 +1,36 @@
+package com.example.visa.recon.index;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Transaction ID set backed by a concurrent hash set of Strings on the heap.
+ * Simple and fast for small inputs, but costs roughly 100 bytes of heap per ID.
+ */
+public class HeapTransactionIdSet implements TransactionIdSet {
+    private final Set<String> transactionIds;
+
+    public HeapTransactionIdSet(int expectedSize) {
+        this.transactionIds = ConcurrentHashMap.newKeySet(Math.max(16, expectedSize));
+    }
+
+    @Override
+    public boolean add(String transactionId) {
+        return transactionIds.add(transactionId);
+    }
+
+    @Override
+    public boolean contains(String transactionId) {
+        return transactionIds.contains(transactionId);
+    }
+
+    @Override
+    public long size() {
+        return transactionIds.size();
+    }
+
+    @Override
+    public void close() {
+        transactionIds.clear();
+    }
+}
@@ -0,0 +1,292 @@
+package com.example.visa.recon.index;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Transaction ID set stored entirely off-heap in direct byte buffers.
+ * 
+ * IDs are kept in an open-addressing table of 16-byte slots, each holding the 64-bit
+ * fingerprint of an ID and the address of its bytes in an append-only arena. Probes compare
+ * fingerprints first and only read the arena to verify an ID exactly when the fingerprints
+ * match, so lookups stay exact even when two IDs share a fingerprint. With IDs like
+ * "TXN1711180000000000123" this costs 50 to 100 bytes of direct memory per ID, depending on
+ * how full the power-of-two table is, and almost no heap. A {@code ConcurrentHashMap} key set
+ * of the same IDs needs well over 100 bytes of heap per ID.
+ * 
+ * Direct memory is limited by {@code -XX:MaxDirectMemorySize}, which defaults to the
+ * maximum heap size.
+ * 
+ * Writers take an exclusive lock. Lookups run as optimistic reads without locking and are
+ * only repeated under a shared read lock if a write overlapped them, so once the set is built,
+ * any number of threads probe it in parallel.
+ */
+public class OffHeapTransactionIdSet implements TransactionIdSet {
+    private static final int SLOT_BYTES = 16;
+    private static final int TABLE_PAGE_SHIFT = 27; // 128 MB table pages
+    private static final int MIN_ARENA_PAGE_SIZE = 1 << 20;
+    private static final int MAX_ARENA_PAGE_SIZE = 1 << 26;
+    private static final int MAX_ID_BYTES = 0xFFFF;
+    private static final double MAX_LOAD_FACTOR = 0.6;
+
+    private final int tablePageShift;
+    private final long tablePageMask;
+    private final int minArenaPageSize;
+    private final int maxArenaPageSize;
+
+    private ByteBuffer[] table;
+    private long capacity;
+    private long mask;
+    private long size;
+
+    private final List<ByteBuffer> arenaPages = new ArrayList<>();
+    private ByteBuffer arenaPage;
+    private boolean closed;
+
+    private final StampedLock lock = new StampedLock();
+
+    public OffHeapTransactionIdSet(long expectedSize) {
+        this(expectedSize, TABLE_PAGE_SHIFT, MIN_ARENA_PAGE_SIZE, MAX_ARENA_PAGE_SIZE);
+    }
+
+    OffHeapTransactionIdSet(long expectedSize, int tablePageShift, int minArenaPageSize, int maxArenaPageSize) {
+        this.tablePageShift = tablePageShift;
+        this.tablePageMask = (1L << tablePageShift) - 1;
+        this.minArenaPageSize = minArenaPageSize;
+        this.maxArenaPageSize = maxArenaPageSize;
+        long required = (long) Math.ceil(Math.max(16, expectedSize) / MAX_LOAD_FACTOR);
+        allocateTable(Long.highestOneBit(required - 1) << 1);
+    }
+
+    @Override
+    public boolean add(String transactionId) {
+        byte[] bytes = transactionId.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_ID_BYTES) {
+            throw new IllegalArgumentException("Transaction ID too long: " + bytes.length + " bytes");
+        }
+        long fingerprint = fingerprint(bytes);
+        long stamp = lock.writeLock();
+        try {
+            checkOpen();
+            if (size + 1 > capacity * MAX_LOAD_FACTOR) {
+                resize(capacity << 1);
+            }
+            for (long slot = fingerprint & mask; ; slot = (slot + 1) & mask) {
+                long address = slotAddress(table, slot);
+                if (address == 0) {
+                    writeSlot(slot, fingerprint, append(bytes) + 1);
+                    size++;
+                    return true;
+                }
+                if (slotFingerprint(table, slot) == fingerprint && arenaEquals(arenaPages, address - 1, bytes)) {
+                    return false;
+                }
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public boolean contains(String transactionId) {
+        byte[] bytes = transactionId.getBytes(StandardCharsets.UTF_8);
+        long fingerprint = fingerprint(bytes);
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                boolean found = probe(table, mask, arenaPages, fingerprint, bytes);
+                if (lock.validate(stamp)) {
+                    return found;
+                }
+            } catch (RuntimeException e) {
+                // A write moved the table or arena under the probe; repeat it under the read lock
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            checkOpen();
+            return probe(table, mask, arenaPages, fingerprint, bytes);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public long size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * @return Direct memory held by the table and the arena, in bytes
+     */
+    public long offHeapBytes() {
+        long stamp = lock.readLock();
+        try {
+            long bytes = capacity * SLOT_BYTES;
+            for (ByteBuffer page : arenaPages) {
+                bytes += page.capacity();
+            }
+            return bytes;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Releases the table and the arena. Any later call other than {@link #size()} and
+     * {@link #offHeapBytes()} throws {@link IllegalStateException}.
+     */
+    @Override
+    public void close() {
+        long stamp = lock.writeLock();
+        try {
+            // Direct buffers are freed once unreachable
+            closed = true;
+            table = new ByteBuffer[0];
+            arenaPages.clear();
+            arenaPage = null;
+            capacity = 0;
+            mask = 0;
+            size = 0;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Transaction ID set is closed");
+        }
+    }
+
+    /**
+     * Looks an ID up in a snapshot of the table. Under an optimistic read the snapshot can be
+     * torn by a concurrent write, so the probe is bounded by the table size and may fail with
+     * an exception; either way the caller discards the result when the stamp does not validate.
+     */
+    private boolean probe(ByteBuffer[] table, long mask, List<ByteBuffer> arenaPages,
+                                 long fingerprint, byte[] bytes) {
+        long slot = fingerprint & mask;
+        for (long probes = 0; probes <= mask; probes++, slot = (slot + 1) & mask) {
+            long address = slotAddress(table, slot);
+            if (address == 0) {
+                return false;
+            }
+            if (slotFingerprint(table, slot) == fingerprint && arenaEquals(arenaPages, address - 1, bytes)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void allocateTable(long newCapacity) {
+        long bytes = newCapacity * SLOT_BYTES;
+        int pageSize = (int) Math.min(bytes, 1L << tablePageShift);
+        ByteBuffer[] pages = new ByteBuffer[(int) ((bytes + pageSize - 1) / pageSize)];
+        for (int i = 0; i < pages.length; i++) {
+            pages[i] = ByteBuffer.allocateDirect(pageSize); // zero-filled: every slot starts empty
+        }
+        table = pages;
+        capacity = newCapacity;
+        mask = newCapacity - 1;
+    }
+
+    private void resize(long newCapacity) {
+        ByteBuffer[] oldTable = table;
+        long oldCapacity = capacity;
+        allocateTable(newCapacity);
+        for (long slot = 0; slot < oldCapacity; slot++) {
+            long offset = slot * SLOT_BYTES;
+            ByteBuffer page = oldTable[(int) (offset >>> tablePageShift)];
+            int position = (int) (offset & tablePageMask);
+            long address = page.getLong(position + 8);
+            if (address != 0) {
+                long fingerprint = page.getLong(position);
+                long target = fingerprint & mask;
+                while (slotAddress(table, target) != 0) {
+                    target = (target + 1) & mask;
+                }
+                writeSlot(target, fingerprint, address);
+            }
+        }
+    }
+
+    private long slotFingerprint(ByteBuffer[] table, long slot) {
+        long offset = slot * SLOT_BYTES;
+        return table[(int) (offset >>> tablePageShift)].getLong((int) (offset & tablePageMask));
+    }
+
+    private long slotAddress(ByteBuffer[] table, long slot) {
+        long offset = slot * SLOT_BYTES;
+        return table[(int) (offset >>> tablePageShift)].getLong((int) (offset & tablePageMask) + 8);
+    }
+
+    private void writeSlot(long slot, long fingerprint, long address) {
+        long offset = slot * SLOT_BYTES;
+        ByteBuffer page = table[(int) (offset >>> tablePageShift)];
+        int position = (int) (offset & tablePageMask);
+        page.putLong(position, fingerprint);
+        page.putLong(position + 8, address);
+    }
+
+    /**
+     * Appends an ID to the arena as a 2-byte length followed by its bytes.
+     * 
+     * @return Arena address: page index in the high 32 bits, offset in the low 32 bits
+     */
+    private long append(byte[] bytes) {
+        int recordSize = 2 + bytes.length;
+        if (arenaPage == null || arenaPage.remaining() < recordSize) {
+            int pageSize = arenaPage == null
+                ? minArenaPageSize
+                : Math.min(maxArenaPageSize, arenaPage.capacity() << 1);
+            arenaPage = ByteBuffer.allocateDirect(Math.max(pageSize, recordSize));
+            arenaPages.add(arenaPage);
+        }
+        int offset = arenaPage.position();
+        arenaPage.putShort((short) bytes.length);
+        arenaPage.put(bytes);
+        return ((long) (arenaPages.size() - 1) << 32) | offset;
+    }
+
+    private static boolean arenaEquals(List<ByteBuffer> arenaPages, long address, byte[] bytes) {
+        ByteBuffer page = arenaPages.get((int) (address >>> 32));
+        int offset = (int) address;
+        if ((page.getShort(offset) & 0xFFFF) != bytes.length) {
+            return false;
+        }
+        offset += 2;
+        for (int i = 0; i < bytes.length; i++) {
+            if (page.get(offset + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 64-bit FNV-1a over the ID bytes, finished with the MurmurHash3 mixer so the low bits
+     * used for slot selection are well distributed.
+     */
+    static long fingerprint(byte[] bytes) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : bytes) {
+            hash ^= (b & 0xFF);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
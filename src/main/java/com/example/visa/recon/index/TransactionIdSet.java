@@ -0,0 +1,35 @@
+package com.example.visa.recon.index;
+
+/**
+ * Membership index of transaction IDs used to decide which records are missing on one side.
+ * Implementations are safe for concurrent use.
+ */
+public interface TransactionIdSet extends AutoCloseable {
+
+    /**
+     * Adds a transaction ID to the set.
+     * 
+     * @param transactionId ID to add, not null
+     * @return true if the ID was not present before
+     */
+    boolean add(String transactionId);
+
+    /**
+     * Checks whether a transaction ID is in the set. The answer is exact.
+     * 
+     * @param transactionId ID to look up, not null
+     * @return true if the ID has been added
+     */
+    boolean contains(String transactionId);
+
+    /**
+     * @return Number of distinct IDs in the set
+     */
+    long size();
+
+    /**
+     * Releases the memory held by the set. The set must not be used afterwards.
+     */
+    @Override
+    void close();
+}
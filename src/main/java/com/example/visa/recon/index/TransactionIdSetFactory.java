@@ -0,0 +1,41 @@
+package com.example.visa.recon.index;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Creates transaction ID sets of the type selected by {@code reconciliation.id-index.type}:
+ * {@code off-heap} (default) for large files, {@code heap} for a plain concurrent hash set.
+ */
+@Component
+public class TransactionIdSetFactory {
+    private static final Logger logger = LoggerFactory.getLogger(TransactionIdSetFactory.class);
+    private static final String TYPE_HEAP = "heap";
+
+    @Value("${reconciliation.id-index.type:off-heap}")
+    private String indexType;
+
+    @Value("${reconciliation.id-index.expected-size:1000000}")
+    private int expectedSize;
+
+    /**
+     * @return New empty set sized for {@code reconciliation.id-index.expected-size} IDs
+     */
+    public TransactionIdSet create() {
+        return create(expectedSize);
+    }
+
+    /**
+     * @param expectedSize Number of IDs the set is expected to hold; it grows beyond if needed
+     * @return New empty set
+     */
+    public TransactionIdSet create(int expectedSize) {
+        logger.debug("Creating {} transaction ID set for {} expected IDs", indexType, expectedSize);
+        if (TYPE_HEAP.equalsIgnoreCase(indexType)) {
+            return new HeapTransactionIdSet(expectedSize);
+        }
+        return new OffHeapTransactionIdSet(expectedSize);
+    }
+}
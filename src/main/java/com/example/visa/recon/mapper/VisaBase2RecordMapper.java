@@ -1,9 +1,13 @@
 package com.example.visa.recon.mapper;
 
+import java.util.List;
+import java.util.function.Function;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
+import com.example.visa.recon.csv.CsvFields;
 import com.example.visa.recon.model.dto.VisaBase2Record;
 import com.example.visa.recon.model.entity.VisaBase2RecordEntity;
 /*
@@ -12,6 +16,59 @@ import com.example.visa.recon.model.entity.VisaBase2RecordEntity;
 @Component
 public class VisaBase2RecordMapper {
     private static final Logger logger = LoggerFactory.getLogger(VisaBase2RecordMapper.class);
+
+    /** Number of columns in a Visa Base II CSV line. */
+    public static final int CSV_FIELD_COUNT = 42;
+
+    /** Column index of the transaction ID in a Visa Base II CSV line. */
+    public static final int CSV_TRANSACTION_ID_FIELD = 1;
+
+    /** Field getters of a record in CSV column order. */
+    public static final List<Function<VisaBase2Record, String>> CSV_COLUMNS = List.of(
+        VisaBase2Record::getTransactionType,
+        VisaBase2Record::getTransactionId,
+        VisaBase2Record::getCardNumber,
+        VisaBase2Record::getAmount,
+        VisaBase2Record::getStan,
+        VisaBase2Record::getCurrencyCode,
+        VisaBase2Record::getTransactionDate,
+        VisaBase2Record::getTransactionTime,
+        VisaBase2Record::getResponseCode,
+        VisaBase2Record::getAccountType,
+        VisaBase2Record::getAuthorizationCode,
+        VisaBase2Record::getMerchantId,
+        VisaBase2Record::getMerchantCategoryCode,
+        VisaBase2Record::getTerminalId,
+        VisaBase2Record::getCardExpiryDate,
+        VisaBase2Record::getCardholderName,
+        VisaBase2Record::getAccountHolderName,
+        VisaBase2Record::getTransactionFee,
+        VisaBase2Record::getAuthorizationIndicator,
+        VisaBase2Record::getAcquirerBin,
+        VisaBase2Record::getIssuerBin,
+        VisaBase2Record::getMerchantName,
+        VisaBase2Record::getTransactionCode,
+        VisaBase2Record::getReasonCode,
+        VisaBase2Record::getRrn,
+        VisaBase2Record::getOriginalTransactionId,
+        VisaBase2Record::getAcquirerReferenceNumber,
+        VisaBase2Record::getBatchNumber,
+        VisaBase2Record::getDateOfSettlement,
+        VisaBase2Record::getSettlementAmount,
+        VisaBase2Record::getIssuerResponseCode,
+        VisaBase2Record::getTransactionOrigin,
+        VisaBase2Record::getTransactionReference,
+        VisaBase2Record::getOriginalTransactionAmount,
+        VisaBase2Record::getRefundAmount,
+        VisaBase2Record::getAdjustmentAmount,
+        VisaBase2Record::getLoyaltyPointsEarned,
+        VisaBase2Record::getLoyaltyPointsRedeemed,
+        VisaBase2Record::getReversalIndicator,
+        VisaBase2Record::getAuthorizationDateTime,
+        VisaBase2Record::getOriginalAuthorizationCode,
+        VisaBase2Record::getNarrative
+    );
+
     public VisaBase2RecordEntity toEntity(VisaBase2Record dto) {
         if (dto == null) return null;
         //System.out.println("Stan: "+dto.getStan());
@@ -116,4 +173,62 @@ public class VisaBase2RecordMapper {
                 .narrative(entity.getNarrative())
                 .build();
     }
-} 
\ No newline at end of file
+
+    /**
+     * Builds a record from the fields of a parsed CSV line in file column order.
+     * 
+     * @param fields Fields of the current CSV line
+     * @return Mapped record
+     * @throws IllegalArgumentException if the line has fewer than {@link #CSV_FIELD_COUNT} fields
+     */
+    public VisaBase2Record fromCsv(CsvFields fields) {
+        if (fields.fieldCount() < CSV_FIELD_COUNT) {
+            throw new IllegalArgumentException("Invalid record format: expected " + CSV_FIELD_COUNT
+                + " fields but found " + fields.fieldCount());
+        }
+        return new VisaBase2Record(
+            fields.field(0),
+            fields.field(1),
+            fields.field(2),
+            fields.field(3),
+            fields.field(4),
+            fields.field(5),
+            fields.field(6),
+            fields.field(7),
+            fields.field(8),
+            fields.field(9),
+            fields.field(10),
+            fields.field(11),
+            fields.field(12),
+            fields.field(13),
+            fields.field(14),
+            fields.field(15),
+            fields.field(16),
+            fields.field(17),
+            fields.field(18),
+            fields.field(19),
+            fields.field(20),
+            fields.field(21),
+            fields.field(22),
+            fields.field(23),
+            fields.field(24),
+            fields.field(25),
+            fields.field(26),
+            fields.field(27),
+            fields.field(28),
+            fields.field(29),
+            fields.field(30),
+            fields.field(31),
+            fields.field(32),
+            fields.field(33),
+            fields.field(34),
+            fields.field(35),
+            fields.field(36),
+            fields.field(37),
+            fields.field(38),
+            fields.field(39),
+            fields.field(40),
+            fields.field(41)
+        );
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.visa.recon.matching;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Match quality and resolution time of fuzzy match components, grouped by component size.
+ * The size of a component is the larger of its source and target counts, and sizes are
+ * grouped into power-of-two classes (1, 2, 3-4, 5-8, ...). For components solved by optimal
+ * assignment the greedy pairing is scored as well, so the gain over greedy can be reported.
+ * Safe to update from several threads.
+ */
+public class AssignmentStats {
+    private static final int SIZE_CLASSES = 32;
+
+    private final LongAdder[] components = adders();
+    private final LongAdder[] optimalComponents = adders();
+    private final LongAdder[] pairs = adders();
+    private final LongAdder[] changedPairs = adders();
+    private final LongAdder[] nanos = adders();
+    private final DoubleAdder[] score = doubleAdders();
+    private final DoubleAdder[] greedyScore = doubleAdders();
+
+    /**
+     * Records one resolved component.
+     *
+     * @param size Larger of the component's source and target counts
+     * @param optimal Whether the component was solved by optimal assignment rather than greedily
+     * @param pairCount Number of pairs chosen
+     * @param totalScore Total score of the chosen pairs
+     * @param greedyTotalScore Total score the greedy pairing would have had
+     * @param changed Number of sources paired differently than greedy would have
+     * @param elapsedNanos Time spent resolving the component
+     */
+    public void record(int size, boolean optimal, int pairCount, double totalScore, double greedyTotalScore,
+                       int changed, long elapsedNanos) {
+        int sizeClass = sizeClass(size);
+        components[sizeClass].increment();
+        if (optimal) {
+            optimalComponents[sizeClass].increment();
+        }
+        pairs[sizeClass].add(pairCount);
+        changedPairs[sizeClass].add(changed);
+        nanos[sizeClass].add(elapsedNanos);
+        score[sizeClass].add(totalScore);
+        greedyScore[sizeClass].add(greedyTotalScore);
+    }
+
+    /**
+     * @return One line per non-empty size class, smallest first
+     */
+    public List<String> report() {
+        List<String> lines = new ArrayList<>();
+        for (int sizeClass = 0; sizeClass < SIZE_CLASSES; sizeClass++) {
+            long count = components[sizeClass].sum();
+            if (count == 0) {
+                continue;
+            }
+            double total = score[sizeClass].sum();
+            lines.add(String.format(
+                "size %s: %d components (%d optimal), %d pairs, score %.2f vs greedy %.2f (%+.2f), %d pairs changed, %.1f ms",
+                label(sizeClass), count, optimalComponents[sizeClass].sum(), pairs[sizeClass].sum(), total,
+                greedyScore[sizeClass].sum(), total - greedyScore[sizeClass].sum(), changedPairs[sizeClass].sum(),
+                nanos[sizeClass].sum() / 1e6));
+        }
+        return lines;
+    }
+
+    private static int sizeClass(int size) {
+        return size <= 1 ? 0 : Math.min(SIZE_CLASSES - 1, Integer.SIZE - Integer.numberOfLeadingZeros(size - 1));
+    }
+
+    private static String label(int sizeClass) {
+        if (sizeClass <= 1) {
+            return String.valueOf(sizeClass + 1);
+        }
+        return ((1 << (sizeClass - 1)) + 1) + "-" + (1 << sizeClass);
+    }
+
+    private static LongAdder[] adders() {
+        LongAdder[] adders = new LongAdder[SIZE_CLASSES];
+        for (int i = 0; i < adders.length; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    private static DoubleAdder[] doubleAdders() {
+        DoubleAdder[] adders = new DoubleAdder[SIZE_CLASSES];
+        for (int i = 0; i < adders.length; i++) {
+            adders[i] = new DoubleAdder();
+        }
+        return adders;
+    }
+}
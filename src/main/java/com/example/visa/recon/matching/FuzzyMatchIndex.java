@@ -0,0 +1,206 @@
+package com.example.visa.recon.matching;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.ToDoubleBiFunction;
+
+/**
+ * Index of fuzzy match candidates, bucketed by calendar day and logarithmic amount band.
+ * Inside a bucket candidates are sorted by epoch second, so a probe binary-searches the
+ * start of its time window and walks only the candidates inside it. A probe visits every
+ * day its window touches, so transactions either side of midnight still meet, and every
+ * amount band its tolerance touches.
+ *
+ * Bands are {@code ln(1 + tolerance)} wide, so the amounts within tolerance of a probe fall
+ * into a handful of neighbouring bands. Candidates are claimed once matched and skipped by
+ * later probes. {@link #forEachCandidate} may run concurrently; claiming is not thread-safe.
+ */
+public class FuzzyMatchIndex {
+    private static final long SECONDS_PER_DAY = 86_400L;
+    private static final double MIN_BAND_WIDTH = 1e-9;
+    private static final long NON_POSITIVE_BAND = Long.MIN_VALUE;
+
+    private final long windowSeconds;
+    private final double amountTolerance;
+    private final double bandWidth;
+    private final Map<Long, NavigableMap<Long, Bucket>> days = new HashMap<>();
+    private final boolean[] claimed;
+    private int bucketCount;
+
+    /**
+     * @param candidates Parsed candidates; their indexes must be unique and below {@code candidates.size()}
+     * @param timeToleranceMinutes Largest time difference, in whole minutes, a match may have
+     * @param amountTolerancePercent Largest amount difference, as a percentage of the probe amount
+     */
+    public FuzzyMatchIndex(List<ParsedTransaction> candidates, long timeToleranceMinutes,
+                           double amountTolerancePercent) {
+        // Differences are truncated to whole minutes, so up to 59 extra seconds still count
+        this.windowSeconds = timeToleranceMinutes * 60 + 59;
+        this.amountTolerance = amountTolerancePercent / 100;
+        this.bandWidth = Math.max(Math.log1p(Math.max(amountTolerance, 0)), MIN_BAND_WIDTH);
+        this.claimed = new boolean[candidates.size()];
+
+        Map<Long, Map<Long, List<ParsedTransaction>>> grouped = new HashMap<>();
+        for (ParsedTransaction candidate : candidates) {
+            grouped.computeIfAbsent(day(candidate.getEpochSecond()), d -> new HashMap<>())
+                .computeIfAbsent(band(candidate.getAmount()), b -> new ArrayList<>())
+                .add(candidate);
+        }
+        grouped.forEach((day, bands) -> {
+            NavigableMap<Long, Bucket> dayBuckets = new TreeMap<>();
+            bands.forEach((band, members) -> dayBuckets.put(band, new Bucket(members)));
+            bucketCount += dayBuckets.size();
+            days.put(day, dayBuckets);
+        });
+    }
+
+    /**
+     * Finds the unclaimed candidate scoring highest against a probe.
+     * Only candidates inside the probe's time window and amount bands are scored; ties go to
+     * the candidate with the lowest index. Probes with a non-positive amount have no amount
+     * bands and never match.
+     *
+     * @param probe Transaction to find a match for
+     * @param scorer Scores a probe against a candidate
+     * @param threshold Lowest score accepted as a match
+     * @return Best candidate, or null if none reaches the threshold
+     */
+    public ParsedTransaction findBest(ParsedTransaction probe,
+                                      ToDoubleBiFunction<ParsedTransaction, ParsedTransaction> scorer,
+                                      double threshold) {
+        BestCandidate best = new BestCandidate();
+        forEachCandidate(probe, candidate -> {
+            if (claimed[candidate.getIndex()]) {
+                return;
+            }
+            double score = scorer.applyAsDouble(probe, candidate);
+            if (score >= threshold && (best.candidate == null || score > best.score
+                    || (score == best.score && candidate.getIndex() < best.candidate.getIndex()))) {
+                best.candidate = candidate;
+                best.score = score;
+            }
+        });
+        return best.candidate;
+    }
+
+    /**
+     * Visits every candidate inside a probe's time window and amount bands, claimed or not.
+     * Reads only, so probes may run concurrently as long as no candidate is being claimed.
+     *
+     * @param probe Transaction to find candidates for
+     * @param action Called once per candidate
+     */
+    public void forEachCandidate(ParsedTransaction probe, Consumer<ParsedTransaction> action) {
+        double amount = probe.getAmount();
+        if (!(amount > 0)) {
+            return;
+        }
+        double low = amount * (1 - amountTolerance);
+        // Widen by one band each side so rounding in the logarithm never drops an edge amount
+        long lowBand = low > 0 ? band(low) - 1 : NON_POSITIVE_BAND;
+        long highBand = band(amount * (1 + amountTolerance)) + 1;
+        long from = probe.getEpochSecond() - windowSeconds;
+        long to = probe.getEpochSecond() + windowSeconds;
+
+        for (long day = day(from), lastDay = day(to); day <= lastDay; day++) {
+            NavigableMap<Long, Bucket> dayBuckets = days.get(day);
+            if (dayBuckets == null) {
+                continue;
+            }
+            for (Bucket bucket : dayBuckets.subMap(lowBand, true, highBand, true).values()) {
+                for (int i = bucket.firstAtOrAfter(from); i < bucket.times.length && bucket.times[i] <= to; i++) {
+                    action.accept(bucket.members[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Orders transactions by the (day, amount band) bucket they fall into, then by index, so
+     * work split along this order keeps probes of the same buckets together.
+     *
+     * @return Comparator by bucket
+     */
+    public Comparator<ParsedTransaction> bucketOrder() {
+        return Comparator.comparingLong((ParsedTransaction transaction) -> day(transaction.getEpochSecond()))
+            .thenComparingLong(transaction -> band(transaction.getAmount()))
+            .thenComparingInt(ParsedTransaction::getIndex);
+    }
+
+    /**
+     * Marks a candidate as matched so later probes skip it.
+     *
+     * @param candidate Candidate to claim
+     */
+    public void claim(ParsedTransaction candidate) {
+        claimed[candidate.getIndex()] = true;
+    }
+
+    /**
+     * @return Number of non-empty (day, amount band) buckets
+     */
+    public int bucketCount() {
+        return bucketCount;
+    }
+
+    private static long day(long epochSecond) {
+        return Math.floorDiv(epochSecond, SECONDS_PER_DAY);
+    }
+
+    private long band(double amount) {
+        if (!(amount > 0)) {
+            return NON_POSITIVE_BAND;
+        }
+        return (long) Math.floor(Math.log(amount) / bandWidth);
+    }
+
+    /**
+     * Best candidate seen so far by {@link #findBest}.
+     */
+    private static final class BestCandidate {
+        private ParsedTransaction candidate;
+        private double score;
+    }
+
+    /**
+     * Candidates of one (day, amount band) bucket in ascending time order.
+     */
+    private static final class Bucket {
+        private final long[] times;
+        private final ParsedTransaction[] members;
+
+        Bucket(List<ParsedTransaction> candidates) {
+            members = candidates.toArray(new ParsedTransaction[0]);
+            Arrays.sort(members, Comparator.comparingLong(ParsedTransaction::getEpochSecond)
+                .thenComparingInt(ParsedTransaction::getIndex));
+            times = new long[members.length];
+            for (int i = 0; i < members.length; i++) {
+                times[i] = members[i].getEpochSecond();
+            }
+        }
+
+        /**
+         * @return Index of the first member at or after the given second, or the length if none
+         */
+        int firstAtOrAfter(long epochSecond) {
+            int low = 0;
+            int high = times.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (times[middle] < epochSecond) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+}
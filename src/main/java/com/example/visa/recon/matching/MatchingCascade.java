@@ -0,0 +1,143 @@
+package com.example.visa.recon.matching;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.example.visa.recon.model.dto.VisaBase2Record;
+
+/**
+ * Pairs transactions on a list of keys tried in turn, such as transaction ID, then RRN, then
+ * ARN. Each stage hashes the targets left over by the previous stages on its key and probes it
+ * with the leftover sources, so every stage is linear in what is left and the whole cascade is
+ * linear in the input. Each target is matched at most once; sources sharing a key take the
+ * targets with that key in list order.
+ */
+public class MatchingCascade {
+    private final List<MatchingStage> stages;
+
+    /**
+     * @param stages Keys to match on, in the order they are tried
+     */
+    public MatchingCascade(List<MatchingStage> stages) {
+        this.stages = List.copyOf(stages);
+    }
+
+    /**
+     * Runs every stage over the leftovers of the one before.
+     *
+     * @param sources Transactions to find matches for
+     * @param targets Transactions to match against
+     * @return Pairs found by each stage and the transactions no stage matched
+     */
+    public Result match(List<VisaBase2Record> sources, List<VisaBase2Record> targets) {
+        List<VisaBase2Record> remainingSources = new ArrayList<>(sources);
+        List<VisaBase2Record> remainingTargets = new ArrayList<>(targets);
+        List<Match> matches = new ArrayList<>();
+        Map<MatchingStage, Integer> matchedByStage = new LinkedHashMap<>();
+
+        for (MatchingStage stage : stages) {
+            if (remainingSources.isEmpty() || remainingTargets.isEmpty()) {
+                break;
+            }
+            Map<String, ArrayDeque<VisaBase2Record>> index = new HashMap<>(Math.max(16, remainingTargets.size() * 4 / 3 + 1));
+            for (VisaBase2Record target : remainingTargets) {
+                String key = stage.keyOf(target);
+                if (key != null) {
+                    index.computeIfAbsent(key, k -> new ArrayDeque<>(1)).add(target);
+                }
+            }
+
+            List<VisaBase2Record> unmatchedSources = new ArrayList<>();
+            Set<VisaBase2Record> matchedTargets = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (VisaBase2Record source : remainingSources) {
+                String key = stage.keyOf(source);
+                ArrayDeque<VisaBase2Record> candidates = key == null ? null : index.get(key);
+                VisaBase2Record target = candidates == null ? null : candidates.poll();
+                if (target == null) {
+                    unmatchedSources.add(source);
+                } else {
+                    matches.add(new Match(source, target, stage));
+                    matchedTargets.add(target);
+                }
+            }
+            matchedByStage.put(stage, remainingSources.size() - unmatchedSources.size());
+            remainingSources = unmatchedSources;
+            if (!matchedTargets.isEmpty()) {
+                remainingTargets.removeIf(matchedTargets::contains);
+            }
+        }
+        return new Result(matches, remainingSources, remainingTargets, matchedByStage);
+    }
+
+    /**
+     * A source and target paired on the key of a stage.
+     */
+    public static final class Match {
+        private final VisaBase2Record source;
+        private final VisaBase2Record target;
+        private final MatchingStage stage;
+
+        Match(VisaBase2Record source, VisaBase2Record target, MatchingStage stage) {
+            this.source = source;
+            this.target = target;
+            this.stage = stage;
+        }
+
+        public VisaBase2Record getSource() {
+            return source;
+        }
+
+        public VisaBase2Record getTarget() {
+            return target;
+        }
+
+        public MatchingStage getStage() {
+            return stage;
+        }
+    }
+
+    /**
+     * Outcome of a cascade run. Matches are ordered by stage and then by source; unmatched
+     * transactions keep their input order.
+     */
+    public static final class Result {
+        private final List<Match> matches;
+        private final List<VisaBase2Record> unmatchedSources;
+        private final List<VisaBase2Record> unmatchedTargets;
+        private final Map<MatchingStage, Integer> matchedByStage;
+
+        Result(List<Match> matches, List<VisaBase2Record> unmatchedSources, List<VisaBase2Record> unmatchedTargets,
+               Map<MatchingStage, Integer> matchedByStage) {
+            this.matches = matches;
+            this.unmatchedSources = unmatchedSources;
+            this.unmatchedTargets = unmatchedTargets;
+            this.matchedByStage = matchedByStage;
+        }
+
+        public List<Match> getMatches() {
+            return matches;
+        }
+
+        public List<VisaBase2Record> getUnmatchedSources() {
+            return unmatchedSources;
+        }
+
+        public List<VisaBase2Record> getUnmatchedTargets() {
+            return unmatchedTargets;
+        }
+
+        /**
+         * @return Number of pairs each stage that ran found, in stage order
+         */
+        public Map<MatchingStage, Integer> getMatchedByStage() {
+            return matchedByStage;
+        }
+    }
+}
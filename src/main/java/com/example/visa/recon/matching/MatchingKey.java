@@ -0,0 +1,161 @@
+package com.example.visa.recon.matching;
+
+import com.example.visa.recon.model.dto.VisaBase2Record;
+
+/**
+ * Immutable exact-match key of a transaction: a 128-bit hash of the transaction ID, the
+ * timestamp in epoch seconds and the amount in minor units. All parts are primitives, so keys
+ * compare and hash without touching Strings, and {@link MatchingKeyMap} can store them inline.
+ *
+ * The ID hash is two 64-bit lanes over the ID characters, FNV-1a and an FNV-style lane with a
+ * different seed and multiplier, each finished with the MurmurHash3 mixer. It is neither keyed
+ * nor cryptographic, so two different IDs can share a key; callers that pair records on equal
+ * keys must confirm the transaction IDs of the records before treating them as one transaction.
+ */
+public final class MatchingKey {
+    private final long idHigh;
+    private final long idLow;
+    private final long epochSecond;
+    private final long amountMinorUnits;
+
+    public MatchingKey(long idHigh, long idLow, long epochSecond, long amountMinorUnits) {
+        this.idHigh = idHigh;
+        this.idLow = idLow;
+        this.epochSecond = epochSecond;
+        this.amountMinorUnits = amountMinorUnits;
+    }
+
+    /**
+     * Builds the key of a record, parsing its date, time and amount.
+     *
+     * @param record Record to build the key for
+     * @return Matching key
+     * @throws RuntimeException if the date, time or amount cannot be parsed
+     */
+    public static MatchingKey of(VisaBase2Record record) {
+        String transactionId = record.getTransactionId();
+        long high = 0xcbf29ce484222325L;
+        long low = 0x84222325cbf29ce4L;
+        if (transactionId != null) {
+            for (int i = 0; i < transactionId.length(); i++) {
+                char c = transactionId.charAt(i);
+                high ^= c;
+                high *= 0x100000001b3L;
+                low ^= c;
+                low *= 0x9E3779B97F4A7C15L;
+            }
+        }
+        long epochSecond = ParsedTransaction.epochSecond(record.getTransactionDate(), record.getTransactionTime());
+        return new MatchingKey(mix(high), mix(low ^ transactionIdLength(transactionId)), epochSecond,
+            toMinorUnits(record.getAmount()));
+    }
+
+    /**
+     * Converts a decimal amount to minor units (hundredths).
+     * Plain decimals with at most two fraction digits are converted digit by digit; anything
+     * else, such as more fraction digits or exponent notation, is rounded from
+     * {@link Double#parseDouble(String)} the way keys were always built.
+     *
+     * @param amount Amount as written in the record
+     * @return Amount in minor units
+     * @throws NumberFormatException if the amount is not a number
+     */
+    public static long toMinorUnits(String amount) {
+        String value = amount.trim();
+        int length = value.length();
+        int i = 0;
+        boolean negative = false;
+        if (i < length && (value.charAt(i) == '-' || value.charAt(i) == '+')) {
+            negative = value.charAt(i) == '-';
+            i++;
+        }
+        long units = 0;
+        int integerDigits = 0;
+        while (i < length && isDigit(value.charAt(i)) && integerDigits < 16) {
+            units = units * 10 + (value.charAt(i++) - '0');
+            integerDigits++;
+        }
+        int fractionDigits = 0;
+        if (i < length && value.charAt(i) == '.') {
+            i++;
+            while (i < length && isDigit(value.charAt(i)) && fractionDigits < 2) {
+                units = units * 10 + (value.charAt(i++) - '0');
+                fractionDigits++;
+            }
+        }
+        if (i != length || integerDigits + fractionDigits == 0) {
+            return Math.round(Double.parseDouble(value) * 100);
+        }
+        for (; fractionDigits < 2; fractionDigits++) {
+            units *= 10;
+        }
+        return negative ? -units : units;
+    }
+
+    public long getEpochSecond() {
+        return epochSecond;
+    }
+
+    public long getAmountMinorUnits() {
+        return amountMinorUnits;
+    }
+
+    long idHigh() {
+        return idHigh;
+    }
+
+    long idLow() {
+        return idLow;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof MatchingKey)) {
+            return false;
+        }
+        MatchingKey key = (MatchingKey) other;
+        return idHigh == key.idHigh && idLow == key.idLow
+            && epochSecond == key.epochSecond && amountMinorUnits == key.amountMinorUnits;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) hash(idHigh, idLow, epochSecond, amountMinorUnits);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%016x%016x_%d_%d", idHigh, idLow, epochSecond, amountMinorUnits);
+    }
+
+    /**
+     * Spreads the four key parts into one well-mixed 64-bit hash.
+     */
+    static long hash(long idHigh, long idLow, long epochSecond, long amountMinorUnits) {
+        long hash = idHigh;
+        hash = hash * 31 + idLow;
+        hash = hash * 31 + epochSecond;
+        hash = hash * 31 + amountMinorUnits;
+        return mix(hash);
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static long transactionIdLength(String transactionId) {
+        return transactionId == null ? -1 : transactionId.length();
+    }
+
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.visa.recon.matching;
+
+/**
+ * Open-addressing hash map from {@link MatchingKey} to values.
+ * The four primitive parts of each key are stored inline in one long array, so lookups
+ * compare longs in place and no key objects or boxed entries are kept. Collisions are
+ * resolved by linear probing and removal shifts later entries back, so no tombstones build
+ * up. Instances are not thread-safe.
+ *
+ * @param <V> Value type
+ */
+public class MatchingKeyMap<V> {
+    private static final int KEY_LONGS = 4;
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private Object[] values;
+    private boolean[] used;
+    private int mask;
+    private int size;
+
+    /**
+     * @param expectedSize Number of entries expected, used to size the table up front
+     */
+    public MatchingKeyMap(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    /**
+     * Associates a value with a key, replacing any previous value.
+     *
+     * @param key Key, not null
+     * @param value Value, not null
+     * @return Previous value of the key, or null if there was none
+     */
+    @SuppressWarnings("unchecked")
+    public V put(MatchingKey key, V value) {
+        int slot = find(key);
+        if (used[slot]) {
+            V previous = (V) values[slot];
+            values[slot] = value;
+            return previous;
+        }
+        if ((size + 1) * 2 > values.length) {
+            resize(values.length * 2);
+            slot = find(key);
+        }
+        store(slot, key.idHigh(), key.idLow(), key.getEpochSecond(), key.getAmountMinorUnits(), value);
+        size++;
+        return null;
+    }
+
+    /**
+     * @param key Key to look up
+     * @return Value of the key, or null if absent
+     */
+    @SuppressWarnings("unchecked")
+    public V get(MatchingKey key) {
+        int slot = find(key);
+        return used[slot] ? (V) values[slot] : null;
+    }
+
+    /**
+     * Removes a key.
+     *
+     * @param key Key to remove
+     * @return Value the key had, or null if absent
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(MatchingKey key) {
+        int slot = find(key);
+        if (!used[slot]) {
+            return null;
+        }
+        V removed = (V) values[slot];
+        // Shift back every following entry of the probe run that would otherwise become unreachable
+        int hole = slot;
+        int next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+            if (!used[next]) {
+                break;
+            }
+            int home = home(next);
+            boolean reachable = hole <= next ? hole < home && home <= next : hole < home || home <= next;
+            if (!reachable) {
+                System.arraycopy(keys, next * KEY_LONGS, keys, hole * KEY_LONGS, KEY_LONGS);
+                values[hole] = values[next];
+                hole = next;
+            }
+        }
+        used[hole] = false;
+        values[hole] = null;
+        size--;
+        return removed;
+    }
+
+    /**
+     * @return Number of entries
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return Slot holding the key, or the empty slot where it would be inserted
+     */
+    private int find(MatchingKey key) {
+        long idHigh = key.idHigh();
+        long idLow = key.idLow();
+        long epochSecond = key.getEpochSecond();
+        long amountMinorUnits = key.getAmountMinorUnits();
+        int slot = (int) MatchingKey.hash(idHigh, idLow, epochSecond, amountMinorUnits) & mask;
+        while (used[slot]) {
+            int base = slot * KEY_LONGS;
+            if (keys[base] == idHigh && keys[base + 1] == idLow
+                    && keys[base + 2] == epochSecond && keys[base + 3] == amountMinorUnits) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private int home(int slot) {
+        int base = slot * KEY_LONGS;
+        return (int) MatchingKey.hash(keys[base], keys[base + 1], keys[base + 2], keys[base + 3]) & mask;
+    }
+
+    private void store(int slot, long idHigh, long idLow, long epochSecond, long amountMinorUnits, Object value) {
+        int base = slot * KEY_LONGS;
+        keys[base] = idHigh;
+        keys[base + 1] = idLow;
+        keys[base + 2] = epochSecond;
+        keys[base + 3] = amountMinorUnits;
+        values[slot] = value;
+        used[slot] = true;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        boolean[] oldUsed = used;
+        allocate(capacity);
+        for (int i = 0; i < oldUsed.length; i++) {
+            if (oldUsed[i]) {
+                int base = i * KEY_LONGS;
+                int slot = (int) MatchingKey.hash(oldKeys[base], oldKeys[base + 1], oldKeys[base + 2],
+                    oldKeys[base + 3]) & mask;
+                while (used[slot]) {
+                    slot = (slot + 1) & mask;
+                }
+                System.arraycopy(oldKeys, base, keys, slot * KEY_LONGS, KEY_LONGS);
+                values[slot] = oldValues[i];
+                used[slot] = true;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity * KEY_LONGS];
+        values = new Object[capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Smallest power of two keeping the table at most half full.
+     */
+    private static int capacityFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 2L && capacity < (1 << 30)) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.visa.recon.matching;
+
+import java.util.List;
+import java.util.function.Function;
+
+import com.example.visa.recon.model.dto.VisaBase2Record;
+import com.example.visa.recon.model.entity.VisaBase2RecordEntity;
+
+/**
+ * Keys a matching cascade can pair transactions on, from the most to the least specific.
+ * A record without a value for every part of a key has no key and is left to later stages.
+ */
+public enum MatchingStage {
+    TRANSACTION_ID("transactionId",
+        List.of("transactionId"),
+        List.of(VisaBase2Record::getTransactionId),
+        List.of(VisaBase2RecordEntity::getTransactionId)),
+    RRN("rrn",
+        List.of("rrn"),
+        List.of(VisaBase2Record::getRrn),
+        List.of(VisaBase2RecordEntity::getRrn)),
+    ARN("acquirerReferenceNumber",
+        List.of("acquirerReferenceNumber"),
+        List.of(VisaBase2Record::getAcquirerReferenceNumber),
+        List.of(VisaBase2RecordEntity::getAcquirerReferenceNumber)),
+    STAN_TERMINAL_DATE("stanTerminalDate",
+        List.of("Stan", "terminalId", "transactionDate"),
+        List.of(VisaBase2Record::getStan, VisaBase2Record::getTerminalId, VisaBase2Record::getTransactionDate),
+        List.of(VisaBase2RecordEntity::getStan, VisaBase2RecordEntity::getTerminalId,
+            VisaBase2RecordEntity::getTransactionDate));
+
+    private static final char SEPARATOR = '\u001f';
+
+    private final String configName;
+    private final List<String> attributes;
+    private final List<Function<VisaBase2Record, String>> recordParts;
+    private final List<Function<VisaBase2RecordEntity, String>> entityParts;
+
+    MatchingStage(String configName, List<String> attributes, List<Function<VisaBase2Record, String>> recordParts,
+                  List<Function<VisaBase2RecordEntity, String>> entityParts) {
+        this.configName = configName;
+        this.attributes = attributes;
+        this.recordParts = recordParts;
+        this.entityParts = entityParts;
+    }
+
+    /**
+     * @return Entity attribute names making up the key, as used in JPQL
+     */
+    public List<String> getAttributes() {
+        return attributes;
+    }
+
+    /**
+     * @return Key of a record, or null if any part is blank
+     */
+    public String keyOf(VisaBase2Record record) {
+        String[] parts = new String[recordParts.size()];
+        for (int i = 0; i < parts.length; i++) {
+            parts[i] = recordParts.get(i).apply(record);
+        }
+        return key(parts);
+    }
+
+    /**
+     * @return Key of an entity, or null if any part is blank
+     */
+    public String keyOf(VisaBase2RecordEntity entity) {
+        String[] parts = new String[entityParts.size()];
+        for (int i = 0; i < parts.length; i++) {
+            parts[i] = entityParts.get(i).apply(entity);
+        }
+        return key(parts);
+    }
+
+    /**
+     * Joins trimmed key parts with a unit separator, which does not occur in the fields keyed on.
+     *
+     * @param parts Values of the key attributes, in attribute order
+     * @return Key, or null if any part is blank
+     */
+    public String key(Object... parts) {
+        StringBuilder key = new StringBuilder();
+        for (int i = 0; i < parts.length; i++) {
+            if (parts[i] == null || parts[i].toString().isBlank()) {
+                return null;
+            }
+            if (i > 0) {
+                key.append(SEPARATOR);
+            }
+            key.append(parts[i].toString().trim());
+        }
+        return key.toString();
+    }
+
+    /**
+     * Splits a key built by this stage back into its parts.
+     */
+    public String[] parts(String key) {
+        return key.split(String.valueOf(SEPARATOR), -1);
+    }
+
+    /**
+     * Resolves a configured name, accepting either the configuration name or the constant name.
+     *
+     * @throws IllegalArgumentException if the name matches no stage
+     */
+    public static MatchingStage fromName(String name) {
+        String trimmed = name.trim();
+        for (MatchingStage stage : values()) {
+            if (stage.configName.equalsIgnoreCase(trimmed) || stage.name().equalsIgnoreCase(trimmed)) {
+                return stage;
+            }
+        }
+        throw new IllegalArgumentException("Unknown matching stage: " + name);
+    }
+}
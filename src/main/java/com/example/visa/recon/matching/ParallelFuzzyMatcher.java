@@ -0,0 +1,480 @@
+package com.example.visa.recon.matching;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.ToDoubleBiFunction;
+
+/**
+ * Fuzzy matcher that scores candidates on a fork-join pool and resolves conflicts per
+ * connected component of candidates, so the pairs never depend on the pool size.
+ *
+ * Work runs in two parallel phases. First the sources, split into tasks along the index's
+ * bucket order, score every candidate inside their window and keep those reaching the
+ * threshold, ranked by score and then target index. The sources and targets linked by these
+ * candidates then fall into connected components, which share no targets and are resolved
+ * independently in parallel.
+ *
+ * A component no larger than the assignment size is solved for the best total score with the
+ * Hungarian algorithm, so repeated near-identical transactions pair up as well as they can.
+ * Larger components, and all of them when the assignment size is 0, are resolved greedily:
+ * each source, in list order, takes its best unclaimed target, which is exactly what the
+ * sequential greedy matcher returns. Quality and time per component size are collected in
+ * {@link #getStats()}.
+ */
+public class ParallelFuzzyMatcher {
+    private static final int SOURCES_PER_TASK = 512;
+    private static final int COMPONENTS_PER_TASK = 256;
+    private static final int[] NO_TARGETS = new int[0];
+    private static final double[] NO_SCORES = new double[0];
+
+    private final ForkJoinPool pool;
+    private final int assignmentMaxSize;
+    private final AssignmentStats stats = new AssignmentStats();
+
+    /**
+     * Creates a greedy matcher.
+     *
+     * @param pool Pool to run the scoring and resolution tasks on, or null for the calling thread
+     */
+    public ParallelFuzzyMatcher(ForkJoinPool pool) {
+        this(pool, 0);
+    }
+
+    /**
+     * @param pool Pool to run the scoring and resolution tasks on, or null for the calling thread
+     * @param assignmentMaxSize Largest component, as the larger of its source and target counts,
+     *                          solved by optimal assignment; 0 resolves every component greedily
+     */
+    public ParallelFuzzyMatcher(ForkJoinPool pool, int assignmentMaxSize) {
+        this.pool = pool;
+        this.assignmentMaxSize = assignmentMaxSize;
+    }
+
+    /**
+     * Matches sources against the candidates of an index. The index must not be claimed from
+     * while this runs, and candidates it already holds as claimed are still considered.
+     *
+     * @param sources Parsed sources; their indexes must be their positions in the list
+     * @param targetCount Number of candidates in the index
+     * @param index Index of the parsed targets
+     * @param scorer Scores a source against a target; must be thread-safe
+     * @param threshold Lowest score accepted as a match
+     * @return Target index matched to each source index, or -1 for unmatched sources
+     */
+    public int[] match(List<ParsedTransaction> sources, int targetCount, FuzzyMatchIndex index,
+                       ToDoubleBiFunction<ParsedTransaction, ParsedTransaction> scorer, double threshold) {
+        int sourceCount = sources.size();
+        ParsedTransaction[] order = sources.toArray(new ParsedTransaction[0]);
+        Arrays.sort(order, index.bucketOrder());
+
+        int[][] candidates = new int[sourceCount][];
+        double[][] scores = new double[sourceCount][];
+        CandidateTask scoring = new CandidateTask(order, 0, sourceCount, index, scorer, threshold, candidates, scores);
+        if (pool != null) {
+            pool.invoke(scoring);
+        } else {
+            scoring.scoreRange();
+        }
+
+        int[][] components = components(candidates, sourceCount, targetCount);
+
+        int[] matches = new int[sourceCount];
+        Arrays.fill(matches, -1);
+        ResolveTask resolution = new ResolveTask(components, 0, components.length, candidates, scores, matches);
+        if (pool != null) {
+            pool.invoke(resolution);
+        } else {
+            resolution.resolveRange();
+        }
+        return matches;
+    }
+
+    /**
+     * @return Quality and time of the components resolved so far, by component size
+     */
+    public AssignmentStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Groups the sources that have candidates into connected components of the bipartite
+     * source-target graph, using union-find over sources followed by targets.
+     *
+     * @return Source indexes of each component in ascending order, components ordered by first source
+     */
+    private static int[][] components(int[][] candidates, int sourceCount, int targetCount) {
+        int[] parent = new int[sourceCount + targetCount];
+        for (int i = 0; i < parent.length; i++) {
+            parent[i] = i;
+        }
+        for (int source = 0; source < sourceCount; source++) {
+            for (int target : candidates[source]) {
+                union(parent, source, sourceCount + target);
+            }
+        }
+
+        int[] componentOfRoot = new int[parent.length];
+        Arrays.fill(componentOfRoot, -1);
+        List<int[]> members = new ArrayList<>();
+        int[] sizes = new int[sourceCount];
+        for (int source = 0; source < sourceCount; source++) {
+            if (candidates[source].length == 0) {
+                continue;
+            }
+            int root = find(parent, source);
+            if (componentOfRoot[root] < 0) {
+                componentOfRoot[root] = members.size();
+                members.add(new int[4]);
+            }
+            int component = componentOfRoot[root];
+            int[] sources = members.get(component);
+            if (sizes[component] == sources.length) {
+                sources = Arrays.copyOf(sources, sources.length * 2);
+                members.set(component, sources);
+            }
+            sources[sizes[component]++] = source;
+        }
+
+        int[][] components = new int[members.size()][];
+        for (int i = 0; i < components.length; i++) {
+            components[i] = Arrays.copyOf(members.get(i), sizes[i]);
+        }
+        return components;
+    }
+
+    private static int find(int[] parent, int node) {
+        while (parent[node] != node) {
+            parent[node] = parent[parent[node]];
+            node = parent[node];
+        }
+        return node;
+    }
+
+    private static void union(int[] parent, int a, int b) {
+        int rootA = find(parent, a);
+        int rootB = find(parent, b);
+        if (rootA != rootB) {
+            // Keep the smaller root so the result does not depend on the order of unions
+            parent[Math.max(rootA, rootB)] = Math.min(rootA, rootB);
+        }
+    }
+
+    /**
+     * Pairs the sources of one component with its targets and records the outcome.
+     *
+     * @param sources Source indexes of the component in ascending order
+     */
+    private void resolve(int[] sources, int[][] candidates, double[][] scores, int[] matches) {
+        long startTime = System.nanoTime();
+        int[] targets = distinctTargets(sources, candidates);
+        int size = Math.max(sources.length, targets.length);
+
+        // Chosen target column per source row, -1 when unmatched
+        int[] greedy = greedy(sources, targets, candidates);
+        double greedyScore = totalScore(sources, targets, greedy, candidates, scores);
+        int[] chosen = greedy;
+        double chosenScore = greedyScore;
+        boolean optimal = size > 1 && size <= assignmentMaxSize;
+        if (optimal) {
+            chosen = hungarian(sources, targets, candidates, scores, size);
+            chosenScore = totalScore(sources, targets, chosen, candidates, scores);
+        }
+
+        int pairs = 0;
+        int changed = 0;
+        for (int row = 0; row < sources.length; row++) {
+            if (chosen[row] >= 0) {
+                matches[sources[row]] = targets[chosen[row]];
+                pairs++;
+            }
+            if (chosen[row] != greedy[row]) {
+                changed++;
+            }
+        }
+        stats.record(size, optimal, pairs, chosenScore, greedyScore, changed, System.nanoTime() - startTime);
+    }
+
+    /**
+     * @return Distinct target indexes of a component in ascending order
+     */
+    private static int[] distinctTargets(int[] sources, int[][] candidates) {
+        int count = 0;
+        for (int source : sources) {
+            count += candidates[source].length;
+        }
+        int[] targets = new int[count];
+        int position = 0;
+        for (int source : sources) {
+            System.arraycopy(candidates[source], 0, targets, position, candidates[source].length);
+            position += candidates[source].length;
+        }
+        Arrays.sort(targets);
+        int distinct = 0;
+        for (int i = 0; i < targets.length; i++) {
+            if (i == 0 || targets[i] != targets[i - 1]) {
+                targets[distinct++] = targets[i];
+            }
+        }
+        return Arrays.copyOf(targets, distinct);
+    }
+
+    /**
+     * Each source, in ascending order, takes its best ranked target not yet taken.
+     */
+    private static int[] greedy(int[] sources, int[] targets, int[][] candidates) {
+        int[] chosen = new int[sources.length];
+        boolean[] taken = new boolean[targets.length];
+        for (int row = 0; row < sources.length; row++) {
+            chosen[row] = -1;
+            for (int target : candidates[sources[row]]) {
+                int column = Arrays.binarySearch(targets, target);
+                if (!taken[column]) {
+                    taken[column] = true;
+                    chosen[row] = column;
+                    break;
+                }
+            }
+        }
+        return chosen;
+    }
+
+    /**
+     * Finds the pairing with the highest total score by the Hungarian algorithm on a square
+     * cost matrix of negated scores, in O(size^3). Pairs without a candidate cost 0, so taking
+     * one is the same as leaving both sides unmatched.
+     */
+    private static int[] hungarian(int[] sources, int[] targets, int[][] candidates, double[][] scores, int size) {
+        double[][] cost = new double[size + 1][size + 1];
+        for (int row = 0; row < sources.length; row++) {
+            int[] rowTargets = candidates[sources[row]];
+            double[] rowScores = scores[sources[row]];
+            for (int k = 0; k < rowTargets.length; k++) {
+                cost[row + 1][Arrays.binarySearch(targets, rowTargets[k]) + 1] = -rowScores[k];
+            }
+        }
+
+        // Potentials and augmenting paths over 1-based rows and columns; column 0 is the path root
+        double[] rowPotential = new double[size + 1];
+        double[] columnPotential = new double[size + 1];
+        int[] rowOfColumn = new int[size + 1];
+        int[] previousColumn = new int[size + 1];
+        double[] minSlack = new double[size + 1];
+        boolean[] visited = new boolean[size + 1];
+        for (int row = 1; row <= size; row++) {
+            rowOfColumn[0] = row;
+            int column = 0;
+            Arrays.fill(minSlack, Double.POSITIVE_INFINITY);
+            Arrays.fill(visited, false);
+            do {
+                visited[column] = true;
+                int currentRow = rowOfColumn[column];
+                double delta = Double.POSITIVE_INFINITY;
+                int nextColumn = 0;
+                for (int j = 1; j <= size; j++) {
+                    if (!visited[j]) {
+                        double slack = cost[currentRow][j] - rowPotential[currentRow] - columnPotential[j];
+                        if (slack < minSlack[j]) {
+                            minSlack[j] = slack;
+                            previousColumn[j] = column;
+                        }
+                        if (minSlack[j] < delta) {
+                            delta = minSlack[j];
+                            nextColumn = j;
+                        }
+                    }
+                }
+                for (int j = 0; j <= size; j++) {
+                    if (visited[j]) {
+                        rowPotential[rowOfColumn[j]] += delta;
+                        columnPotential[j] -= delta;
+                    } else {
+                        minSlack[j] -= delta;
+                    }
+                }
+                column = nextColumn;
+            } while (rowOfColumn[column] != 0);
+            do {
+                int previous = previousColumn[column];
+                rowOfColumn[column] = rowOfColumn[previous];
+                column = previous;
+            } while (column != 0);
+        }
+
+        int[] chosen = new int[sources.length];
+        Arrays.fill(chosen, -1);
+        for (int column = 1; column <= size; column++) {
+            int row = rowOfColumn[column];
+            if (row <= sources.length && column <= targets.length && cost[row][column] < 0) {
+                chosen[row - 1] = column - 1;
+            }
+        }
+        return chosen;
+    }
+
+    private static double totalScore(int[] sources, int[] targets, int[] chosen, int[][] candidates,
+                                     double[][] scores) {
+        double total = 0.0;
+        for (int row = 0; row < sources.length; row++) {
+            if (chosen[row] >= 0) {
+                int[] rowTargets = candidates[sources[row]];
+                int target = targets[chosen[row]];
+                for (int k = 0; k < rowTargets.length; k++) {
+                    if (rowTargets[k] == target) {
+                        total += scores[sources[row]][k];
+                        break;
+                    }
+                }
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Scores the candidates of a run of sources and stores, per source index, the targets
+     * reaching the threshold ranked by descending score and then ascending target index,
+     * together with their scores.
+     */
+    private static final class CandidateTask extends RecursiveAction {
+        private final ParsedTransaction[] order;
+        private final int from;
+        private final int to;
+        private final FuzzyMatchIndex index;
+        private final ToDoubleBiFunction<ParsedTransaction, ParsedTransaction> scorer;
+        private final double threshold;
+        private final int[][] candidates;
+        private final double[][] scores;
+
+        CandidateTask(ParsedTransaction[] order, int from, int to, FuzzyMatchIndex index,
+                      ToDoubleBiFunction<ParsedTransaction, ParsedTransaction> scorer, double threshold,
+                      int[][] candidates, double[][] scores) {
+            this.order = order;
+            this.from = from;
+            this.to = to;
+            this.index = index;
+            this.scorer = scorer;
+            this.threshold = threshold;
+            this.candidates = candidates;
+            this.scores = scores;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > SOURCES_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new CandidateTask(order, from, middle, index, scorer, threshold, candidates, scores),
+                    new CandidateTask(order, middle, to, index, scorer, threshold, candidates, scores));
+                return;
+            }
+            scoreRange();
+        }
+
+        void scoreRange() {
+            CandidateBuffer buffer = new CandidateBuffer();
+            for (int i = from; i < to; i++) {
+                ParsedTransaction source = order[i];
+                buffer.clear();
+                index.forEachCandidate(source, target -> {
+                    double score = scorer.applyAsDouble(source, target);
+                    if (score >= threshold) {
+                        buffer.add(target.getIndex(), score);
+                    }
+                });
+                buffer.rank();
+                candidates[source.getIndex()] = buffer.targets();
+                scores[source.getIndex()] = buffer.scores();
+            }
+        }
+    }
+
+    /**
+     * Reusable list of (target index, score) pairs collected for one source.
+     */
+    private static final class CandidateBuffer {
+        private int[] targets = new int[16];
+        private double[] scores = new double[16];
+        private int size;
+
+        void clear() {
+            size = 0;
+        }
+
+        void add(int target, double score) {
+            if (size == targets.length) {
+                targets = Arrays.copyOf(targets, size * 2);
+                scores = Arrays.copyOf(scores, size * 2);
+            }
+            targets[size] = target;
+            scores[size] = score;
+            size++;
+        }
+
+        /**
+         * Insertion-sorts the pairs by descending score, then ascending target index.
+         * Lists are short, since only candidates reaching the threshold are kept.
+         */
+        void rank() {
+            for (int i = 1; i < size; i++) {
+                int target = targets[i];
+                double score = scores[i];
+                int j = i - 1;
+                while (j >= 0 && (scores[j] < score || (scores[j] == score && targets[j] > target))) {
+                    targets[j + 1] = targets[j];
+                    scores[j + 1] = scores[j];
+                    j--;
+                }
+                targets[j + 1] = target;
+                scores[j + 1] = score;
+            }
+        }
+
+        int[] targets() {
+            return size == 0 ? NO_TARGETS : Arrays.copyOf(targets, size);
+        }
+
+        double[] scores() {
+            return size == 0 ? NO_SCORES : Arrays.copyOf(scores, size);
+        }
+    }
+
+    /**
+     * Resolves a run of components. Components share no targets, so tasks never write the same
+     * entry of the match array.
+     */
+    private final class ResolveTask extends RecursiveAction {
+        private final int[][] components;
+        private final int from;
+        private final int to;
+        private final int[][] candidates;
+        private final double[][] scores;
+        private final int[] matches;
+
+        ResolveTask(int[][] components, int from, int to, int[][] candidates, double[][] scores, int[] matches) {
+            this.components = components;
+            this.from = from;
+            this.to = to;
+            this.candidates = candidates;
+            this.scores = scores;
+            this.matches = matches;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > COMPONENTS_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ResolveTask(components, from, middle, candidates, scores, matches),
+                    new ResolveTask(components, middle, to, candidates, scores, matches));
+                return;
+            }
+            resolveRange();
+        }
+
+        void resolveRange() {
+            for (int c = from; c < to; c++) {
+                resolve(components[c], candidates, scores, matches);
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.visa.recon.matching;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+
+import com.example.visa.recon.model.dto.VisaBase2Record;
+
+/**
+ * A transaction with the values used for matching parsed once up front.
+ * The timestamp is kept as epoch seconds of the local date-time read as UTC, which is enough
+ * to compare transactions of the same file; the amount is kept as a double because the fuzzy
+ * score works on relative amount differences.
+ */
+public final class ParsedTransaction {
+    private static final long SECONDS_PER_DAY = 86_400L;
+
+    private final VisaBase2Record record;
+    private final int index;
+    private final long epochSecond;
+    private final double amount;
+
+    private ParsedTransaction(VisaBase2Record record, int index, long epochSecond, double amount) {
+        this.record = record;
+        this.index = index;
+        this.epochSecond = epochSecond;
+        this.amount = amount;
+    }
+
+    /**
+     * Parses the timestamp and amount of a record.
+     *
+     * @param record Record to parse
+     * @param index Position of the record in its input list, used as a stable tie-breaker
+     * @return Parsed transaction
+     * @throws RuntimeException if the date, time or amount cannot be parsed
+     */
+    public static ParsedTransaction parse(VisaBase2Record record, int index) {
+        long epochSecond = epochSecond(record.getTransactionDate(), record.getTransactionTime());
+        return new ParsedTransaction(record, index, epochSecond, Double.parseDouble(record.getAmount().trim()));
+    }
+
+    /**
+     * Combines the separate date and time columns of a record into one timestamp.
+     * A blank time means the date column holds either a full ISO date-time or a bare date,
+     * which is taken as the start of that day.
+     *
+     * @param date ISO date, or ISO date-time when {@code time} is blank
+     * @param time ISO time of day, may be blank
+     * @return Parsed timestamp
+     * @throws java.time.format.DateTimeParseException if either part is malformed
+     */
+    public static LocalDateTime parseTimestamp(String date, String time) {
+        String trimmedDate = date.trim();
+        if (time == null || time.isBlank()) {
+            return trimmedDate.indexOf('T') >= 0
+                ? LocalDateTime.parse(trimmedDate)
+                : LocalDate.parse(trimmedDate).atStartOfDay();
+        }
+        return LocalDateTime.of(LocalDate.parse(trimmedDate), LocalTime.parse(time.trim()));
+    }
+
+    /**
+     * Converts the date and time columns of a record to epoch seconds, reading the local
+     * date-time as UTC. The usual {@code yyyy-MM-dd} and {@code HH:mm:ss} columns are read
+     * digit by digit; anything else goes through {@link #parseTimestamp(String, String)}.
+     *
+     * @param date ISO date, or ISO date-time when {@code time} is blank
+     * @param time ISO time of day, may be blank
+     * @return Epoch seconds
+     * @throws java.time.DateTimeException if either part is malformed
+     */
+    public static long epochSecond(String date, String time) {
+        if (date != null && time != null && date.length() == 10 && time.length() == 8
+                && date.charAt(4) == '-' && date.charAt(7) == '-' && time.charAt(2) == ':' && time.charAt(5) == ':') {
+            int year = digits(date, 0, 4);
+            int month = digits(date, 5, 2);
+            int day = digits(date, 8, 2);
+            int hour = digits(time, 0, 2);
+            int minute = digits(time, 3, 2);
+            int second = digits(time, 6, 2);
+            if ((year | month | day | hour | minute | second) >= 0) {
+                // LocalDate and LocalTime still validate the ranges
+                return LocalDate.of(year, month, day).toEpochDay() * SECONDS_PER_DAY
+                    + LocalTime.of(hour, minute, second).toSecondOfDay();
+            }
+        }
+        return parseTimestamp(date, time).toEpochSecond(ZoneOffset.UTC);
+    }
+
+    /**
+     * @return Value of {@code count} ASCII digits starting at {@code from}, or -1 if any is not a digit
+     */
+    private static int digits(String value, int from, int count) {
+        int result = 0;
+        for (int i = from; i < from + count; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            result = result * 10 + (c - '0');
+        }
+        return result;
+    }
+
+    public VisaBase2Record getRecord() {
+        return record;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public long getEpochSecond() {
+        return epochSecond;
+    }
+
+    public double getAmount() {
+        return amount;
+    }
+}
@@ -27,6 +27,15 @@ public class Discrepancy {
         this.createdAt = LocalDateTime.now();
     }
 
+    public Discrepancy(String transactionId, String discrepancyType,
+                      BigDecimal amountSwitch, BigDecimal amountNetwork, LocalDateTime createdAt) {
+        this.transactionId = transactionId;
+        this.discrepancyType = discrepancyType;
+        this.amountSwitch = amountSwitch;
+        this.amountNetwork = amountNetwork;
+        this.createdAt = createdAt;
+    }
+
     public String getTransactionId() {
         return transactionId;
     }
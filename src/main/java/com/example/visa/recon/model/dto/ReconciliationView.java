@@ -0,0 +1,36 @@
+package com.example.visa.recon.model.dto;
+
+import java.util.List;
+
+import com.example.visa.recon.model.enums.ReconciliationField;
+
+/**
+ * Read-only projection of a database row carrying the transaction ID and only the compared
+ * columns. Not managed by the persistence context.
+ */
+public class ReconciliationView {
+    private final String transactionId;
+    private final String[] values = new String[ReconciliationField.values().length];
+
+    /**
+     * @param row Projection tuple: transaction ID followed by one value per field, in order
+     * @param fields Fields the tuple was selected with
+     */
+    public ReconciliationView(Object[] row, List<ReconciliationField> fields) {
+        this.transactionId = (String) row[0];
+        for (int i = 0; i < fields.size(); i++) {
+            values[fields.get(i).ordinal()] = (String) row[i + 1];
+        }
+    }
+
+    public String getTransactionId() {
+        return transactionId;
+    }
+
+    /**
+     * @return The column value, or null if it was not selected or is null
+     */
+    public String get(ReconciliationField field) {
+        return values[field.ordinal()];
+    }
+}
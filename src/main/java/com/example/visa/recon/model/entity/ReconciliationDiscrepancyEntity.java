@@ -0,0 +1,53 @@
+package com.example.visa.recon.model.entity;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Data;
+
+/**
+ * Discrepancy found by a reconciliation batch step, kept until the report step of the job
+ * instance has read it. Rows are written with JDBC by
+ * {@link com.example.visa.recon.repository.DiscrepancyStore}; the entity defines the table.
+ */
+@Entity
+@Table(name = "reconciliation_discrepancies",
+       indexes = @Index(name = "idx_discrepancy_job_instance", columnList = "job_instance_id, direction"))
+@Data
+public class ReconciliationDiscrepancyEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "job_instance_id", nullable = false)
+    private Long jobInstanceId;
+
+    @Column(name = "step_execution_id", nullable = false)
+    private Long stepExecutionId;
+
+    @Column(name = "direction", nullable = false, length = 16)
+    private String direction;
+
+    @Column(name = "transaction_id")
+    private String transactionId;
+
+    @Column(name = "discrepancy_type")
+    private String discrepancyType;
+
+    @Column(name = "amount_switch", precision = 19, scale = 4)
+    private BigDecimal amountSwitch;
+
+    @Column(name = "amount_network", precision = 19, scale = 4)
+    private BigDecimal amountNetwork;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+}
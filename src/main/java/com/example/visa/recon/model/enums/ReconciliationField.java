@@ -0,0 +1,57 @@
+package com.example.visa.recon.model.enums;
+
+import java.util.function.Function;
+
+import com.example.visa.recon.model.entity.VisaBase2RecordEntity;
+
+/**
+ * Entity columns reconciliation can compare, with the label reported on a mismatch.
+ */
+public enum ReconciliationField {
+    AMOUNT("amount", "Amount Mismatch", VisaBase2RecordEntity::getAmount),
+    RESPONSE_CODE("responseCode", "Response Code Mismatch", VisaBase2RecordEntity::getResponseCode),
+    AUTHORIZATION_CODE("authorizationCode", "Authorization Code Mismatch", VisaBase2RecordEntity::getAuthorizationCode),
+    TRANSACTION_DATE("transactionDate", "Transaction Date Mismatch", VisaBase2RecordEntity::getTransactionDate),
+    RRN("rrn", "RRN Mismatch", VisaBase2RecordEntity::getRrn),
+    TRANSACTION_TYPE("transactionType", "Transaction Type Mismatch", VisaBase2RecordEntity::getTransactionType);
+
+    private final String attribute;
+    private final String mismatchType;
+    private final Function<VisaBase2RecordEntity, String> getter;
+
+    ReconciliationField(String attribute, String mismatchType, Function<VisaBase2RecordEntity, String> getter) {
+        this.attribute = attribute;
+        this.mismatchType = mismatchType;
+        this.getter = getter;
+    }
+
+    /**
+     * @return Entity attribute name, as used in JPQL and in configuration
+     */
+    public String getAttribute() {
+        return attribute;
+    }
+
+    public String getMismatchType() {
+        return mismatchType;
+    }
+
+    public String valueOf(VisaBase2RecordEntity entity) {
+        return getter.apply(entity);
+    }
+
+    /**
+     * Resolves a configured name, accepting either the attribute name or the constant name.
+     * 
+     * @throws IllegalArgumentException if the name matches no field
+     */
+    public static ReconciliationField fromName(String name) {
+        String trimmed = name.trim();
+        for (ReconciliationField field : values()) {
+            if (field.attribute.equalsIgnoreCase(trimmed) || field.name().equalsIgnoreCase(trimmed)) {
+                return field;
+            }
+        }
+        throw new IllegalArgumentException("Unknown reconciliation field: " + name);
+    }
+}
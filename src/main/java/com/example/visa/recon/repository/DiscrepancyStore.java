@@ -0,0 +1,91 @@
+package com.example.visa.recon.repository;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.example.visa.recon.model.Discrepancy;
+
+/**
+ * Discrepancies of reconciliation batch steps, stored per job instance in the
+ * {@code reconciliation_discrepancies} table. Steps insert the discrepancies of a chunk in the
+ * chunk transaction, so a rolled back chunk leaves no rows behind and a restarted job instance
+ * finds exactly the rows of the chunks committed by all its executions.
+ */
+@Repository
+public class DiscrepancyStore {
+
+    /**
+     * Reconciliation direction a discrepancy was found in.
+     */
+    public enum Direction {
+        FILE_TO_DB, DB_TO_FILE
+    }
+
+    private static final String INSERT_SQL = "INSERT INTO reconciliation_discrepancies"
+        + " (job_instance_id, step_execution_id, direction, transaction_id, discrepancy_type,"
+        + " amount_switch, amount_network, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String SELECT_SQL = "SELECT transaction_id, discrepancy_type, amount_switch,"
+        + " amount_network, created_at FROM reconciliation_discrepancies"
+        + " WHERE job_instance_id = ? AND direction = ? ORDER BY id";
+
+    private static final String DELETE_SQL = "DELETE FROM reconciliation_discrepancies WHERE job_instance_id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${reconciliation.db.write-batch-size:1000}")
+    private int batchSize;
+
+    /**
+     * Inserts discrepancies in JDBC batches. Runs in the caller's transaction when there is one.
+     * 
+     * @param jobInstanceId Job instance the step belongs to
+     * @param stepExecutionId Step execution that found the discrepancies
+     * @param direction Direction they were found in
+     * @param discrepancies Discrepancies to insert
+     */
+    public void insertAll(long jobInstanceId, long stepExecutionId, Direction direction,
+                          List<Discrepancy> discrepancies) {
+        if (discrepancies.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, discrepancies, batchSize, (ps, discrepancy) -> {
+            ps.setLong(1, jobInstanceId);
+            ps.setLong(2, stepExecutionId);
+            ps.setString(3, direction.name());
+            ps.setString(4, discrepancy.getTransactionId());
+            ps.setString(5, discrepancy.getDiscrepancyType());
+            ps.setBigDecimal(6, discrepancy.getAmountSwitch());
+            ps.setBigDecimal(7, discrepancy.getAmountNetwork());
+            ps.setTimestamp(8, Timestamp.valueOf(discrepancy.getCreatedAt()));
+        });
+    }
+
+    /**
+     * @param jobInstanceId Job instance whose steps found the discrepancies
+     * @param direction Direction to load
+     * @return Discrepancies of every execution of the instance, in insertion order
+     */
+    public List<Discrepancy> findByJobInstance(long jobInstanceId, Direction direction) {
+        return jdbcTemplate.query(SELECT_SQL, (rs, rowNum) -> new Discrepancy(
+            rs.getString("transaction_id"),
+            rs.getString("discrepancy_type"),
+            rs.getBigDecimal("amount_switch"),
+            rs.getBigDecimal("amount_network"),
+            rs.getTimestamp("created_at").toLocalDateTime()), jobInstanceId, direction.name());
+    }
+
+    /**
+     * @param jobInstanceId Job instance whose discrepancies are no longer needed
+     * @return Number of rows deleted
+     */
+    public int deleteByJobInstance(long jobInstanceId) {
+        return jdbcTemplate.update(DELETE_SQL, jobInstanceId);
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.visa.recon.repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.example.visa.recon.model.entity.VisaBase2RecordEntity;
+
+/**
+ * Bulk upsert of records through JDBC batches, bypassing JPA merge.
+ * Hibernate disables insert batching for IDENTITY ids, so saveAll issues one statement per
+ * row; here rows are sent with batchUpdate as
+ * {@code INSERT ... ON DUPLICATE KEY UPDATE} keyed on the unique transaction_id. With
+ * {@code rewriteBatchedStatements=true} on the MySQL URL the driver folds each batch into
+ * multi-row INSERT statements.
+ */
+@Repository
+public class VisaBase2RecordBulkWriter {
+    private static final Logger logger = LoggerFactory.getLogger(VisaBase2RecordBulkWriter.class);
+
+    private static final List<Column> COLUMNS = List.of(
+        column("transaction_type", VisaBase2RecordEntity::getTransactionType),
+        column("transaction_id", VisaBase2RecordEntity::getTransactionId),
+        column("card_number", VisaBase2RecordEntity::getCardNumber),
+        column("amount", VisaBase2RecordEntity::getAmount),
+        column("stan", VisaBase2RecordEntity::getStan),
+        column("currency_code", VisaBase2RecordEntity::getCurrencyCode),
+        column("transaction_date", VisaBase2RecordEntity::getTransactionDate),
+        column("transaction_time", VisaBase2RecordEntity::getTransactionTime),
+        column("response_code", VisaBase2RecordEntity::getResponseCode),
+        column("account_type", VisaBase2RecordEntity::getAccountType),
+        column("authorization_code", VisaBase2RecordEntity::getAuthorizationCode),
+        column("merchant_id", VisaBase2RecordEntity::getMerchantId),
+        column("merchant_category_code", VisaBase2RecordEntity::getMerchantCategoryCode),
+        column("terminal_id", VisaBase2RecordEntity::getTerminalId),
+        column("card_expiry_date", VisaBase2RecordEntity::getCardExpiryDate),
+        column("cardholder_name", VisaBase2RecordEntity::getCardholderName),
+        column("account_holder_name", VisaBase2RecordEntity::getAccountHolderName),
+        column("transaction_fee", VisaBase2RecordEntity::getTransactionFee),
+        column("authorization_indicator", VisaBase2RecordEntity::getAuthorizationIndicator),
+        column("acquirer_bin", VisaBase2RecordEntity::getAcquirerBin),
+        column("issuer_bin", VisaBase2RecordEntity::getIssuerBin),
+        column("merchant_name", VisaBase2RecordEntity::getMerchantName),
+        column("transaction_code", VisaBase2RecordEntity::getTransactionCode),
+        column("reason_code", VisaBase2RecordEntity::getReasonCode),
+        column("rrn", VisaBase2RecordEntity::getRrn),
+        column("original_transaction_id", VisaBase2RecordEntity::getOriginalTransactionId),
+        column("acquirer_reference_number", VisaBase2RecordEntity::getAcquirerReferenceNumber),
+        column("batch_number", VisaBase2RecordEntity::getBatchNumber),
+        column("date_of_settlement", VisaBase2RecordEntity::getDateOfSettlement),
+        column("settlement_amount", VisaBase2RecordEntity::getSettlementAmount),
+        column("issuer_response_code", VisaBase2RecordEntity::getIssuerResponseCode),
+        column("transaction_origin", VisaBase2RecordEntity::getTransactionOrigin),
+        column("transaction_reference", VisaBase2RecordEntity::getTransactionReference),
+        column("original_transaction_amount", VisaBase2RecordEntity::getOriginalTransactionAmount),
+        column("refund_amount", VisaBase2RecordEntity::getRefundAmount),
+        column("adjustment_amount", VisaBase2RecordEntity::getAdjustmentAmount),
+        column("loyalty_points_earned", VisaBase2RecordEntity::getLoyaltyPointsEarned),
+        column("loyalty_points_redeemed", VisaBase2RecordEntity::getLoyaltyPointsRedeemed),
+        column("reversal_indicator", VisaBase2RecordEntity::getReversalIndicator),
+        column("authorization_date_time", VisaBase2RecordEntity::getAuthorizationDateTime),
+        column("original_authorization_code", VisaBase2RecordEntity::getOriginalAuthorizationCode),
+        column("narrative", VisaBase2RecordEntity::getNarrative)
+    );
+
+    private static final String UPSERT_SQL = buildUpsertSql();
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${reconciliation.db.write-batch-size:1000}")
+    private int batchSize;
+
+    /**
+     * Inserts new records and overwrites existing ones with the same transaction ID.
+     * Runs in the caller's transaction when there is one.
+     * 
+     * @param entities Records to write; the id field is ignored
+     * @return Number of records sent
+     */
+    public int upsertAll(List<? extends VisaBase2RecordEntity> entities) {
+        if (entities.isEmpty()) {
+            return 0;
+        }
+        long startTime = System.currentTimeMillis();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(UPSERT_SQL, entities, batchSize, (ps, entity) -> bind(ps, entity, now));
+        logger.debug("Upserted {} records in {} ms", entities.size(), System.currentTimeMillis() - startTime);
+        return entities.size();
+    }
+
+    private static void bind(PreparedStatement ps, VisaBase2RecordEntity entity, Timestamp now) throws SQLException {
+        int index = 1;
+        for (Column column : COLUMNS) {
+            ps.setString(index++, column.getter.apply(entity));
+        }
+        ps.setTimestamp(index++, entity.getCreatedAt() != null ? Timestamp.valueOf(entity.getCreatedAt()) : now);
+        ps.setTimestamp(index, now);
+    }
+
+    private static String buildUpsertSql() {
+        String names = COLUMNS.stream().map(column -> column.name).collect(Collectors.joining(", "));
+        String placeholders = COLUMNS.stream().map(column -> "?").collect(Collectors.joining(", "));
+        String updates = COLUMNS.stream()
+            .filter(column -> !column.name.equals("transaction_id"))
+            .map(column -> column.name + " = VALUES(" + column.name + ")")
+            .collect(Collectors.joining(", "));
+        return "INSERT INTO visa_base2_transactions (" + names + ", created_at, updated_at)"
+            + " VALUES (" + placeholders + ", ?, ?)"
+            + " ON DUPLICATE KEY UPDATE " + updates + ", updated_at = VALUES(updated_at)";
+    }
+
+    private static Column column(String name, Function<VisaBase2RecordEntity, String> getter) {
+        return new Column(name, getter);
+    }
+
+    private static final class Column {
+        private final String name;
+        private final Function<VisaBase2RecordEntity, String> getter;
+
+        private Column(String name, Function<VisaBase2RecordEntity, String> getter) {
+            this.name = name;
+            this.getter = getter;
+        }
+    }
+}
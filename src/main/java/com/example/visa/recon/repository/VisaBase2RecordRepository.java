@@ -1,13 +1,29 @@
 package com.example.visa.recon.repository;
 
 import java.util.List;
+
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import com.example.visa.recon.model.entity.VisaBase2RecordEntity;
 
 @Repository
-public interface VisaBase2RecordRepository extends JpaRepository<VisaBase2RecordEntity, Long> {
+public interface VisaBase2RecordRepository extends JpaRepository<VisaBase2RecordEntity, Long>,
+        VisaBase2RecordRepositoryCustom {
     VisaBase2RecordEntity findByTransactionId(String transactionId);
     List<VisaBase2RecordEntity> findByTransactionIdIn(List<String> transactionIds);
-} 
\ No newline at end of file
+
+    /**
+     * Keyset page: the next rows after the given primary key and up to an upper bound, in key
+     * order. Use {@code PageRequest.of(0, size)} to set the page size.
+     */
+    List<VisaBase2RecordEntity> findByIdGreaterThanAndIdLessThanEqualOrderByIdAsc(Long id, Long maxId, Pageable pageable);
+
+    @Query("select min(e.id) from VisaBase2RecordEntity e")
+    Long findMinId();
+
+    @Query("select max(e.id) from VisaBase2RecordEntity e")
+    Long findMaxId();
+}
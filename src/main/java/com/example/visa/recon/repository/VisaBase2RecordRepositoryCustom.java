@@ -0,0 +1,49 @@
+package com.example.visa.recon.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import com.example.visa.recon.matching.MatchingStage;
+
+import com.example.visa.recon.model.dto.ReconciliationView;
+import com.example.visa.recon.model.enums.ReconciliationField;
+
+/**
+ * Read paths that Spring Data derived queries cannot express efficiently.
+ */
+public interface VisaBase2RecordRepositoryCustom {
+
+    /**
+     * Streams every transaction ID in the table without loading entities, fetching
+     * {@code reconciliation.db.fetch-size} rows at a time. Must be consumed inside a transaction
+     * and closed afterwards.
+     * 
+     * @return Stream of the non-null transaction IDs
+     */
+    Stream<String> streamAllTransactionIds();
+
+    /**
+     * Loads only the transaction ID and the given columns for a set of transaction IDs.
+     * Rows come back as plain tuples, so nothing is hydrated into managed entities.
+     * 
+     * @param transactionIds IDs to look up
+     * @param fields Columns to select
+     * @return One view per matching row
+     */
+    List<ReconciliationView> findViewsByTransactionIdIn(List<String> transactionIds, List<ReconciliationField> fields);
+
+    /**
+     * Loads the transaction ID and the given columns of the rows whose key for a matching
+     * cascade stage is one of the given keys. Each key attribute is restricted to the values
+     * it takes in the keys, and rows whose combined key is not wanted are dropped afterwards.
+     * 
+     * @param stage Stage whose key attributes are matched
+     * @param keys Keys built by {@link MatchingStage#key(Object...)}
+     * @param fields Columns to select
+     * @return Views by key, each list in primary key order
+     */
+    Map<String, List<ReconciliationView>> findViewsByMatchingKeyIn(MatchingStage stage, Collection<String> keys,
+                                                                   List<ReconciliationField> fields);
+}
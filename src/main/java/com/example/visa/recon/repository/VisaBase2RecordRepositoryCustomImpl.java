@@ -0,0 +1,117 @@
+package com.example.visa.recon.repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.visa.recon.matching.MatchingStage;
+import com.example.visa.recon.model.dto.ReconciliationView;
+import com.example.visa.recon.model.enums.ReconciliationField;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+/**
+ * Custom read paths. Streaming reads use the configured fetch size: MySQL Connector/J only
+ * streams rows when the connection has {@code useCursorFetch=true} and the statement has a
+ * positive fetch size; otherwise the driver buffers the whole result set before the first row
+ * is returned.
+ */
+public class VisaBase2RecordRepositoryCustomImpl implements VisaBase2RecordRepositoryCustom {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${reconciliation.db.fetch-size:1000}")
+    private int fetchSize;
+
+    @Override
+    public Stream<String> streamAllTransactionIds() {
+        return entityManager.createQuery(
+                "select e.transactionId from VisaBase2RecordEntity e where e.transactionId is not null", String.class)
+            .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+            .setHint(HibernateHints.HINT_READ_ONLY, true)
+            .getResultStream();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ReconciliationView> findViewsByTransactionIdIn(List<String> transactionIds,
+                                                               List<ReconciliationField> fields) {
+        if (transactionIds.isEmpty()) {
+            return List.of();
+        }
+        StringBuilder jpql = new StringBuilder("select e.transactionId");
+        for (ReconciliationField field : fields) {
+            jpql.append(", e.").append(field.getAttribute());
+        }
+        jpql.append(" from VisaBase2RecordEntity e where e.transactionId in :ids");
+
+        // Array selections are scalar results, so the persistence context stays empty
+        return entityManager.createQuery(jpql.toString(), Object[].class)
+            .setParameter("ids", transactionIds)
+            .getResultList()
+            .stream()
+            .map(row -> new ReconciliationView(row, fields))
+            .collect(Collectors.toList());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<String, List<ReconciliationView>> findViewsByMatchingKeyIn(MatchingStage stage, Collection<String> keys,
+                                                                          List<ReconciliationField> fields) {
+        Map<String, List<ReconciliationView>> views = new LinkedHashMap<>();
+        if (keys.isEmpty()) {
+            return views;
+        }
+        List<String> attributes = stage.getAttributes();
+        List<Set<String>> values = new ArrayList<>();
+        for (int i = 0; i < attributes.size(); i++) {
+            values.add(new HashSet<>());
+        }
+        for (String key : keys) {
+            String[] parts = stage.parts(key);
+            for (int i = 0; i < attributes.size(); i++) {
+                values.get(i).add(parts[i]);
+            }
+        }
+
+        StringBuilder jpql = new StringBuilder("select e.transactionId");
+        for (ReconciliationField field : fields) {
+            jpql.append(", e.").append(field.getAttribute());
+        }
+        for (String attribute : attributes) {
+            jpql.append(", e.").append(attribute);
+        }
+        jpql.append(" from VisaBase2RecordEntity e where ");
+        for (int i = 0; i < attributes.size(); i++) {
+            jpql.append(i > 0 ? " and " : "").append("e.").append(attributes.get(i)).append(" in :p").append(i);
+        }
+        jpql.append(" order by e.id");
+
+        TypedQuery<Object[]> query = entityManager.createQuery(jpql.toString(), Object[].class);
+        for (int i = 0; i < attributes.size(); i++) {
+            query.setParameter("p" + i, values.get(i));
+        }
+        Set<String> wanted = keys instanceof Set ? (Set<String>) keys : new HashSet<>(keys);
+        int keyOffset = 1 + fields.size();
+        for (Object[] row : query.getResultList()) {
+            String key = stage.key(Arrays.copyOfRange(row, keyOffset, row.length));
+            if (key != null && wanted.contains(key)) {
+                views.computeIfAbsent(key, k -> new ArrayList<>()).add(new ReconciliationView(row, fields));
+            }
+        }
+        return views;
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.visa.recon.repository;
+
+import java.util.List;
+
+import com.example.visa.recon.model.entity.VisaBase2RecordEntity;
+
+/**
+ * Writes batches of records to the transaction table. The implementation is chosen once, by
+ * {@code reconciliation.db.writer}, in {@code RecordWriterConfig}.
+ */
+@FunctionalInterface
+public interface VisaBase2RecordWriter {
+
+    /**
+     * Inserts new records and updates existing ones. Runs in the caller's transaction when
+     * there is one.
+     * 
+     * @param entities Records to write
+     */
+    void writeAll(List<? extends VisaBase2RecordEntity> entities);
+}
@@ -0,0 +1,60 @@
+package com.example.visa.recon.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.visa.recon.model.dto.ReconciliationView;
+import com.example.visa.recon.model.entity.VisaBase2RecordEntity;
+import com.example.visa.recon.model.enums.ReconciliationField;
+
+/**
+ * Fields compared during reconciliation, in the order they are checked, taken from
+ * {@code reconciliation.compare.fields}. The same list decides which columns the database
+ * projections select.
+ */
+@Component
+public class ComparisonRules {
+    private static final Logger logger = LoggerFactory.getLogger(ComparisonRules.class);
+
+    private final List<ReconciliationField> fields;
+
+    public ComparisonRules(
+            @Value("${reconciliation.compare.fields:amount,responseCode,authorizationCode,transactionDate,rrn,transactionType}")
+            List<String> fieldNames) {
+        List<ReconciliationField> resolved = new ArrayList<>();
+        for (String name : fieldNames) {
+            ReconciliationField field = ReconciliationField.fromName(name);
+            if (!resolved.contains(field)) {
+                resolved.add(field);
+            }
+        }
+        if (resolved.isEmpty()) {
+            throw new IllegalArgumentException("reconciliation.compare.fields must name at least one field");
+        }
+        this.fields = Collections.unmodifiableList(resolved);
+        logger.info("Reconciliation compares fields {}", fields);
+    }
+
+    public List<ReconciliationField> getFields() {
+        return fields;
+    }
+
+    /**
+     * @return The first configured field whose values differ, or null if all match
+     */
+    public ReconciliationField firstMismatch(VisaBase2RecordEntity fileRecord, ReconciliationView dbRecord) {
+        for (ReconciliationField field : fields) {
+            if (!Objects.equals(field.valueOf(fileRecord), dbRecord.get(field))) {
+                return field;
+            }
+        }
+        return null;
+    }
+}
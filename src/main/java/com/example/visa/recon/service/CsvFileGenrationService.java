@@ -1,9 +1,11 @@
 package com.example.visa.recon.service;
 
-import java.io.BufferedWriter;
+import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
@@ -19,10 +21,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.example.visa.recon.csv.CsvRecordEncoder;
 import com.example.visa.recon.model.dto.VisaBase2Record;
 import com.example.visa.recon.model.entity.VisaBase2RecordEntity;
 import com.example.visa.recon.model.enums.TransactionType;
-import com.example.visa.recon.repository.VisaBase2RecordRepository;
+import com.example.visa.recon.repository.VisaBase2RecordWriter;
 import com.example.visa.recon.mapper.VisaBase2RecordMapper;
 
 @Service
@@ -85,13 +88,13 @@ public class CsvFileGenrationService {
     };
 
     @Autowired
-    private final VisaBase2RecordRepository repository;
+    private final VisaBase2RecordWriter recordWriter;
     
     @Autowired
     private final VisaBase2RecordMapper mapper;
 
-    public CsvFileGenrationService(VisaBase2RecordRepository repository, VisaBase2RecordMapper mapper) {
-        this.repository = repository;
+    public CsvFileGenrationService(VisaBase2RecordWriter recordWriter, VisaBase2RecordMapper mapper) {
+        this.recordWriter = recordWriter;
         this.mapper = mapper;
     }
 
@@ -103,7 +106,8 @@ public class CsvFileGenrationService {
         File file = new File(filePath);
         AtomicInteger processedCount = new AtomicInteger(0);
 
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file), BUFFER_SIZE)) {
+        CsvRecordEncoder encoder = CsvRecordEncoder.get();
+        try (OutputStream writer = new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE)) {
             // Write Header
             writeHeader(writer);
 
@@ -130,8 +134,7 @@ public class CsvFileGenrationService {
                 // Write records to CSV and collect entities
                 for (VisaBase2Record record : records) {
                     try {
-                        writer.write(recordToCsv(record));
-                        writer.newLine();
+                        encoder.writeTo(writer, record);
                         batchEntities.add(mapper.toEntity(record));
                         
                         int count = processedCount.incrementAndGet();
@@ -147,7 +150,7 @@ public class CsvFileGenrationService {
                 // Save batch to database
                 if (!batchEntities.isEmpty()) {
                     try {
-                        repository.saveAll(batchEntities);
+                        recordWriter.writeAll(batchEntities);
                         logger.debug("Saved batch of {} records to database", batchEntities.size());
                     } catch (Exception e) {
                         logger.error("Error saving batch to database: {}", e.getMessage(), e);
@@ -164,62 +167,15 @@ public class CsvFileGenrationService {
         return "CSV file generated successfully with " + processedCount.get() + " records";
     }
 
-    private void writeHeader(BufferedWriter writer) throws IOException {
-        writer.write("transactionType,transactionId,cardNumber,amount,Stan,currencyCode,transactionDate,transactionTime," +
+    private void writeHeader(OutputStream writer) throws IOException {
+        writer.write(("transactionType,transactionId,cardNumber,amount,Stan,currencyCode,transactionDate,transactionTime," +
                 "responseCode,accountType,authorizationCode,merchantId,merchantCategoryCode,terminalId,cardExpiryDate," +
                 "cardholderName,accountHolderName,transactionFee,authorizationIndicator,acquirerBin,issuerBin," +
                 "merchantName,transactionCode,reasonCode,rrn,originalTransactionId,acquirerReferenceNumber,batchNumber," +
                 "dateOfSettlement,settlementAmount,issuerResponseCode,transactionOrigin,transactionReference," +
                 "originalTransactionAmount,refundAmount,adjustmentAmount,loyaltyPointsEarned,loyaltyPointsRedeemed," +
-                "reversalIndicator,authorizationDateTime,originalAuthorizationCode,narrative");
-        writer.newLine();
-    }
-
-    private String recordToCsv(VisaBase2Record record) {
-        return String.join(",", 
-            record.getTransactionType(),
-            record.getTransactionId(),
-            record.getCardNumber(),
-            record.getAmount(),
-            record.getStan(),
-            record.getCurrencyCode(),
-            record.getTransactionDate(),
-            record.getTransactionTime(),
-            record.getResponseCode(),
-            record.getAccountType(),
-            record.getAuthorizationCode(),
-            record.getMerchantId(),
-            record.getMerchantCategoryCode(),
-            record.getTerminalId(),
-            record.getCardExpiryDate(),
-            record.getCardholderName(),
-            record.getAccountHolderName(),
-            record.getTransactionFee(),
-            record.getAuthorizationIndicator(),
-            record.getAcquirerBin(),
-            record.getIssuerBin(),
-            record.getMerchantName(),
-            record.getTransactionCode(),
-            record.getReasonCode(),
-            record.getRrn(),
-            record.getOriginalTransactionId(),
-            record.getAcquirerReferenceNumber(),
-            record.getBatchNumber(),
-            record.getDateOfSettlement(),
-            record.getSettlementAmount(),
-            record.getIssuerResponseCode(),
-            record.getTransactionOrigin(),
-            record.getTransactionReference(),
-            record.getOriginalTransactionAmount(),
-            record.getRefundAmount(),
-            record.getAdjustmentAmount(),
-            record.getLoyaltyPointsEarned(),
-            record.getLoyaltyPointsRedeemed(),
-            record.getReversalIndicator(),
-            record.getAuthorizationDateTime(),
-            record.getOriginalAuthorizationCode(),
-            record.getNarrative()
-        );
+                "reversalIndicator,authorizationDateTime,originalAuthorizationCode,narrative\n")
+            .getBytes(StandardCharsets.UTF_8));
     }
 
     private VisaBase2Record generateRandomRecord(int recordNumber) {
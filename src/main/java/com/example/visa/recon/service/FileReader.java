@@ -2,49 +2,107 @@ package com.example.visa.recon.service;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
-import java.util.ArrayList;
+import java.util.stream.StreamSupport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import com.example.visa.recon.csv.CsvFileSplitter;
+import com.example.visa.recon.csv.CsvFileSplitter.ByteRange;
+import com.example.visa.recon.csv.CsvTokenizer;
+import com.example.visa.recon.csv.MappedCsvReader;
+import com.example.visa.recon.csv.MappedRangeSpliterator;
+import com.example.visa.recon.mapper.VisaBase2RecordMapper;
 import com.example.visa.recon.model.dto.VisaBase2Record;
 
 /**
  * Service responsible for reading and processing transaction files.
  * Provides multiple methods for handling large files efficiently:
- * - Streaming records for memory-efficient processing
+ * - Streaming records for memory-efficient processing, through a BufferedReader
+ *   or a memory-mapped byte-level parser
  * - Sequential processing for simple operations
- * - Parallel processing for improved performance
+ * - Parallel processing of record-aligned byte ranges for improved performance
  * - Batch processing for database operations
  */
 @Service
 public class FileReader {
     private static final Logger logger = LoggerFactory.getLogger(FileReader.class);
+    private static final String PARSER_MAPPED = "mapped";
+    private static final int ESTIMATE_SAMPLE_BYTES = 64 * 1024;
+
+    @Value("${reconciliation.file.parser:buffered}")
+    private String parserType;
+
+    @Value("${reconciliation.file.parallelism:0}")
+    private int parallelism;
+
+    @Autowired
+    private VisaBase2RecordMapper mapper;
 
     /**
      * Streams records from a file for memory-efficient processing.
-     * Skips the header row and filters out empty lines.
+     * Skips the header row and filters out empty lines. The parser is chosen by the
+     * {@code reconciliation.file.parser} property: {@code buffered} decodes each line through a
+     * BufferedReader, {@code mapped} scans a memory-mapped file byte by byte. Both tokenize
+     * fields per RFC 4180, so quoted fields may contain commas, quotes and line breaks.
      * 
      * @param filePath Path to the file to read
      * @return Stream of parsed VisaBase2Record objects
      * @throws RuntimeException if file cannot be read or closed
      */
     public Stream<VisaBase2Record> streamRecords(String filePath) {
+        if (isMappedParser()) {
+            return streamMappedRecords(filePath);
+        }
         logger.info("Starting to stream records from file: {}", filePath);
         try {
             BufferedReader reader = Files.newBufferedReader(Paths.get(filePath));
-            return reader.lines()
-                        .skip(1)  // Skip header if exists
-                        .filter(line -> !line.trim().isEmpty())
-                        .map(this::parseRecord)
+            CsvTokenizer tokenizer = new CsvTokenizer();
+            Iterator<VisaBase2Record> iterator = new Iterator<VisaBase2Record>() {
+                private boolean headerSkipped;
+                private Boolean hasNext;
+
+                @Override
+                public boolean hasNext() {
+                    if (hasNext == null) {
+                        if (!headerSkipped) {
+                            headerSkipped = true;
+                            readRecord(reader, tokenizer); // Skip header if exists
+                        }
+                        hasNext = readRecord(reader, tokenizer);
+                    }
+                    return hasNext;
+                }
+
+                @Override
+                public VisaBase2Record next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    hasNext = null;
+                    return parseRecord(tokenizer);
+                }
+            };
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false)
                         .onClose(() -> {
                             try {
                                 reader.close();
@@ -61,67 +119,137 @@ public class FileReader {
     }
 
     /**
-     * Parses a CSV line into a VisaBase2Record object.
-     * Expects a comma-separated string with at least 42 fields.
+     * Streams only the transaction IDs of a file.
+     * With the mapped parser no other field of the line is decoded.
      * 
-     * @param line The CSV line to parse
-     * @return Parsed VisaBase2Record object, or null if parsing fails
+     * @param filePath Path to the file to read
+     * @return Stream of transaction IDs; lines without an ID are skipped
+     */
+    public Stream<String> streamTransactionIds(String filePath) {
+        if (!isMappedParser()) {
+            return streamRecords(filePath)
+                .filter(record -> record != null && record.getTransactionId() != null)
+                .map(VisaBase2Record::getTransactionId);
+        }
+        logger.info("Starting to stream transaction IDs from file: {}", filePath);
+        MappedCsvReader reader = openMapped(filePath);
+        return mappedStream(reader, line -> line.fieldCount() > VisaBase2RecordMapper.CSV_TRANSACTION_ID_FIELD
+                ? line.field(VisaBase2RecordMapper.CSV_TRANSACTION_ID_FIELD)
+                : null)
+            .filter(transactionId -> transactionId != null && !transactionId.isEmpty());
+    }
+
+    private Stream<VisaBase2Record> streamMappedRecords(String filePath) {
+        logger.info("Starting to stream records from memory-mapped file: {}", filePath);
+        return mappedStream(openMapped(filePath), this::parseMappedRecord);
+    }
+
+    private MappedCsvReader openMapped(String filePath) {
+        try {
+            MappedCsvReader reader = MappedCsvReader.open(Paths.get(filePath));
+            reader.nextLine(); // Skip header if exists
+            return reader;
+        } catch (UncheckedIOException e) {
+            logger.error("Error streaming file: {}", filePath, e);
+            throw new RuntimeException("Error streaming file: " + filePath, e);
+        }
+    }
+
+    /**
+     * Adapts a mapped reader to a sequential stream, converting each line as it is pulled.
+     * Closing the stream closes the reader.
+     */
+    private <T> Stream<T> mappedStream(MappedCsvReader reader, Function<MappedCsvReader, T> converter) {
+        Iterator<T> iterator = new Iterator<T>() {
+            private Boolean hasNext;
+
+            @Override
+            public boolean hasNext() {
+                if (hasNext == null) {
+                    hasNext = reader.nextLine();
+                }
+                return hasNext;
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                hasNext = null;
+                return converter.apply(reader);
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false)
+            .onClose(() -> {
+                reader.close();
+                logger.debug("Mapped file reader closed successfully");
+            });
+    }
+
+    private boolean isMappedParser() {
+        return PARSER_MAPPED.equalsIgnoreCase(parserType);
+    }
+
+    /**
+     * Reads the next non-blank record into the tokenizer, joining physical lines while a quoted
+     * field is open. A quoted field still open at the end of the file ends the record there.
+     * 
+     * @return true if a record was read, false at the end of the file
+     * @throws UncheckedIOException if the file cannot be read
      */
-    private VisaBase2Record parseRecord(String line) {
+    private boolean readRecord(BufferedReader reader, CsvTokenizer tokenizer) {
         try {
-            String[] fields = line.split(",");
-            if (fields.length < 40) {
-                logger.error("Invalid record format: {}", line);
-                throw new IllegalArgumentException("Invalid record format: " + line);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!tokenizer.isPending() && line.isBlank()) {
+                    continue;
+                }
+                if (tokenizer.append(line)) {
+                    return true;
+                }
+            }
+            if (tokenizer.isPending()) {
+                tokenizer.finish();
+                return true;
             }
-            VisaBase2Record record = new VisaBase2Record(
-                fields[0].trim(),
-                fields[1].trim(),
-                fields[2].trim(),
-                fields[3].trim(),
-                fields[4].trim(),
-                fields[5].trim(),
-                fields[6].trim(),
-                fields[7].trim(),
-                fields[8].trim(),
-                fields[9].trim(),
-                fields[10].trim(),
-                fields[11].trim(),
-                fields[12].trim(),
-                fields[13].trim(),
-                fields[14].trim(),
-                fields[15].trim(),
-                fields[16].trim(),
-                fields[17].trim(),
-                fields[18].trim(),
-                fields[19].trim(),
-                fields[20].trim(),
-                fields[21].trim(),
-                fields[22].trim(),
-                fields[23].trim(),
-                fields[24].trim(),
-                fields[25].trim(),
-                fields[26].trim(),
-                fields[27].trim(),
-                fields[28].trim(),
-                fields[29].trim(),
-                fields[30].trim(),
-                fields[31].trim(),
-                fields[32].trim(),
-                fields[33].trim(),
-                fields[34].trim(),
-                fields[35].trim(),
-                fields[36].trim(),
-                fields[37].trim(),
-                fields[38].trim(),
-                fields[39].trim(),
-                fields[40].trim(), 
-                fields[41].trim()
-            );
+            return false;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Converts the current record of the tokenizer into a VisaBase2Record object.
+     * Expects at least 42 fields.
+     * 
+     * @param fields Tokenizer holding the record to convert
+     * @return Parsed VisaBase2Record object, or null if parsing fails
+     */
+    private VisaBase2Record parseRecord(CsvTokenizer fields) {
+        try {
+            VisaBase2Record record = mapper.fromCsv(fields);
+            logger.trace("Successfully parsed record with ID: {}", record.getTransactionId());
+            return record;
+        } catch (Exception e) {
+            logger.error("Error parsing record with {} fields", fields.fieldCount(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Converts the current line of a mapped reader into a VisaBase2Record object.
+     * 
+     * @param line Mapped reader positioned on the line to convert
+     * @return Parsed VisaBase2Record object, or null if parsing fails
+     */
+    private VisaBase2Record parseMappedRecord(MappedCsvReader line) {
+        try {
+            VisaBase2Record record = mapper.fromCsv(line);
             logger.trace("Successfully parsed record with ID: {}", record.getTransactionId());
             return record;
         } catch (Exception e) {
-            logger.error("Error parsing record: {}", line, e);
+            logger.error("Error parsing record at offset {}", line.lineOffset(), e);
             return null;
         }
     }
@@ -139,21 +267,14 @@ public class FileReader {
         long startTime = System.currentTimeMillis();
         final AtomicInteger recordCount = new AtomicInteger(0);
 
-        try (BufferedReader reader = Files.newBufferedReader(Paths.get(filePath))) {
-            reader.lines()
-                 .skip(1)  // Skip header if exists
-                 .filter(line -> !line.trim().isEmpty())
-                 .map(this::parseRecord)
-                 .forEach(record -> {
-                     recordProcessor.accept(record);
-                     int count = recordCount.incrementAndGet();
-                     if (count % 1000 == 0) {
-                         logger.debug("Processed {} records", count);
-                     }
-                 });
-        } catch (IOException e) {
-            logger.error("Error processing file: {}", filePath, e);
-            throw new RuntimeException("Error processing file: " + filePath, e);
+        try (Stream<VisaBase2Record> records = streamRecords(filePath)) {
+            records.forEach(record -> {
+                recordProcessor.accept(record);
+                int count = recordCount.incrementAndGet();
+                if (count % 1000 == 0) {
+                    logger.debug("Processed {} records", count);
+                }
+            });
         }
 
         long endTime = System.currentTimeMillis();
@@ -162,32 +283,121 @@ public class FileReader {
     }
 
     /**
-     * Processes a large file in parallel using Java streams.
+     * Processes a large file in parallel, without any ordering guarantee.
      * Suitable for operations that can be performed independently.
      * 
      * @param filePath Path to the file to process
-     * @param recordProcessor Consumer to process each record
+     * @param recordProcessor Thread-safe consumer to process each record
      */
     public void processLargeFileParallel(String filePath, Consumer<VisaBase2Record> recordProcessor) {
-        logger.info("Starting parallel processing of file: {}", filePath);
+        processLargeFileParallel(filePath, recordProcessor, false);
+    }
+
+    /**
+     * Processes a large file in parallel by parsing record-aligned byte ranges on separate workers.
+     * When {@code ordered} is true the consumer sees records in file order, one at a time, while
+     * parsing still runs in parallel; otherwise the consumer is called concurrently from the
+     * workers and must be thread-safe.
+     * 
+     * @param filePath Path to the file to process
+     * @param recordProcessor Consumer to process each record
+     * @param ordered Whether records must be delivered in file order
+     */
+    public void processLargeFileParallel(String filePath, Consumer<VisaBase2Record> recordProcessor, boolean ordered) {
+        logger.info("Starting parallel processing of file: {} (ordered: {})", filePath, ordered);
         long startTime = System.currentTimeMillis();
         final AtomicInteger recordCount = new AtomicInteger(0);
 
-        streamRecords(filePath)
-            .parallel()
-            .forEach(record -> {
-                recordProcessor.accept(record);
-                int count = recordCount.incrementAndGet();
-                if (count % 1000 == 0) {
-                    logger.debug("Processed {} records", count);
-                }
-            });
+        Consumer<VisaBase2Record> countingProcessor = record -> {
+            recordProcessor.accept(record);
+            int count = recordCount.incrementAndGet();
+            if (count % 1000 == 0) {
+                logger.debug("Processed {} records", count);
+            }
+        };
+        try (Stream<VisaBase2Record> records = streamRecordsParallel(filePath, ordered)) {
+            if (ordered) {
+                records.forEachOrdered(countingProcessor);
+            } else {
+                records.forEach(countingProcessor);
+            }
+        }
 
         long endTime = System.currentTimeMillis();
         logger.info("Completed parallel processing of {} records in {} ms", 
             recordCount.get(), (endTime - startTime));
     }
 
+    /**
+     * Streams records in parallel by splitting the file into {@code reconciliation.file.parallelism}
+     * byte ranges aligned to record boundaries, so quoted line breaks never straddle a cut. Each
+     * range is memory-mapped and parsed on its own worker, so throughput scales with the number of
+     * cores instead of being bound to one reader.
+     * 
+     * @param filePath Path to the file to read
+     * @param ordered Whether the stream keeps file order; unordered streams merge faster
+     * @return Parallel stream of parsed records, which must be closed
+     * @throws RuntimeException if the file cannot be opened or split
+     */
+    public Stream<VisaBase2Record> streamRecordsParallel(String filePath, boolean ordered) {
+        int parts = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        try {
+            FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ);
+            List<ByteRange> ranges;
+            try {
+                ranges = CsvFileSplitter.split(channel, parts);
+            } catch (UncheckedIOException e) {
+                channel.close();
+                throw e;
+            }
+            logger.info("Split file {} into {} byte ranges", filePath, ranges.size());
+
+            Stream<VisaBase2Record> records = StreamSupport.stream(
+                    new MappedRangeSpliterator<>(channel, ranges, this::parseMappedRecord, true), true)
+                .onClose(() -> {
+                    try {
+                        channel.close();
+                        logger.debug("File channel closed successfully");
+                    } catch (IOException e) {
+                        logger.error("Error closing file channel", e);
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            return ordered ? records : records.unordered();
+        } catch (IOException | UncheckedIOException e) {
+            logger.error("Error streaming file: {}", filePath, e);
+            throw new RuntimeException("Error streaming file: " + filePath, e);
+        }
+    }
+
+    /**
+     * Estimates the number of records in a file from the line density of its first block.
+     * Cheap enough to size indexes and filters before the file is read.
+     * 
+     * @param filePath Path to the file
+     * @return Estimated record count, at least 1
+     * @throws RuntimeException if the file cannot be read
+     */
+    public long estimateRecordCount(String filePath) {
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            ByteBuffer sample = ByteBuffer.allocate(ESTIMATE_SAMPLE_BYTES);
+            int read = Math.max(0, channel.read(sample, 0));
+            int lines = 0;
+            for (int i = 0; i < read; i++) {
+                if (sample.get(i) == '\n') {
+                    lines++;
+                }
+            }
+            if (lines == 0 || read == 0) {
+                return 1;
+            }
+            return Math.max(1, channel.size() * lines / read);
+        } catch (IOException e) {
+            logger.error("Error estimating record count of file: {}", filePath, e);
+            throw new RuntimeException("Error reading file: " + filePath, e);
+        }
+    }
+
     /**
      * Collects transaction IDs from a file.
      * Useful for quick validation or indexing operations.
@@ -199,9 +409,10 @@ public class FileReader {
         logger.info("Collecting transaction IDs from file: {}", filePath);
         long startTime = System.currentTimeMillis();
 
-        List<String> result = streamRecords(filePath)
-            .map(record -> record.getTransactionId())
-            .collect(Collectors.toList());
+        List<String> result;
+        try (Stream<String> transactionIds = streamTransactionIds(filePath)) {
+            result = transactionIds.collect(Collectors.toList());
+        }
 
         long endTime = System.currentTimeMillis();
         logger.info("Collected {} transaction IDs in {} ms", 
@@ -209,9 +420,54 @@ public class FileReader {
         return result;
     }
 
+    /**
+     * Streams a file as consecutive fixed-size batches of records.
+     * Batches are built straight off the underlying reader, so at most one batch of parsed
+     * records is held at a time and memory stays proportional to the batch size, not the file.
+     * Records that fail to parse or have no transaction ID are dropped. The returned stream
+     * must be closed to release the file handle.
+     * 
+     * @param filePath Path to the file to read
+     * @param batchSize Maximum number of records per batch
+     * @return Stream of record batches in file order; the last batch may be smaller
+     */
+    public Stream<List<VisaBase2Record>> streamBatches(String filePath, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        Stream<VisaBase2Record> records = streamRecords(filePath);
+        Iterator<VisaBase2Record> recordIterator = records
+            .filter(record -> record != null && record.getTransactionId() != null)
+            .iterator();
+
+        Iterator<List<VisaBase2Record>> batchIterator = new Iterator<List<VisaBase2Record>>() {
+            @Override
+            public boolean hasNext() {
+                return recordIterator.hasNext();
+            }
+
+            @Override
+            public List<VisaBase2Record> next() {
+                if (!recordIterator.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                List<VisaBase2Record> batch = new ArrayList<>(batchSize);
+                while (batch.size() < batchSize && recordIterator.hasNext()) {
+                    batch.add(recordIterator.next());
+                }
+                return batch;
+            }
+        };
+
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(batchIterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+            .onClose(records::close);
+    }
+
     /**
      * Processes a file in batches, grouping records for efficient processing.
-     * Uses buffered streaming and parallel processing for improved performance.
+     * Reads, parses and hands over one batch at a time in file order, so memory use is
+     * bounded by the batch size regardless of how large the file is.
      * 
      * @param filePath Path to the file to process
      * @param batchSize Size of each batch
@@ -219,31 +475,21 @@ public class FileReader {
      * @throws RuntimeException if file cannot be read
      */
     public void processByBatch(String filePath, int batchSize, Consumer<List<VisaBase2Record>> batchProcessor) {
-        logger.info("Starting optimized batch processing of file: {} with batch size: {}", filePath, batchSize);
+        logger.info("Starting streaming batch processing of file: {} with batch size: {}", filePath, batchSize);
         long startTime = System.currentTimeMillis();
         final AtomicInteger recordCount = new AtomicInteger(0);
         final AtomicInteger batchCount = new AtomicInteger(0);
 
-        try {
-            // Collect all records first
-            List<VisaBase2Record> allRecords = streamRecords(filePath)
-                .filter(record -> record != null && record.getTransactionId() != null)
-                .collect(Collectors.toList());
-
-            // Process records in batches
-            for (int i = 0; i < allRecords.size(); i += batchSize) {
-                int endIndex = Math.min(i + batchSize, allRecords.size());
-                List<VisaBase2Record> batch = allRecords.subList(i, endIndex);
-                
-                batchProcessor.accept(batch); 
+        try (Stream<List<VisaBase2Record>> batches = streamBatches(filePath, batchSize)) {
+            batches.forEach(batch -> {
+                batchProcessor.accept(batch);
                 recordCount.addAndGet(batch.size());
                 batchCount.incrementAndGet();
-                
+
                 if (batchCount.get() % 10 == 0) {
                     logger.info("Processed {} batches with {} records", batchCount.get(), recordCount.get());
                 }
-            }
-
+            });
         } catch (Exception e) {
             logger.error("Error processing file in batches: {}", filePath, e);
             throw new RuntimeException("Error processing file: " + filePath, e);
@@ -253,32 +499,4 @@ public class FileReader {
         logger.info("Completed batch processing: {} records in {} batches, took {} ms", 
             recordCount.get(), batchCount.get(), (endTime - startTime));
     }
-
-    public void processByBatch1(String filePath, int batchSize, Consumer<List<VisaBase2Record>> batchProcessor) {
-        logger.info("Starting batch processing of file: {} with batch size: {}", filePath, batchSize);
-        long startTime = System.currentTimeMillis();
-        final AtomicInteger batchCount = new AtomicInteger(0);
-
-        try (BufferedReader reader = Files.newBufferedReader(Paths.get(filePath))) {
-            reader.lines()
-                 .skip(1)
-                 .filter(line -> !line.trim().isEmpty())
-                 .map(this::parseRecord)
-                 .collect(Collectors.groupingBy(record -> 
-                     ThreadLocalRandom.current().nextInt(batchSize)))
-                 .values()
-                 .forEach(batch -> {
-                     batchProcessor.accept(batch);
-                     int count = batchCount.incrementAndGet();
-                     logger.debug("Processed batch {} with {} records", count, batch.size());
-                 });
-        } catch (IOException e) {
-            logger.error("Error processing file in batches: {}", filePath, e);
-            throw new RuntimeException("Error processing file: " + filePath, e);
-        }
-
-        long endTime = System.currentTimeMillis();
-        logger.info("Completed batch processing of {} batches in {} ms", 
-            batchCount.get(), (endTime - startTime));
-    }
-}
\ No newline at end of file
+}
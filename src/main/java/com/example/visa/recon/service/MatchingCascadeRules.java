@@ -0,0 +1,57 @@
+package com.example.visa.recon.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.visa.recon.matching.MatchingStage;
+
+/**
+ * Keys transactions are matched on, in the order they are tried, taken from
+ * {@code reconciliation.matching.cascade}. Whatever no key matches is left to fuzzy matching or
+ * reported as missing. An empty list leaves everything to fuzzy matching.
+ * 
+ * The default is transaction ID only; alternate keys such as {@code rrn} change which records
+ * pair up and are opt-in.
+ */
+@Component
+public class MatchingCascadeRules {
+    private static final Logger logger = LoggerFactory.getLogger(MatchingCascadeRules.class);
+
+    private final List<MatchingStage> stages;
+
+    public MatchingCascadeRules(
+            @Value("${reconciliation.matching.cascade:transactionId}")
+            List<String> stageNames) {
+        List<MatchingStage> resolved = new ArrayList<>();
+        for (String name : stageNames) {
+            if (name.isBlank()) {
+                continue;
+            }
+            MatchingStage stage = MatchingStage.fromName(name);
+            if (!resolved.contains(stage)) {
+                resolved.add(stage);
+            }
+        }
+        this.stages = Collections.unmodifiableList(resolved);
+        logger.info("Matching cascade tries keys {}", stages);
+    }
+
+    public List<MatchingStage> getStages() {
+        return stages;
+    }
+
+    /**
+     * @return Stages after the transaction ID one, for paths that already join on transaction ID
+     */
+    public List<MatchingStage> getAlternateStages() {
+        List<MatchingStage> alternates = new ArrayList<>(stages);
+        alternates.remove(MatchingStage.TRANSACTION_ID);
+        return alternates;
+    }
+}
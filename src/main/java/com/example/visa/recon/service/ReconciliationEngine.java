@@ -1,19 +1,32 @@
 package com.example.visa.recon.service;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
+import com.example.visa.recon.matching.MatchingCascade;
+import com.example.visa.recon.matching.MatchingStage;
 import com.example.visa.recon.model.dto.VisaBase2Record;
 
 /**
  * Core engine responsible for reconciling transactions between switch and network systems.
  * This class handles the comparison of transactions and detection of discrepancies.
- * It uses parallel processing for efficient handling of large transaction sets.
+ * Network transactions are indexed by transaction ID and probed in parallel from the switch
+ * side, so reconciliation runs in a single linear pass over both inputs. Transactions left
+ * unmatched by ID can be matched on further keys, such as RRN or ARN, before they are reported
+ * as missing.
  */
 @Service
 public class ReconciliationEngine {
@@ -25,6 +38,9 @@ public class ReconciliationEngine {
     // List of transactions from network (Visa/RuPay)
     private List<VisaBase2Record> networkTransactions;
 
+    // Keys tried, in order, on transactions the transaction ID join leaves unmatched
+    private List<MatchingStage> alternateStages;
+
     /**
      * Initializes the ReconciliationEngine with switch and network transactions.
      * 
@@ -32,8 +48,24 @@ public class ReconciliationEngine {
      * @param networkTransactions List of transactions from the network (Visa/RuPay)
      */
     public ReconciliationEngine(List<VisaBase2Record> switchTransactions, List<VisaBase2Record> networkTransactions) {
+        this(switchTransactions, networkTransactions, List.of(MatchingStage.TRANSACTION_ID));
+    }
+
+    /**
+     * Initializes the ReconciliationEngine with switch and network transactions and a matching
+     * cascade. Transactions are always joined on transaction ID first; the other stages are
+     * tried, in order, on the transactions that join leaves unmatched.
+     * 
+     * @param switchTransactions List of transactions from the switch system
+     * @param networkTransactions List of transactions from the network (Visa/RuPay)
+     * @param stages Keys to match on, in the order they are tried
+     */
+    public ReconciliationEngine(List<VisaBase2Record> switchTransactions, List<VisaBase2Record> networkTransactions,
+                                List<MatchingStage> stages) {
         this.switchTransactions = switchTransactions;
         this.networkTransactions = networkTransactions;
+        this.alternateStages = new ArrayList<>(stages);
+        this.alternateStages.remove(MatchingStage.TRANSACTION_ID);
         logger.info("Initialized ReconciliationEngine with {} switch transactions and {} network transactions", 
             switchTransactions.size(), networkTransactions.size());
     }
@@ -57,20 +89,56 @@ public class ReconciliationEngine {
     }
 
     /**
-     * Performs the reconciliation process by comparing switch transactions with network transactions.
-     * Uses parallel processing for efficient comparison of large transaction sets.
+     * Performs the reconciliation process as a hash join between switch and network transactions.
+     * The network side is indexed by transaction ID once and then probed in parallel from the
+     * switch side, so the whole run is linear in the size of both inputs. Transactions the join
+     * leaves unmatched then go through the alternate keys of the cascade, each stage hashing
+     * only the leftovers of the one before. Missing-in-network, missing-in-switch and field
+     * mismatches are all reported from this single pass.
      * 
      * @return List of discrepancies found during reconciliation
      */
     public List<Discrepancy> reconcile() {
         logger.info("Starting reconciliation process");
         long startTime = System.currentTimeMillis();
-        
-        // Step 1: Compare transactions in parallel
+
+        // Step 1: Build the network-side index (first occurrence wins, as with the old scan)
+        Map<String, VisaBase2Record> networkIndex = new HashMap<>(Math.max(16, networkTransactions.size() * 4 / 3 + 1));
+        for (VisaBase2Record networkTx : networkTransactions) {
+            if (networkTx != null && networkTx.getTransactionId() != null) {
+                networkIndex.putIfAbsent(networkTx.getTransactionId(), networkTx);
+            }
+        }
+        Set<String> switchTransactionIds = ConcurrentHashMap.newKeySet(Math.max(16, switchTransactions.size()));
+        switchTransactions.parallelStream()
+                .filter(switchTx -> switchTx != null && switchTx.getTransactionId() != null)
+                .forEach(switchTx -> switchTransactionIds.add(switchTx.getTransactionId()));
+
+        // Step 2: Match what the ID join leaves over on the alternate keys
+        Map<VisaBase2Record, VisaBase2Record> alternateMatches = matchOnAlternateKeys(networkIndex, switchTransactionIds);
+        Set<VisaBase2Record> alternateNetworkMatches = Collections.newSetFromMap(new IdentityHashMap<>());
+        alternateNetworkMatches.addAll(alternateMatches.values());
+
+        // Step 3: Probe the index in parallel from the switch side
         List<Discrepancy> discrepancies = switchTransactions.parallelStream()
-                .map(switchTx -> compareTransactionWithNetwork(switchTx))
+                .filter(switchTx -> switchTx != null && switchTx.getTransactionId() != null)
+                .map(switchTx -> probeNetworkIndex(switchTx, networkIndex, alternateMatches))
                 .filter(discrepancy -> discrepancy != null) // Only non-null discrepancies
-                .collect(Collectors.toList());
+                .collect(Collectors.toCollection(ArrayList::new));
+
+        // Step 4: Whatever the switch side never probed or matched is missing in the switch,
+        // reported in network input order so the report is the same on every run
+        for (VisaBase2Record networkTx : networkTransactions) {
+            if (networkTx == null || networkTx.getTransactionId() == null) {
+                continue;
+            }
+            String transactionId = networkTx.getTransactionId();
+            if (networkIndex.get(transactionId) == networkTx && !switchTransactionIds.contains(transactionId)
+                    && !alternateNetworkMatches.contains(networkTx)) {
+                logger.debug("Transaction {} not found in switch", transactionId);
+                discrepancies.add(new Discrepancy(transactionId, "Missing in Switch"));
+            }
+        }
 
         long endTime = System.currentTimeMillis();
         logger.info("Reconciliation completed in {} ms. Found {} discrepancies", 
@@ -79,44 +147,144 @@ public class ReconciliationEngine {
         return discrepancies;
     }
 
+    /**
+     * Runs the alternate stages of the cascade over the switch transactions whose ID is not in
+     * the network index and the network transactions whose ID no switch transaction has,
+     * including network transactions without an ID.
+     * 
+     * @return Network transaction matched to each switch transaction, by identity
+     */
+    private Map<VisaBase2Record, VisaBase2Record> matchOnAlternateKeys(Map<String, VisaBase2Record> networkIndex,
+                                                                       Set<String> switchTransactionIds) {
+        Map<VisaBase2Record, VisaBase2Record> matches = new IdentityHashMap<>();
+        if (alternateStages.isEmpty()) {
+            return matches;
+        }
+        List<VisaBase2Record> unmatchedSwitch = switchTransactions.stream()
+                .filter(switchTx -> switchTx != null && switchTx.getTransactionId() != null)
+                .filter(switchTx -> !networkIndex.containsKey(switchTx.getTransactionId()))
+                .collect(Collectors.toList());
+        List<VisaBase2Record> unmatchedNetwork = networkTransactions.stream()
+                .filter(networkTx -> networkTx != null)
+                .filter(networkTx -> networkTx.getTransactionId() == null
+                    || (networkIndex.get(networkTx.getTransactionId()) == networkTx
+                        && !switchTransactionIds.contains(networkTx.getTransactionId())))
+                .collect(Collectors.toList());
+        if (unmatchedSwitch.isEmpty() || unmatchedNetwork.isEmpty()) {
+            return matches;
+        }
+
+        MatchingCascade.Result result = new MatchingCascade(alternateStages).match(unmatchedSwitch, unmatchedNetwork);
+        for (MatchingCascade.Match match : result.getMatches()) {
+            matches.put(match.getSource(), match.getTarget());
+        }
+        result.getMatchedByStage().forEach((stage, count) ->
+            logger.info("Matched {} transactions without a common ID on {}", count, stage));
+        return matches;
+    }
+
+    /**
+     * Looks up a single switch transaction in the network index and compares it with its match.
+     * A switch transaction whose ID is not in the index is compared with the network
+     * transaction the alternate keys matched it to, if any.
+     * 
+     * @param switchTx The switch transaction to compare
+     * @param networkIndex Network transactions keyed by transaction ID
+     * @param alternateMatches Network transactions matched on alternate keys, by switch transaction
+     * @return Discrepancy object if a discrepancy is found, null otherwise
+     */
+    private Discrepancy probeNetworkIndex(VisaBase2Record switchTx, Map<String, VisaBase2Record> networkIndex,
+                                          Map<VisaBase2Record, VisaBase2Record> alternateMatches) {
+        VisaBase2Record networkTx = networkIndex.get(switchTx.getTransactionId());
+        if (networkTx == null) {
+            networkTx = alternateMatches.get(switchTx);
+        }
+        if (networkTx == null) {
+            logger.debug("Transaction {} not found in network", switchTx.getTransactionId());
+            return new Discrepancy(switchTx.getTransactionId(), "Missing in Network");
+        }
+        return detectDiscrepancy(switchTx, networkTx);
+    }
+
+    /**
+     * Reference implementation of the switch-side reconciliation using a nested scan of the
+     * network transactions for every switch transaction. It is O(n x m) and only kept so tests
+     * can check {@link #reconcile()} against it; it does not report missing-in-switch records.
+     * 
+     * @return List of switch-side discrepancies found by the nested scan
+     */
+    List<Discrepancy> reconcileByNestedScan() {
+        return switchTransactions.stream()
+                .map(switchTx -> compareTransactionWithNetwork(switchTx))
+                .filter(discrepancy -> discrepancy != null)
+                .collect(Collectors.toList());
+    }
+
     /**
      * Compares a single switch transaction with network transactions to find matches and discrepancies.
+     * Scans the full network list; used only by {@link #reconcileByNestedScan()}.
      * 
      * @param switchTx The switch transaction to compare
      * @return Discrepancy object if a discrepancy is found, null otherwise
      */
     private Discrepancy compareTransactionWithNetwork(VisaBase2Record switchTx) {
-        logger.debug("Comparing switch transaction {} with network transactions", switchTx.getTransactionId());
-        return networkTransactions.parallelStream()
-                .filter(networkTx -> networkTx.getTransactionId().equals(switchTx.getTransactionId()))
+        // Optional.map would turn a match without discrepancy into "Missing in Network"
+        VisaBase2Record networkTx = networkTransactions.stream()
+                .filter(candidate -> candidate.getTransactionId().equals(switchTx.getTransactionId()))
                 .findFirst()
-                .map(networkTx -> detectDiscrepancy(switchTx, networkTx))
-                .orElseGet(() -> {
-                    logger.debug("Transaction {} not found in network", switchTx.getTransactionId());
-                    return new Discrepancy(switchTx.getTransactionId(), "Missing in Network");
-                });
+                .orElse(null);
+        if (networkTx == null) {
+            return new Discrepancy(switchTx.getTransactionId(), "Missing in Network");
+        }
+        return detectDiscrepancy(switchTx, networkTx);
     }
 
     /**
      * Detects discrepancies between a switch transaction and its matching network transaction.
-     * Currently checks for amount mismatches, but can be extended to check other fields.
+     * Checks amount first and then the remaining reconciled fields, reporting the first mismatch.
      * 
      * @param switchTx The switch transaction
      * @param networkTx The matching network transaction
      * @return Discrepancy object if a discrepancy is found, null otherwise
      */
     private Discrepancy detectDiscrepancy(VisaBase2Record switchTx, VisaBase2Record networkTx) {
-        if (!switchTx.getAmount().equals(networkTx.getAmount())) {
+        if (!Objects.equals(switchTx.getAmount(), networkTx.getAmount())) {
             logger.warn("Amount mismatch detected for transaction {}: Switch={}, Network={}", 
                 switchTx.getTransactionId(), switchTx.getAmount(), networkTx.getAmount());
             return new Discrepancy(
                 switchTx.getTransactionId(), 
                 "Amount Mismatch", 
-                new BigDecimal(switchTx.getAmount()),
-                new BigDecimal(networkTx.getAmount())
+                toAmount(switchTx.getAmount()),
+                toAmount(networkTx.getAmount())
             );
         }
+
+        String discrepancyType = null;
+        if (!Objects.equals(switchTx.getResponseCode(), networkTx.getResponseCode())) {
+            discrepancyType = "Response Code Mismatch";
+        } else if (!Objects.equals(switchTx.getAuthorizationCode(), networkTx.getAuthorizationCode())) {
+            discrepancyType = "Authorization Code Mismatch";
+        } else if (!Objects.equals(switchTx.getTransactionDate(), networkTx.getTransactionDate())) {
+            discrepancyType = "Transaction Date Mismatch";
+        } else if (!Objects.equals(switchTx.getRrn(), networkTx.getRrn())) {
+            discrepancyType = "RRN Mismatch";
+        } else if (!Objects.equals(switchTx.getTransactionType(), networkTx.getTransactionType())) {
+            discrepancyType = "Transaction Type Mismatch";
+        }
+
+        if (discrepancyType != null) {
+            logger.warn("{} detected for transaction {}", discrepancyType, switchTx.getTransactionId());
+            return new Discrepancy(switchTx.getTransactionId(), discrepancyType);
+        }
         logger.debug("No discrepancy found for transaction {}", switchTx.getTransactionId());
         return null;
     }
+
+    private BigDecimal toAmount(String amount) {
+        try {
+            return amount == null ? null : new BigDecimal(amount.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
 }
@@ -1,8 +1,11 @@
 package com.example.visa.recon.service;
 
 import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
 import org.springframework.batch.core.JobParameters;
 import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.explore.JobExplorer;
 import org.springframework.batch.core.launch.JobLauncher;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -20,6 +23,9 @@ public class ReconciliationJobService {
     @Autowired
     private Job reconciliationJob;
 
+    @Autowired
+    private JobExplorer jobExplorer;
+
     /**
      * Triggers the reconciliation job with the specified file path.
      * 
@@ -35,4 +41,21 @@ public class ReconciliationJobService {
 
         return jobLauncher.run(reconciliationJob, jobParameters).getJobId().toString();
     }
+
+    /**
+     * Restarts a failed or stopped reconciliation job. Steps resume from the reader
+     * positions saved at their last commit.
+     * 
+     * @param jobId Job ID returned by {@link #triggerReconciliation(String)}
+     * @return Job ID
+     * @throws Exception if the job cannot be restarted
+     */
+    public String restartReconciliation(long jobId) throws Exception {
+        JobInstance jobInstance = jobExplorer.getJobInstance(jobId);
+        if (jobInstance == null) {
+            throw new IllegalArgumentException("No reconciliation job with ID " + jobId);
+        }
+        JobExecution lastExecution = jobExplorer.getLastJobExecution(jobInstance);
+        return jobLauncher.run(reconciliationJob, lastExecution.getJobParameters()).getJobId().toString();
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,226 @@
+package com.example.visa.recon.service;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.visa.recon.index.BloomFilter;
+import com.example.visa.recon.repository.VisaBase2RecordRepository;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+
+/**
+ * Optional Bloom filter stage in front of the exact "missing" checks.
+ * A filter is built from the transaction IDs of one side; IDs the filter rejects are
+ * definitely missing on that side and skip the exact set lookup or database query, and only
+ * "maybe present" IDs go on to the exact check. Enabled by
+ * {@code reconciliation.bloom-filter.enabled}.
+ * 
+ * Each filter is a {@link Screen} owned by the run that built it and passed to whatever checks
+ * against it, so runs that overlap never see each other's filters. For each side the filter
+ * size, insertions, expected false-positive rate and the rate observed from confirmed lookups
+ * of the most recently built screen are published as gauges tagged with {@code side}.
+ */
+@Service
+public class TransactionIdPrescreen {
+    private static final Logger logger = LoggerFactory.getLogger(TransactionIdPrescreen.class);
+
+    /**
+     * Side of the reconciliation whose transaction IDs a filter is built from.
+     */
+    public enum Side {
+        DATABASE, FILE
+    }
+
+    @Value("${reconciliation.bloom-filter.enabled:false}")
+    private boolean enabled;
+
+    @Value("${reconciliation.bloom-filter.fpp:0.01}")
+    private double falsePositiveRate;
+
+    @Autowired
+    private VisaBase2RecordRepository repository;
+
+    @Autowired
+    private FileReader fileReader;
+
+    // Latest screen of each side, read only by the gauges
+    private final Map<Side, AtomicReference<Screen>> latest = new EnumMap<>(Side.class);
+
+    public TransactionIdPrescreen(ObjectProvider<MeterRegistry> meterRegistry) {
+        MeterRegistry registry = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
+        for (Side side : Side.values()) {
+            AtomicReference<Screen> screen = new AtomicReference<>(Screen.NONE);
+            latest.put(side, screen);
+            String tag = side.name().toLowerCase();
+            Gauge.builder("reconciliation.bloom.bits", screen, s -> s.get().bitSize())
+                .description("Size of the transaction ID Bloom filter in bits")
+                .tag("side", tag)
+                .register(registry);
+            Gauge.builder("reconciliation.bloom.insertions", screen, s -> s.get().insertions())
+                .description("Transaction IDs added to the Bloom filter")
+                .tag("side", tag)
+                .register(registry);
+            Gauge.builder("reconciliation.bloom.fpp.expected", screen, s -> s.get().expectedFalsePositiveRate())
+                .description("False-positive rate expected from the filter fill")
+                .tag("side", tag)
+                .register(registry);
+            Gauge.builder("reconciliation.bloom.fpp.observed", screen, s -> s.get().observedFalsePositiveRate())
+                .description("False-positive rate observed from exact lookups")
+                .tag("side", tag)
+                .register(registry);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Creates a new empty screen for a side.
+     * 
+     * @param side Side the IDs will come from
+     * @param expectedInsertions Number of IDs expected to be added
+     * @return The screen, for the caller to fill and check against
+     */
+    public Screen create(Side side, long expectedInsertions) {
+        BloomFilter filter = BloomFilter.create(expectedInsertions, falsePositiveRate);
+        Screen screen = new Screen(side, filter);
+        latest.get(side).set(screen);
+        logger.info("Created {} Bloom filter for {} IDs: {} bits, {} hash functions, {} bytes",
+            side, expectedInsertions, filter.bitSize(), filter.hashFunctions(), filter.sizeInBytes());
+        return screen;
+    }
+
+    /**
+     * Builds a database-side screen by streaming every transaction ID from the table.
+     * 
+     * @return The filled screen
+     */
+    @Transactional(readOnly = true)
+    public Screen buildFromDatabase() {
+        long startTime = System.currentTimeMillis();
+        Screen screen = create(Side.DATABASE, repository.count());
+        try (Stream<String> transactionIds = repository.streamAllTransactionIds()) {
+            transactionIds.forEach(screen::put);
+        }
+        logger.info("Built database Bloom filter with {} IDs in {} ms",
+            screen.filter.insertions(), System.currentTimeMillis() - startTime);
+        return screen;
+    }
+
+    /**
+     * Builds a file-side screen by streaming every transaction ID from a file.
+     * 
+     * @param filePath File to read the IDs from
+     * @return The filled screen
+     */
+    public Screen buildFromFile(String filePath) {
+        long startTime = System.currentTimeMillis();
+        Screen screen = create(Side.FILE, fileReader.estimateRecordCount(filePath));
+        try (Stream<String> transactionIds = fileReader.streamTransactionIds(filePath)) {
+            transactionIds.forEach(screen::put);
+        }
+        logger.info("Built file Bloom filter with {} IDs in {} ms",
+            screen.filter.insertions(), System.currentTimeMillis() - startTime);
+        return screen;
+    }
+
+    /**
+     * Logs the final statistics of a screen once its run no longer checks against it.
+     * The gauges keep reporting the figures of a side's latest screen.
+     * 
+     * @param screen Screen of the finished run; {@link Screen#NONE} is ignored
+     */
+    public void release(Screen screen) {
+        if (screen.filter != null) {
+            logger.info("{} Bloom filter: {} IDs, {} screened out, {} false positives, observed fpp {}, expected fpp {}",
+                screen.side, screen.insertions(), screen.trueNegatives.sum(), screen.falsePositives.sum(),
+                screen.observedFalsePositiveRate(), screen.expectedFalsePositiveRate());
+        }
+    }
+
+    /**
+     * Bloom filter of one side for one run, together with the counters of the lookups made
+     * against it. Thread-safe.
+     */
+    public static class Screen {
+        /**
+         * Screen without a filter, for runs with the pre-screen disabled: nothing is screened out.
+         */
+        public static final Screen NONE = new Screen(null, null);
+
+        private final Side side;
+        private final BloomFilter filter;
+        private final LongAdder trueNegatives = new LongAdder();
+        private final LongAdder falsePositives = new LongAdder();
+
+        private Screen(Side side, BloomFilter filter) {
+            this.side = side;
+            this.filter = filter;
+        }
+
+        /**
+         * Adds an ID of the screened side to the filter.
+         * 
+         * @param transactionId ID to add
+         */
+        public void put(String transactionId) {
+            if (filter != null) {
+                filter.put(transactionId);
+            }
+        }
+
+        /**
+         * @param transactionId ID to check
+         * @return true only if there is a filter and it rules the ID out
+         */
+        public boolean definitelyAbsent(String transactionId) {
+            if (filter == null || filter.mightContain(transactionId)) {
+                return false;
+            }
+            trueNegatives.increment();
+            return true;
+        }
+
+        /**
+         * Records that an ID the filter let through was not found by the exact check.
+         * Does nothing without a filter.
+         */
+        public void recordFalsePositive() {
+            if (filter != null) {
+                falsePositives.increment();
+            }
+        }
+
+        double bitSize() {
+            return filter == null ? 0 : filter.bitSize();
+        }
+
+        double insertions() {
+            return filter == null ? 0 : filter.insertions();
+        }
+
+        double expectedFalsePositiveRate() {
+            return filter == null ? 0 : filter.expectedFalsePositiveRate();
+        }
+
+        double observedFalsePositiveRate() {
+            long fp = falsePositives.sum();
+            long negatives = fp + trueNegatives.sum();
+            return negatives == 0 ? 0 : (double) fp / negatives;
+        }
+    }
+}
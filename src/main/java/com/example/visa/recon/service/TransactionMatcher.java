@@ -1,16 +1,23 @@
 package com.example.visa.recon.service;
 
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.ToDoubleBiFunction;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import com.example.visa.recon.matching.FuzzyMatchIndex;
+import com.example.visa.recon.matching.MatchingCascade;
+import com.example.visa.recon.matching.MatchingKey;
+import com.example.visa.recon.matching.MatchingKeyMap;
+import com.example.visa.recon.matching.MatchingStage;
+import com.example.visa.recon.matching.ParallelFuzzyMatcher;
+import com.example.visa.recon.matching.ParsedTransaction;
 import com.example.visa.recon.model.dto.VisaBase2Record;
 
 import lombok.AllArgsConstructor;
@@ -25,6 +32,20 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 @Service
 public class TransactionMatcher {
+    private static final double FUZZY_MATCH_THRESHOLD = 0.8;
+
+    @Value("${reconciliation.matching.parallel:false}")
+    private boolean parallel;
+
+    @Value("${reconciliation.matching.assignment.max-size:0}")
+    private int assignmentMaxSize;
+
+    @Autowired
+    @Qualifier("matchingPool")
+    private ForkJoinPool matchingPool;
+
+    @Autowired
+    private MatchingCascadeRules cascadeRules;
 
     /**
      * Represents a matched pair of transactions with their match score.
@@ -39,23 +60,26 @@ public class TransactionMatcher {
     }
 
     /**
-     * Creates a unique hash key for a transaction based on its attributes.
+     * Creates a unique key for a transaction based on its attributes.
      * Used for exact matching of transactions.
      * 
      * @param transaction The transaction to create a key for
-     * @return A unique string key combining transaction ID, timestamp, and amount
+     * @return Key combining a hash of the transaction ID, the timestamp and the amount in cents,
+     *         or null if the timestamp or amount cannot be parsed
      */
-    private String createMatchingKey(VisaBase2Record transaction) {
-        return String.format("%s_%s_%d",
-            transaction.getTransactionId(),
-            LocalDateTime.parse(transaction.getTransactionDate()+transaction.getTransactionTime(), DateTimeFormatter.ISO_LOCAL_DATE_TIME),
-            Math.round(Double.parseDouble(transaction.getAmount()) * 100) // Convert to cents to avoid floating point issues
-        );
+    private MatchingKey createMatchingKey(VisaBase2Record transaction) {
+        try {
+            return MatchingKey.of(transaction);
+        } catch (RuntimeException e) {
+            log.warn("Skipping transaction {} for exact matching: {}", transaction.getTransactionId(), e.getMessage());
+            return null;
+        }
     }
 
     /**
      * Performs exact matching of transactions based on their hash keys.
-     * This method is faster than fuzzy matching but requires exact matches.
+     * This method is faster than fuzzy matching but requires exact matches. A key hit is only
+     * a match when the transaction IDs are equal, so a hash collision is treated as a miss.
      * 
      * @param sourceTransactions List of transactions from the source system
      * @param targetTransactions List of transactions from the target system
@@ -67,21 +91,30 @@ public class TransactionMatcher {
             sourceTransactions.size(), targetTransactions.size());
         long startTime = System.currentTimeMillis();
 
-        Map<String, VisaBase2Record> targetMap = new HashMap<>();
+        MatchingKeyMap<VisaBase2Record> targetMap = new MatchingKeyMap<>(targetTransactions.size());
         List<MatchedPair> matches = new ArrayList<>();
 
         // Create hash map of target transactions for O(1) lookup
         for (VisaBase2Record target : targetTransactions) {
-            targetMap.put(createMatchingKey(target), target);
+            MatchingKey key = createMatchingKey(target);
+            if (key != null) {
+                targetMap.put(key, target);
+            }
         }
 
         // Find matches
         for (VisaBase2Record source : sourceTransactions) {
-            String key = createMatchingKey(source);
-            VisaBase2Record match = targetMap.get(key);
+            MatchingKey key = createMatchingKey(source);
+            VisaBase2Record match = key == null ? null : targetMap.get(key);
+            if (match != null && !Objects.equals(match.getTransactionId(), source.getTransactionId())) {
+                // The key holds a hash of the ID, so confirm the IDs before pairing two records
+                log.warn("Matching key collision between transactions {} and {}",
+                    source.getTransactionId(), match.getTransactionId());
+                match = null;
+            }
             if (match != null) {
-                matches.add(new MatchedPair(source, match, 1.0));
                 targetMap.remove(key); // Remove matched transaction to prevent duplicate matches
+                matches.add(new MatchedPair(source, match, 1.0));
                 log.debug("Found exact match for transaction {}", source.getTransactionId());
             }
         }
@@ -92,9 +125,69 @@ public class TransactionMatcher {
         return matches;
     }
 
+    /**
+     * Matches transactions through the configured cascade of keys and fuzzy-matches the rest,
+     * see {@link #findCascadeMatches(List, List, List, long, double)}.
+     */
+    public List<MatchedPair> findCascadeMatches(List<VisaBase2Record> sourceTransactions, 
+                                               List<VisaBase2Record> targetTransactions,
+                                               long timeToleranceMinutes,
+                                               double amountTolerancePercent) {
+        return findCascadeMatches(sourceTransactions, targetTransactions, cascadeRules.getStages(),
+            timeToleranceMinutes, amountTolerancePercent);
+    }
+
+    /**
+     * Matches transactions on each key of a cascade in turn, for example transaction ID, then
+     * RRN, then ARN, then STAN with terminal and date, and fuzzy-matches only what no key
+     * matched. Each stage hashes the leftovers of the one before, so apart from the fuzzy step
+     * the cost is linear in the input. Key matches have a score of 1.0 and come first, by stage.
+     * 
+     * @param sourceTransactions List of transactions from the source system
+     * @param targetTransactions List of transactions from the target system
+     * @param stages Keys to match on, in the order they are tried
+     * @param timeToleranceMinutes Maximum allowed time difference in minutes for fuzzy matches
+     * @param amountTolerancePercent Maximum allowed amount difference as percentage for fuzzy matches
+     * @return List of matched transaction pairs with their match scores
+     */
+    public List<MatchedPair> findCascadeMatches(List<VisaBase2Record> sourceTransactions, 
+                                               List<VisaBase2Record> targetTransactions,
+                                               List<MatchingStage> stages,
+                                               long timeToleranceMinutes,
+                                               double amountTolerancePercent) {
+        log.info("Starting cascade matching process with {} source and {} target transactions on keys {}", 
+            sourceTransactions.size(), targetTransactions.size(), stages);
+        long startTime = System.currentTimeMillis();
+
+        MatchingCascade.Result result = new MatchingCascade(stages).match(sourceTransactions, targetTransactions);
+        List<MatchedPair> matches = new ArrayList<>();
+        for (MatchingCascade.Match match : result.getMatches()) {
+            matches.add(new MatchedPair(match.getSource(), match.getTarget(), 1.0));
+        }
+        result.getMatchedByStage().forEach((stage, count) -> log.info("Matched {} transactions on {}", count, stage));
+
+        if (!result.getUnmatchedSources().isEmpty() && !result.getUnmatchedTargets().isEmpty()) {
+            matches.addAll(findFuzzyMatches(result.getUnmatchedSources(), result.getUnmatchedTargets(),
+                timeToleranceMinutes, amountTolerancePercent));
+        }
+
+        long endTime = System.currentTimeMillis();
+        log.info("Cascade matching completed in {} ms. Found {} matches", 
+            (endTime - startTime), matches.size());
+        return matches;
+    }
+
     /**
      * Performs fuzzy matching of transactions with configurable tolerance levels.
      * Uses a scoring system to find the best matches when exact matches are not found.
+     * Timestamps and amounts are parsed once, and each source only scores the targets of a
+     * {@link FuzzyMatchIndex} inside its time window and amount bands, including targets on
+     * the neighbouring day when the window crosses midnight. By default sources are matched in
+     * list order and each target is matched at most once; records whose date, time or amount cannot be
+     * parsed are skipped. With {@code reconciliation.matching.parallel} the work runs on the
+     * matching pool, see {@link #findFuzzyMatches(List, List, long, double, ForkJoinPool)}.
+     * With {@code reconciliation.matching.assignment.max-size} above 0, sources competing for
+     * the same targets are paired for the best total score rather than in list order.
      * 
      * @param sourceTransactions List of transactions from the source system
      * @param targetTransactions List of transactions from the target system
@@ -106,6 +199,16 @@ public class TransactionMatcher {
                                              List<VisaBase2Record> targetTransactions,
                                              long timeToleranceMinutes,
                                              double amountTolerancePercent) {
+        if (parallel) {
+            return findFuzzyMatches(sourceTransactions, targetTransactions,
+                timeToleranceMinutes, amountTolerancePercent, matchingPool);
+        }
+        if (assignmentMaxSize > 0) {
+            log.info("Starting fuzzy matching process with {} source and {} target transactions", 
+                sourceTransactions.size(), targetTransactions.size());
+            return matchByComponents(sourceTransactions, targetTransactions,
+                timeToleranceMinutes, amountTolerancePercent, null);
+        }
         log.info("Starting fuzzy matching process with {} source and {} target transactions", 
             sourceTransactions.size(), targetTransactions.size());
         log.info("Using time tolerance: {} minutes, amount tolerance: {}%", 
@@ -113,48 +216,115 @@ public class TransactionMatcher {
         long startTime = System.currentTimeMillis();
 
         List<MatchedPair> matches = new ArrayList<>();
-        Map<String, List<VisaBase2Record>> targetDateMap = new HashMap<>();
-
-        // Group target transactions by date for faster searching
-        for (VisaBase2Record target : targetTransactions) {
-            String dateKey = LocalDateTime.parse(target.getTransactionDate()+target.getTransactionTime(), 
-                DateTimeFormatter.ISO_LOCAL_DATE_TIME).format(DateTimeFormatter.ISO_LOCAL_DATE);
-            targetDateMap.computeIfAbsent(dateKey, k -> new ArrayList<>()).add(target);
-        }
+        FuzzyMatchIndex index = new FuzzyMatchIndex(parseAll(targetTransactions, "target"),
+            timeToleranceMinutes, amountTolerancePercent);
+        log.debug("Indexed fuzzy match targets into {} buckets", index.bucketCount());
 
         // Find matches
-        for (VisaBase2Record source : sourceTransactions) {
-            String dateKey = LocalDateTime.parse(source.getTransactionDate()+source.getTransactionTime(), 
-                DateTimeFormatter.ISO_LOCAL_DATE_TIME).format(DateTimeFormatter.ISO_LOCAL_DATE);
-            List<VisaBase2Record> potentialMatches = targetDateMap.getOrDefault(dateKey, new ArrayList<>());
-            
-            VisaBase2Record bestMatch = null;
-            double bestMatchScore = 0.0;
-
-            for (VisaBase2Record target : potentialMatches) {
-                double matchScore = calculateMatchScore(source, target, 
-                    timeToleranceMinutes, amountTolerancePercent);
-                
-                if (matchScore > bestMatchScore && matchScore >= 0.8) { // 80% threshold
-                    bestMatch = target;
-                    bestMatchScore = matchScore;
-                }
-            }
+        for (ParsedTransaction source : parseAll(sourceTransactions, "source")) {
+            ParsedTransaction bestMatch = index.findBest(source,
+                (probe, target) -> calculateMatchScore(probe, target, timeToleranceMinutes, amountTolerancePercent),
+                FUZZY_MATCH_THRESHOLD);
 
             if (bestMatch != null) {
-                matches.add(new MatchedPair(source, bestMatch, bestMatchScore));
-                potentialMatches.remove(bestMatch); // Remove matched transaction
+                double bestMatchScore = calculateMatchScore(source, bestMatch,
+                    timeToleranceMinutes, amountTolerancePercent);
+                matches.add(new MatchedPair(source.getRecord(), bestMatch.getRecord(), bestMatchScore));
+                index.claim(bestMatch); // Remove matched transaction
                 log.debug("Found fuzzy match for transaction {} with score {}", 
-                    source.getTransactionId(), bestMatchScore);
+                    source.getRecord().getTransactionId(), bestMatchScore);
+            }
+        }
+
+        long endTime = System.currentTimeMillis();
+        log.info("Fuzzy matching completed in {} ms. Found {} matches", 
+            (endTime - startTime), matches.size());
+        return matches;
+    }
+
+    /**
+     * Performs fuzzy matching on a fork-join pool.
+     * Candidates are scored in parallel and conflicts are resolved per connected group of
+     * sources and targets, so the pairs and their order are exactly those of the sequential
+     * matcher, whatever the pool size. Groups no larger than
+     * {@code reconciliation.matching.assignment.max-size} are paired for the best total score.
+     * 
+     * @param sourceTransactions List of transactions from the source system
+     * @param targetTransactions List of transactions from the target system
+     * @param timeToleranceMinutes Maximum allowed time difference in minutes
+     * @param amountTolerancePercent Maximum allowed amount difference as percentage
+     * @param pool Pool to match on
+     * @return List of matched transaction pairs with their match scores
+     */
+    public List<MatchedPair> findFuzzyMatches(List<VisaBase2Record> sourceTransactions, 
+                                             List<VisaBase2Record> targetTransactions,
+                                             long timeToleranceMinutes,
+                                             double amountTolerancePercent,
+                                             ForkJoinPool pool) {
+        log.info("Starting parallel fuzzy matching process with {} source and {} target transactions on {} threads", 
+            sourceTransactions.size(), targetTransactions.size(), pool.getParallelism());
+        return matchByComponents(sourceTransactions, targetTransactions,
+            timeToleranceMinutes, amountTolerancePercent, pool);
+    }
+
+    /**
+     * Matches through {@link ParallelFuzzyMatcher} and logs the assignment statistics.
+     *
+     * @param pool Pool to match on, or null to match on the calling thread
+     */
+    private List<MatchedPair> matchByComponents(List<VisaBase2Record> sourceTransactions,
+                                                List<VisaBase2Record> targetTransactions,
+                                                long timeToleranceMinutes,
+                                                double amountTolerancePercent,
+                                                ForkJoinPool pool) {
+        log.info("Using time tolerance: {} minutes, amount tolerance: {}%", 
+            timeToleranceMinutes, amountTolerancePercent);
+        long startTime = System.currentTimeMillis();
+
+        List<ParsedTransaction> targets = parseAll(targetTransactions, "target");
+        FuzzyMatchIndex index = new FuzzyMatchIndex(targets, timeToleranceMinutes, amountTolerancePercent);
+        List<ParsedTransaction> sources = parseAll(sourceTransactions, "source");
+        ToDoubleBiFunction<ParsedTransaction, ParsedTransaction> scorer =
+            (source, target) -> calculateMatchScore(source, target, timeToleranceMinutes, amountTolerancePercent);
+
+        ParallelFuzzyMatcher matcher = new ParallelFuzzyMatcher(pool, assignmentMaxSize);
+        int[] matchedTargets = matcher.match(sources, targets.size(), index, scorer, FUZZY_MATCH_THRESHOLD);
+
+        List<MatchedPair> matches = new ArrayList<>();
+        for (ParsedTransaction source : sources) {
+            int targetIndex = matchedTargets[source.getIndex()];
+            if (targetIndex >= 0) {
+                ParsedTransaction target = targets.get(targetIndex);
+                matches.add(new MatchedPair(source.getRecord(), target.getRecord(), scorer.applyAsDouble(source, target)));
             }
         }
 
         long endTime = System.currentTimeMillis();
         log.info("Fuzzy matching completed in {} ms. Found {} matches", 
             (endTime - startTime), matches.size());
+        for (String line : matcher.getStats().report()) {
+            log.info("Fuzzy match components {}", line);
+        }
         return matches;
     }
 
+    /**
+     * Parses the timestamps and amounts of a list of transactions, skipping unparseable ones.
+     * Each parsed transaction keeps its position among the parsed ones as its index.
+     */
+    private List<ParsedTransaction> parseAll(List<VisaBase2Record> transactions, String side) {
+        List<ParsedTransaction> parsed = new ArrayList<>(transactions.size());
+        for (VisaBase2Record transaction : transactions) {
+            try {
+                parsed.add(ParsedTransaction.parse(transaction, parsed.size()));
+            } catch (RuntimeException e) {
+                log.warn("Skipping {} transaction {} for fuzzy matching: {}",
+                    side, transaction.getTransactionId(), e.getMessage());
+            }
+        }
+        return parsed;
+    }
+
     /**
      * Calculates a match score between two transactions based on multiple criteria.
      * The score is weighted as follows:
@@ -168,35 +338,32 @@ public class TransactionMatcher {
      * @param amountTolerancePercent Maximum allowed amount difference as percentage
      * @return Match score between 0.0 and 1.0
      */
-    private double calculateMatchScore(VisaBase2Record source, 
-                                     VisaBase2Record target,
+    private double calculateMatchScore(ParsedTransaction source, 
+                                     ParsedTransaction target,
                                      long timeToleranceMinutes,
                                      double amountTolerancePercent) {
         double score = 0.0;
         
         // Compare transaction IDs if available (30% weight)
-        if (Objects.equals(source.getTransactionId(), target.getTransactionId())) {
+        if (Objects.equals(source.getRecord().getTransactionId(), target.getRecord().getTransactionId())) {
             score += 0.3;
-            log.trace("Transaction ID match for {}", source.getTransactionId());
+            log.trace("Transaction ID match for {}", source.getRecord().getTransactionId());
         }
 
         // Compare timestamps (35% weight)
-        long timeDiffMinutes = Math.abs(ChronoUnit.MINUTES.between(
-            LocalDateTime.parse(source.getTransactionDate()+source.getTransactionTime(), DateTimeFormatter.ISO_LOCAL_DATE_TIME),
-            LocalDateTime.parse(target.getTransactionDate()+target.getTransactionTime(), DateTimeFormatter.ISO_LOCAL_DATE_TIME)));
+        long timeDiffMinutes = Math.abs(target.getEpochSecond() - source.getEpochSecond()) / 60;
         if (timeDiffMinutes <= timeToleranceMinutes) {
             score += 0.35 * (1 - ((double) timeDiffMinutes / timeToleranceMinutes));
             log.trace("Time match for {} with difference {} minutes", 
-                source.getTransactionId(), timeDiffMinutes);
+                source.getRecord().getTransactionId(), timeDiffMinutes);
         }
 
         // Compare amounts (35% weight)
-        double amountDiffPercent = Math.abs(Double.parseDouble(source.getAmount()) - Double.parseDouble(target.getAmount())) / 
-            Double.parseDouble(source.getAmount()) * 100;
+        double amountDiffPercent = Math.abs(source.getAmount() - target.getAmount()) / source.getAmount() * 100;
         if (amountDiffPercent <= amountTolerancePercent) {
             score += 0.35 * (1 - (amountDiffPercent / amountTolerancePercent));
             log.trace("Amount match for {} with difference {}%", 
-                source.getTransactionId(), amountDiffPercent);
+                source.getRecord().getTransactionId(), amountDiffPercent);
         }
 
         return score;
@@ -1,14 +1,18 @@
 package com.example.visa.recon.service;
 
 import java.math.BigDecimal;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -18,11 +22,18 @@ import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import java.time.LocalDateTime; 
+import com.example.visa.recon.index.TransactionIdSet;
+import com.example.visa.recon.index.TransactionIdSetFactory;
+import com.example.visa.recon.matching.MatchingStage;
+import com.example.visa.recon.model.dto.ReconciliationView;
 import com.example.visa.recon.model.dto.VisaBase2Record;
 import com.example.visa.recon.model.entity.VisaBase2RecordEntity;
+import com.example.visa.recon.model.enums.ReconciliationField;
 import com.example.visa.recon.repository.VisaBase2RecordRepository;
 import com.example.visa.recon.mapper.VisaBase2RecordMapper;
 import com.example.visa.recon.model.Discrepancy;
+import com.example.visa.recon.service.TransactionIdPrescreen.Screen;
+import com.example.visa.recon.service.TransactionIdPrescreen.Side;
 
 @Service
 public class TwoWayBatchReconciliationService {
@@ -31,6 +42,9 @@ public class TwoWayBatchReconciliationService {
     @Value("${reconciliation.batch.size:1000}")
     private int batchSize;
     
+    @Value("${reconciliation.two-way.single-pass:true}")
+    private boolean singlePass;
+
     @Value("${reconciliation.thread-pool.core-size:4}")
     private int corePoolSize;
     
@@ -52,6 +66,18 @@ public class TwoWayBatchReconciliationService {
     @Autowired
     private ExcelReportGenerator reportGenerator;
 
+    @Autowired
+    private TransactionIdSetFactory transactionIdSetFactory;
+
+    @Autowired
+    private TransactionIdPrescreen prescreen;
+
+    @Autowired
+    private ComparisonRules comparisonRules;
+
+    @Autowired
+    private MatchingCascadeRules cascadeRules;
+
     @Async
     @Transactional(readOnly = true)
     public void performTwoWayReconciliation(String filePath, String reportPath, int batchSize) {
@@ -59,31 +85,55 @@ public class TwoWayBatchReconciliationService {
         
         List<Discrepancy> fileToDbDiscrepancies = new CopyOnWriteArrayList<>();
         List<Discrepancy> dbToFileDiscrepancies = new CopyOnWriteArrayList<>();
-        Set<String> fileTransactionIds = ConcurrentHashMap.newKeySet();
+        long expectedFileRecords = fileReader.estimateRecordCount(filePath);
+        TransactionIdSet fileTransactionIds = transactionIdSetFactory.create(
+            (int) Math.min(expectedFileRecords, Integer.MAX_VALUE));
         LocalDateTime startTime = LocalDateTime.now(); 
         AtomicInteger processedCount = new AtomicInteger(0);
         AtomicInteger matchedCount = new AtomicInteger(0);
         AtomicInteger totalFileRecords = new AtomicInteger(0);
         AtomicInteger totalDbRecords = new AtomicInteger(0);
+        // Position and alternate keys of the file records not found by transaction ID, held
+        // until the file is indexed; the records themselves are read again when reported
+        List<PendingRecord> unmatchedByTransactionId = new ArrayList<>();
+        AtomicLong fileOrdinal = new AtomicLong();
 
-        // First pass: Cache file transaction IDs with parallel processing
-        logger.info("Caching file transaction IDs...");
-        fileReader.streamRecords(filePath)
-            .parallel()
-            .forEach(record -> {
-                if (record != null && record.getTransactionId() != null) {
-                    fileTransactionIds.add(record.getTransactionId());
-                    totalFileRecords.incrementAndGet();
-                }
-            });
-        logger.info("Total file records found: {}", totalFileRecords.get());
+        // Optional Bloom filter pre-screen: DB IDs screen file records, file IDs screen DB records.
+        // Both screens belong to this run only.
+        Screen databaseScreen = prescreen.isEnabled() ? prescreen.buildFromDatabase() : Screen.NONE;
+        Screen fileScreen = prescreen.isEnabled() ? prescreen.create(Side.FILE, expectedFileRecords) : Screen.NONE;
+
+        if (!singlePass) {
+            // First pass: Cache file transaction IDs with parallel processing
+            logger.info("Caching file transaction IDs...");
+            try (Stream<VisaBase2Record> records = fileReader.streamRecords(filePath)) {
+                records.parallel()
+                    .forEach(record -> {
+                        if (record != null && record.getTransactionId() != null) {
+                            indexFileTransactionId(record.getTransactionId(), fileTransactionIds, fileScreen);
+                            totalFileRecords.incrementAndGet();
+                        }
+                    });
+            }
+            logger.info("Total file records found: {}", totalFileRecords.get());
+        }
 
         // Process file records against database in optimized batches
-        logger.info("Processing file records against database...");
+        logger.info("Processing file records against database (single pass: {})...", singlePass);
         fileReader.processByBatch(filePath, batchSize, batch -> {
+            if (singlePass) {
+                // Build the file-side ID index while the batches stream past
+                for (VisaBase2Record record : batch) {
+                    indexFileTransactionId(record.getTransactionId(), fileTransactionIds, fileScreen);
+                }
+                totalFileRecords.addAndGet(batch.size());
+            }
+            // File records not found by transaction ID, in file order, for the alternate keys
+            List<VisaBase2RecordEntity> unmatched = new ArrayList<>();
             List<VisaBase2RecordEntity> entities = batch.stream()
                 .filter(record -> record != null && record.getTransactionId() != null)
                 .map(mapper::toEntity)
+                .filter(entity -> !screenedOutOfDatabase(entity, databaseScreen, unmatched, processedCount))
                 .collect(Collectors.toList());
 
             if (!entities.isEmpty()) {
@@ -94,14 +144,14 @@ public class TwoWayBatchReconciliationService {
                     .collect(Collectors.toList());
 
                 if (!transactionIds.isEmpty()) {
-                    // Use parallel stream for processing database results
-                    Map<String, VisaBase2RecordEntity> existingEntities = repository
-                        .findByTransactionIdIn(transactionIds)
-                        .parallelStream()
-                        .filter(entity -> entity != null && entity.getTransactionId() != null)
-                        .collect(Collectors.toConcurrentMap(
-                            VisaBase2RecordEntity::getTransactionId,
-                            entity -> entity,
+                    // Fetch only the compared columns as unmanaged projections
+                    Map<String, ReconciliationView> existingRecords = repository
+                        .findViewsByTransactionIdIn(transactionIds, comparisonRules.getFields())
+                        .stream()
+                        .filter(view -> view.getTransactionId() != null)
+                        .collect(Collectors.toMap(
+                            ReconciliationView::getTransactionId,
+                            view -> view,
                             (existing, replacement) -> existing
                         ));
 
@@ -109,8 +159,12 @@ public class TwoWayBatchReconciliationService {
                     entities.parallelStream()
                         .forEach(entity -> {
                             try {
-                                processFileRecord(entity, existingEntities.get(entity.getTransactionId()), 
-                                    fileToDbDiscrepancies, matchedCount);
+                                ReconciliationView existingRecord = existingRecords.get(entity.getTransactionId());
+                                if (existingRecord == null) {
+                                    databaseScreen.recordFalsePositive();
+                                } else {
+                                    processFileRecord(entity, existingRecord, fileToDbDiscrepancies, matchedCount);
+                                }
                                 processedCount.incrementAndGet();
                             } catch (Exception e) {
                                 logger.error("Error processing file record {}: {}", 
@@ -121,36 +175,33 @@ public class TwoWayBatchReconciliationService {
                                 ));
                             }
                         });
+                    entities.stream()
+                        .filter(entity -> !existingRecords.containsKey(entity.getTransactionId()))
+                        .forEach(unmatched::add);
                 }
             }
+            if (cascadeRules.getAlternateStages().isEmpty()) {
+                reportMissingInDatabase(unmatched, fileToDbDiscrepancies);
+            } else {
+                holdForAlternateKeys(batch, fileOrdinal.get(), unmatched, unmatchedByTransactionId);
+            }
+            fileOrdinal.addAndGet(batch.size());
         });
 
-        // Process database records against file in optimized batches
+        // Alternate keys only once every file transaction ID is indexed, so no row the file
+        // matches by ID is taken for another record
+        matchOnAlternateKeys(filePath, unmatchedByTransactionId, batchSize, fileToDbDiscrepancies, matchedCount,
+            fileTransactionIds, fileScreen);
+
+        // Process database records against file
         logger.info("Processing database records against file...");
-        List<VisaBase2RecordEntity> dbRecords = repository.findAll();
-        totalDbRecords.set(dbRecords.size());
+        // Both modes stream only the transaction ID column; no database row is hydrated
+        findRecordsMissingInFile(fileTransactionIds, fileScreen, dbToFileDiscrepancies, totalDbRecords);
         logger.info("Total database records found: {}", totalDbRecords.get());
-
-        // Process DB records in parallel batches
-        dbRecords.parallelStream()
-            .filter(dbRecord -> dbRecord != null && dbRecord.getTransactionId() != null)
-            .forEach(dbRecord -> {
-                try {
-                    if (!fileTransactionIds.contains(dbRecord.getTransactionId())) {
-                        dbToFileDiscrepancies.add(new Discrepancy(
-                            dbRecord.getTransactionId(),
-                            "Missing in File"
-                        ));
-                    }
-                } catch (Exception e) {
-                    logger.error("Error processing DB record {}: {}", 
-                        dbRecord.getTransactionId(), e.getMessage());
-                    dbToFileDiscrepancies.add(new Discrepancy(
-                        dbRecord.getTransactionId(),
-                        "Processing Error: " + e.getMessage()
-                    ));
-                }
-            });
+        logger.info("File transaction ID index held {} distinct IDs", fileTransactionIds.size());
+        fileTransactionIds.close();
+        prescreen.release(databaseScreen);
+        prescreen.release(fileScreen);
         LocalDateTime endTime = LocalDateTime.now();  
         //long processingTime = endTime - startTime;
         //logger.info("Total processing time: {} seconds", processingTime / 1000);
@@ -175,47 +226,232 @@ public class TwoWayBatchReconciliationService {
         }
     }
 
+    private void indexFileTransactionId(String transactionId, TransactionIdSet fileTransactionIds, Screen fileScreen) {
+        fileTransactionIds.add(transactionId);
+        fileScreen.put(transactionId);
+    }
+
+    /**
+     * Sets a file record aside as not found by transaction ID when the database Bloom filter
+     * rules it out, so it is left out of the batch lookup.
+     * 
+     * @return true if the record was screened out
+     */
+    private boolean screenedOutOfDatabase(VisaBase2RecordEntity entity,
+                                          Screen databaseScreen,
+                                          List<VisaBase2RecordEntity> unmatched,
+                                          AtomicInteger processedCount) {
+        if (!databaseScreen.definitelyAbsent(entity.getTransactionId())) {
+            return false;
+        }
+        unmatched.add(entity);
+        processedCount.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Keeps the file position and the alternate keys of the batch records not found by
+     * transaction ID. Whether a record is found depends only on its transaction ID, so every
+     * record of the batch with an unmatched ID is kept.
+     * 
+     * @param batch Batch as read from the file
+     * @param firstOrdinal Position of the first record of the batch among all batches
+     * @param unmatched Entities of the batch not found by transaction ID
+     * @param pending Receives the kept records, in file order
+     */
+    private void holdForAlternateKeys(List<VisaBase2Record> batch,
+                                      long firstOrdinal,
+                                      List<VisaBase2RecordEntity> unmatched,
+                                      List<PendingRecord> pending) {
+        if (unmatched.isEmpty()) {
+            return;
+        }
+        Set<String> unmatchedIds = unmatched.stream()
+            .map(VisaBase2RecordEntity::getTransactionId)
+            .collect(Collectors.toSet());
+        List<MatchingStage> stages = cascadeRules.getAlternateStages();
+        for (int i = 0; i < batch.size(); i++) {
+            VisaBase2Record record = batch.get(i);
+            if (record == null || !unmatchedIds.contains(record.getTransactionId())) {
+                continue;
+            }
+            String[] keys = new String[stages.size()];
+            for (int stage = 0; stage < keys.length; stage++) {
+                keys[stage] = stages.get(stage).keyOf(record);
+            }
+            pending.add(new PendingRecord(firstOrdinal + i, keys));
+        }
+    }
+
+    /**
+     * Looks up the file records not found by transaction ID on the alternate keys of the
+     * matching cascade, one stage at a time on what the previous stage left, querying
+     * {@code batchSize} records at a time. Runs after the whole file is indexed: database rows
+     * whose transaction ID is in the file are left to their ID match and never taken here.
+     * A matched row's transaction ID is added to the file index, so it is matched at most once
+     * and the database side does not report it as missing in the file.
+     * 
+     * Only positions and keys are held while matching. The file is then read once more to
+     * compare each matched record like an ID match and to report the records no stage matched
+     * as missing in the database.
+     */
+    private void matchOnAlternateKeys(String filePath,
+                                      List<PendingRecord> unmatched,
+                                      int batchSize,
+                                      List<Discrepancy> fileToDbDiscrepancies,
+                                      AtomicInteger matchedCount,
+                                      TransactionIdSet fileTransactionIds,
+                                      Screen fileScreen) {
+        if (unmatched.isEmpty()) {
+            return;
+        }
+        Map<Long, ReconciliationView> matches = new HashMap<>();
+        List<PendingRecord> remaining = unmatched;
+        List<MatchingStage> stages = cascadeRules.getAlternateStages();
+        for (int stage = 0; stage < stages.size(); stage++) {
+            List<PendingRecord> next = new ArrayList<>();
+            for (int from = 0; from < remaining.size(); from += batchSize) {
+                List<PendingRecord> chunk = remaining.subList(from, Math.min(from + batchSize, remaining.size()));
+                next.addAll(matchOnStage(stages.get(stage), stage, chunk, matches, fileTransactionIds, fileScreen));
+            }
+            remaining = next;
+        }
+
+        // Positions are in file order, so the re-read walks both lists with one cursor each
+        long[] missing = remaining.stream().mapToLong(record -> record.ordinal).toArray();
+        AtomicInteger nextMissing = new AtomicInteger();
+        AtomicLong ordinal = new AtomicLong();
+        fileReader.processByBatch(filePath, batchSize, batch -> {
+            for (VisaBase2Record record : batch) {
+                long position = ordinal.getAndIncrement();
+                ReconciliationView match = matches.get(position);
+                if (match != null) {
+                    processFileRecord(mapper.toEntity(record), match, fileToDbDiscrepancies, matchedCount);
+                } else if (nextMissing.get() < missing.length && missing[nextMissing.get()] == position) {
+                    nextMissing.incrementAndGet();
+                    fileToDbDiscrepancies.add(new Discrepancy(record.getTransactionId(), "Missing in Database"));
+                }
+            }
+        });
+        logger.info("Matched {} file records on alternate keys, {} missing in the database",
+            matches.size(), missing.length);
+    }
+
+    /**
+     * Matches file records on one alternate key with a single database lookup.
+     * 
+     * @param stage Stage to match on
+     * @param stageIndex Index of the stage's key in {@link PendingRecord#keys}
+     * @param records Records still unmatched, in file order
+     * @param matches Receives the database row matched to each record, by file position
+     * @return Records the stage left unmatched, in their original order
+     */
+    private List<PendingRecord> matchOnStage(MatchingStage stage,
+                                             int stageIndex,
+                                             List<PendingRecord> records,
+                                             Map<Long, ReconciliationView> matches,
+                                             TransactionIdSet fileTransactionIds,
+                                             Screen fileScreen) {
+        Set<String> keys = new LinkedHashSet<>();
+        for (PendingRecord record : records) {
+            String key = record.keys[stageIndex];
+            if (key != null) {
+                keys.add(key);
+            }
+        }
+        if (keys.isEmpty()) {
+            return new ArrayList<>(records);
+        }
+        Map<String, ArrayDeque<ReconciliationView>> candidates = new HashMap<>();
+        repository.findViewsByMatchingKeyIn(stage, keys, comparisonRules.getFields())
+            .forEach((key, views) -> candidates.put(key, new ArrayDeque<>(views)));
+
+        List<PendingRecord> next = new ArrayList<>();
+        for (PendingRecord record : records) {
+            String key = record.keys[stageIndex];
+            ArrayDeque<ReconciliationView> views = key == null ? null : candidates.get(key);
+            ReconciliationView match = null;
+            while (views != null && !views.isEmpty() && match == null) {
+                ReconciliationView view = views.poll();
+                // Rows the file holds by ID, or already claimed by an earlier alternate match
+                if (view.getTransactionId() != null && !fileTransactionIds.contains(view.getTransactionId())) {
+                    match = view;
+                }
+            }
+            if (match == null) {
+                next.add(record);
+            } else {
+                logger.debug("Matched file record #{} to database record {} on {}",
+                    record.ordinal, match.getTransactionId(), stage);
+                matches.put(record.ordinal, match);
+                indexFileTransactionId(match.getTransactionId(), fileTransactionIds, fileScreen);
+            }
+        }
+        return next;
+    }
+
+    private void reportMissingInDatabase(List<VisaBase2RecordEntity> records, List<Discrepancy> fileToDbDiscrepancies) {
+        for (VisaBase2RecordEntity entity : records) {
+            fileToDbDiscrepancies.add(new Discrepancy(entity.getTransactionId(), "Missing in Database"));
+        }
+    }
+
+    /**
+     * Decides whether a database transaction ID is missing in the file. IDs the file Bloom filter
+     * rules out are missing without touching the exact index.
+     */
+    private boolean isMissingInFile(TransactionIdSet fileTransactionIds, Screen fileScreen, String transactionId) {
+        if (fileScreen.definitelyAbsent(transactionId)) {
+            return true;
+        }
+        if (fileTransactionIds.contains(transactionId)) {
+            return false;
+        }
+        fileScreen.recordFalsePositive();
+        return true;
+    }
+
+    /**
+     * Streams transaction IDs from the table and reports every ID that is not in the file index.
+     * Only one ID is held at a time, so memory does not grow with the table size.
+     */
+    private void findRecordsMissingInFile(TransactionIdSet fileTransactionIds,
+                                          Screen fileScreen,
+                                          List<Discrepancy> dbToFileDiscrepancies,
+                                          AtomicInteger totalDbRecords) {
+        try (Stream<String> dbTransactionIds = repository.streamAllTransactionIds()) {
+            dbTransactionIds.forEach(transactionId -> {
+                totalDbRecords.incrementAndGet();
+                try {
+                    if (isMissingInFile(fileTransactionIds, fileScreen, transactionId)) {
+                        dbToFileDiscrepancies.add(new Discrepancy(transactionId, "Missing in File"));
+                    }
+                } catch (Exception e) {
+                    logger.error("Error processing DB record {}: {}", transactionId, e.getMessage());
+                    dbToFileDiscrepancies.add(new Discrepancy(transactionId, "Processing Error: " + e.getMessage()));
+                }
+            });
+        }
+    }
+
     private void processFileRecord(VisaBase2RecordEntity entity, 
-                                 VisaBase2RecordEntity existingEntity,
+                                 ReconciliationView existingRecord,
                                  List<Discrepancy> discrepancies, 
                                  AtomicInteger matchedCount) {
-        if (existingEntity != null) {
-            // Check for discrepancies with optimized comparisons
-            boolean hasDiscrepancy = false;
-            String discrepancyType = null;
-            BigDecimal fileAmount = null;
-            BigDecimal dbAmount = null;
-
-            if (!existingEntity.getAmount().equals(entity.getAmount())) {
-                hasDiscrepancy = true;
-                discrepancyType = "Amount Mismatch";
-                fileAmount = new BigDecimal(entity.getAmount());
-                dbAmount = new BigDecimal(existingEntity.getAmount());
-            } else if (!existingEntity.getResponseCode().equals(entity.getResponseCode())) {
-                hasDiscrepancy = true;
-                discrepancyType = "Response Code Mismatch";
-            } else if (!existingEntity.getAuthorizationCode().equals(entity.getAuthorizationCode())) {
-                hasDiscrepancy = true;
-                discrepancyType = "Authorization Code Mismatch";
-            } else if (!existingEntity.getTransactionDate().equals(entity.getTransactionDate())) {
-                hasDiscrepancy = true;
-                discrepancyType = "Transaction Date Mismatch";
-            } else if (!existingEntity.getRrn().equals(entity.getRrn())) {
-                hasDiscrepancy = true;
-                discrepancyType = "RRN Mismatch";
-            } else if (!existingEntity.getTransactionType().equals(entity.getTransactionType())) {
-                hasDiscrepancy = true;
-                discrepancyType = "Transaction Type Mismatch";
-            }
+        if (existingRecord != null) {
+            // Check the configured fields in order and report the first mismatch
+            ReconciliationField mismatch = comparisonRules.firstMismatch(entity, existingRecord);
             //duplicate check 
 
-            if (hasDiscrepancy) {
+            if (mismatch == ReconciliationField.AMOUNT) {
                 discrepancies.add(new Discrepancy(
                     entity.getTransactionId(),
-                    discrepancyType,
-                    fileAmount,
-                    dbAmount
+                    mismatch.getMismatchType(),
+                    toAmount(entity.getAmount()),
+                    toAmount(existingRecord.get(ReconciliationField.AMOUNT))
                 ));
+            } else if (mismatch != null) {
+                discrepancies.add(new Discrepancy(entity.getTransactionId(), mismatch.getMismatchType()));
             } else {
                 matchedCount.incrementAndGet();
             }
@@ -226,4 +462,22 @@ public class TwoWayBatchReconciliationService {
             ));
         }
     }
-} 
\ No newline at end of file
+
+    private static BigDecimal toAmount(String amount) {
+        return amount == null ? null : new BigDecimal(amount);
+    }
+
+    /**
+     * A file record waiting for the alternate keys: its position among the records the batches
+     * delivered and its key for each alternate stage, null where a key part is blank.
+     */
+    private static final class PendingRecord {
+        private final long ordinal;
+        private final String[] keys;
+
+        private PendingRecord(long ordinal, String[] keys) {
+            this.ordinal = ordinal;
+            this.keys = keys;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.visa.recon.batch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.batch.repeat.context.RepeatContextSupport;
+
+class AdaptiveChunkCompletionPolicyTests {
+
+	private final StepExecution stepExecution = new StepExecution("adaptiveStep", new JobExecution(1L));
+	private final ChunkContext chunkContext = new ChunkContext(new StepContext(stepExecution));
+
+	@Test
+	void fastChunksDoubleTheSize() {
+		AdaptiveChunkCompletionPolicy policy = new AdaptiveChunkCompletionPolicy("fast", 100, 10, 1000, 60_000);
+
+		runChunk(policy, 100, 0);
+		assertEquals(200, policy.getChunkSize());
+		runChunk(policy, 200, 0);
+		assertEquals(400, policy.getChunkSize());
+	}
+
+	@Test
+	void slowChunksHalveTheSize() {
+		AdaptiveChunkCompletionPolicy policy = new AdaptiveChunkCompletionPolicy("slow", 100, 10, 1000, 1);
+
+		runChunk(policy, 100, 20);
+		assertEquals(50, policy.getChunkSize());
+	}
+
+	@Test
+	void sizeStaysWithinTheBounds() {
+		AdaptiveChunkCompletionPolicy growing = new AdaptiveChunkCompletionPolicy("growing", 300, 10, 500, 60_000);
+		runChunk(growing, 300, 0);
+		assertEquals(500, growing.getChunkSize());
+
+		AdaptiveChunkCompletionPolicy shrinking = new AdaptiveChunkCompletionPolicy("shrinking", 15, 10, 500, 1);
+		runChunk(shrinking, 15, 20);
+		assertEquals(10, shrinking.getChunkSize());
+
+		assertEquals(500, new AdaptiveChunkCompletionPolicy("clamped", 5000, 10, 500, 1).getChunkSize());
+	}
+
+	@Test
+	void shortChunksDoNotChangeTheSize() {
+		AdaptiveChunkCompletionPolicy policy = new AdaptiveChunkCompletionPolicy("short", 100, 10, 1000, 60_000);
+
+		runChunk(policy, 40, 0);
+		assertEquals(100, policy.getChunkSize());
+	}
+
+	@Test
+	void failedChunksDoNotChangeTheSize() {
+		AdaptiveChunkCompletionPolicy policy = new AdaptiveChunkCompletionPolicy("failed", 100, 10, 1000, 60_000);
+
+		policy.beforeChunk(chunkContext);
+		stepExecution.setReadCount(stepExecution.getReadCount() + 100);
+		policy.afterChunkError(chunkContext);
+		policy.afterChunk(chunkContext);
+
+		assertEquals(100, policy.getChunkSize());
+	}
+
+	@Test
+	void startedChunkKeepsItsSizeWhenTheSizeChanges() {
+		AdaptiveChunkCompletionPolicy policy = new AdaptiveChunkCompletionPolicy("started", 3, 1, 100, 60_000);
+		RepeatContextSupport started = (RepeatContextSupport) policy.start(null);
+
+		// Another partition worker finishes a fast chunk and doubles the size
+		runChunk(policy, 3, 0);
+		assertEquals(6, policy.getChunkSize());
+
+		started.increment();
+		started.increment();
+		assertFalse(policy.isComplete(started, RepeatStatus.CONTINUABLE));
+		started.increment();
+		assertTrue(policy.isComplete(started, RepeatStatus.CONTINUABLE));
+		assertTrue(policy.isComplete(policy.start(null), RepeatStatus.FINISHED));
+	}
+
+	private void runChunk(AdaptiveChunkCompletionPolicy policy, int items, long sleepMillis) {
+		policy.beforeChunk(chunkContext);
+		stepExecution.setReadCount(stepExecution.getReadCount() + items);
+		if (sleepMillis > 0) {
+			try {
+				Thread.sleep(sleepMillis);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		policy.afterChunk(chunkContext);
+	}
+}
@@ -0,0 +1,124 @@
+package com.example.visa.recon.batch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.visa.recon.model.entity.VisaBase2RecordEntity;
+import com.example.visa.recon.repository.VisaBase2RecordRepository;
+
+class DbToFileReconciliationReaderTests {
+
+	private static final List<Long> IDS = List.of(2L, 3L, 5L, 8L, 13L, 21L, 34L);
+
+	private final VisaBase2RecordRepository repository = mock(VisaBase2RecordRepository.class);
+
+	// (lastId, maxId) of every page query
+	private final List<List<Long>> queries = new ArrayList<>();
+
+	@BeforeEach
+	void setUp() {
+		// The table as the keyset query sees it: ids after lastId up to maxId, in id order
+		when(repository.findByIdGreaterThanAndIdLessThanEqualOrderByIdAsc(anyLong(), anyLong(), any()))
+			.thenAnswer(invocation -> {
+				long lastId = invocation.getArgument(0);
+				long maxId = invocation.getArgument(1);
+				Pageable pageable = invocation.getArgument(2);
+				queries.add(List.of(lastId, maxId));
+				List<VisaBase2RecordEntity> page = new ArrayList<>();
+				for (Long id : IDS) {
+					if (id > lastId && id <= maxId && page.size() < pageable.getPageSize()) {
+						page.add(entity(id));
+					}
+				}
+				return page;
+			});
+	}
+
+	@Test
+	void pagesThroughTheTableByLastReadId() throws Exception {
+		DbToFileReconciliationReader reader = reader(3);
+
+		assertEquals(IDS, readAll(reader));
+		// Pages of 3, 3 and 1; the short last page ends the read without another query
+		assertEquals(List.of(
+			List.of(Long.MIN_VALUE, Long.MAX_VALUE),
+			List.of(5L, Long.MAX_VALUE),
+			List.of(21L, Long.MAX_VALUE)), queries);
+	}
+
+	@Test
+	void fullLastPageTakesOneEmptyQueryToFinish() throws Exception {
+		DbToFileReconciliationReader reader = reader(7);
+
+		assertEquals(IDS, readAll(reader));
+		assertEquals(2, queries.size());
+		assertEquals(List.of(34L, Long.MAX_VALUE), queries.get(1));
+	}
+
+	@Test
+	void restartContinuesAfterTheLastCommittedId() throws Exception {
+		ExecutionContext context = new ExecutionContext();
+		DbToFileReconciliationReader first = new DbToFileReconciliationReader(2);
+		ReflectionTestUtils.setField(first, "repository", repository);
+		first.open(context);
+		first.read();
+		first.read();
+		first.read();
+		first.update(context);
+		// Read after the last commit, so read again after the restart
+		first.read();
+
+		assertEquals(5L, context.getLong(DbToFileReconciliationReader.LAST_ID_KEY));
+		queries.clear();
+		DbToFileReconciliationReader restarted = new DbToFileReconciliationReader(2);
+		ReflectionTestUtils.setField(restarted, "repository", repository);
+		restarted.open(context);
+
+		assertEquals(List.of(8L, 13L, 21L, 34L), readAll(restarted));
+		assertEquals(List.of(5L, Long.MAX_VALUE), queries.get(0));
+	}
+
+	@Test
+	void partitionReaderStaysInsideItsIdRange() throws Exception {
+		DbToFileReconciliationReader reader = new DbToFileReconciliationReader(2, 5, 21);
+		ReflectionTestUtils.setField(reader, "repository", repository);
+		reader.open(new ExecutionContext());
+
+		assertEquals(List.of(5L, 8L, 13L, 21L), readAll(reader));
+		assertEquals(List.of(4L, 21L), queries.get(0));
+	}
+
+	private DbToFileReconciliationReader reader(int pageSize) {
+		DbToFileReconciliationReader reader = new DbToFileReconciliationReader(pageSize);
+		ReflectionTestUtils.setField(reader, "repository", repository);
+		reader.open(new ExecutionContext());
+		return reader;
+	}
+
+	private static List<Long> readAll(DbToFileReconciliationReader reader) throws Exception {
+		List<Long> ids = new ArrayList<>();
+		for (VisaBase2RecordEntity entity; (entity = reader.read()) != null; ) {
+			ids.add(entity.getId());
+		}
+		return ids;
+	}
+
+	private static VisaBase2RecordEntity entity(long id) {
+		VisaBase2RecordEntity entity = new VisaBase2RecordEntity();
+		entity.setId(id);
+		entity.setTransactionId("TXN" + id);
+		return entity;
+	}
+}
@@ -0,0 +1,107 @@
+package com.example.visa.recon.batch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ExecutionContext;
+
+import com.example.visa.recon.model.dto.VisaBase2Record;
+
+class DbToFileReconciliationWriterTests {
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void restartTruncatesLinesWrittenAfterTheLastCheckpoint() throws Exception {
+		Path output = tempDir.resolve("output.csv");
+		ExecutionContext context = new ExecutionContext();
+
+		DbToFileReconciliationWriter first = new DbToFileReconciliationWriter(output.toString());
+		first.open(context);
+		first.write(chunk("TXN1", "TXN2"));
+		first.update(context);
+		// The chunk fails after its lines reached the file; the step closes the writer
+		first.write(chunk("TXN3", "TXN4"));
+		first.close();
+		assertEquals(List.of("TXN1", "TXN2", "TXN3", "TXN4"), transactionIds(output));
+
+		DbToFileReconciliationWriter restarted = new DbToFileReconciliationWriter(output.toString());
+		restarted.open(context);
+		restarted.write(chunk("TXN3", "TXN4"));
+		restarted.update(context);
+		restarted.write(chunk("TXN5"));
+		restarted.update(context);
+		restarted.close();
+
+		assertEquals(List.of("TXN1", "TXN2", "TXN3", "TXN4", "TXN5"), transactionIds(output));
+		assertEquals(Files.size(output), context.getLong(DbToFileReconciliationWriter.OFFSET_KEY));
+	}
+
+	@Test
+	void freshRunReplacesThePreviousOutput() throws Exception {
+		Path output = tempDir.resolve("output.csv");
+		Files.write(output, "left over from an earlier run\n".getBytes(StandardCharsets.UTF_8));
+
+		DbToFileReconciliationWriter writer = new DbToFileReconciliationWriter(output.toString());
+		writer.open(new ExecutionContext());
+		writer.write(chunk("TXN1"));
+		writer.close();
+
+		assertEquals(List.of("TXN1"), transactionIds(output));
+	}
+
+	@Test
+	void writesLinesLongerThanTheBuffer() throws Exception {
+		Path output = tempDir.resolve("output.csv");
+		VisaBase2Record longRecord = record("TXN2");
+		longRecord.setNarrative("x".repeat(300 * 1024));
+
+		DbToFileReconciliationWriter writer = new DbToFileReconciliationWriter(output.toString());
+		writer.open(new ExecutionContext());
+		writer.write(new Chunk<>(List.of(record("TXN1"), longRecord, record("TXN3"))));
+		writer.close();
+
+		assertEquals(List.of("TXN1", "TXN2", "TXN3"), transactionIds(output));
+		List<String> lines = Files.readAllLines(output, StandardCharsets.UTF_8);
+		assertTrue(lines.get(1).endsWith("," + longRecord.getNarrative()));
+	}
+
+	@Test
+	void partPathsAreSuffixedWithTheFirstIdOfTheRange() {
+		assertEquals("out.csv.part-42", DbToFileReconciliationWriter.partPath("out.csv", 42));
+	}
+
+	private static Chunk<VisaBase2Record> chunk(String... transactionIds) {
+		List<VisaBase2Record> records = new ArrayList<>();
+		for (String transactionId : transactionIds) {
+			records.add(record(transactionId));
+		}
+		return new Chunk<>(records);
+	}
+
+	private static VisaBase2Record record(String transactionId) {
+		VisaBase2Record record = new VisaBase2Record();
+		record.setTransactionType("SALE");
+		record.setTransactionId(transactionId);
+		record.setAmount("100.00");
+		return record;
+	}
+
+	private static List<String> transactionIds(Path output) throws Exception {
+		List<String> ids = new ArrayList<>();
+		for (String line : Files.readAllLines(output, StandardCharsets.UTF_8)) {
+			ids.add(line.split(",", -1)[1]);
+		}
+		return ids;
+	}
+}
@@ -0,0 +1,97 @@
+package com.example.visa.recon.batch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.item.ExecutionContext;
+
+class FileRangePartitionerTests {
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void rangesCoverTheFileAndStartOnRecords() throws Exception {
+		StringBuilder content = new StringBuilder("type,id,amount\n");
+		List<Long> recordStarts = new ArrayList<>();
+		for (int i = 1; i <= 40; i++) {
+			recordStarts.add((long) content.length());
+			content.append("SALE,TXN").append(i).append(',').append(i).append("00.00\n");
+		}
+		Path file = write(content.toString());
+
+		List<long[]> ranges = ranges(new FileRangePartitioner(file.toString()).partition(4));
+
+		assertEquals(4, ranges.size());
+		assertContiguous(ranges, Files.size(file));
+		for (int i = 1; i < ranges.size(); i++) {
+			assertTrue(recordStarts.contains(ranges.get(i)[0]), "cut at " + ranges.get(i)[0]);
+		}
+	}
+
+	@Test
+	void lineBreaksInQuotedFieldsAreNotCut() throws Exception {
+		StringBuilder content = new StringBuilder("type,id,narrative\n");
+		List<Long> recordStarts = new ArrayList<>();
+		for (int i = 1; i <= 20; i++) {
+			recordStarts.add((long) content.length());
+			content.append("SALE,TXN").append(i).append(",\"first line\nsecond line\nthird line\"\n");
+		}
+		Path file = write(content.toString());
+
+		List<long[]> ranges = ranges(new FileRangePartitioner(file.toString()).partition(3));
+
+		assertContiguous(ranges, Files.size(file));
+		for (int i = 1; i < ranges.size(); i++) {
+			assertTrue(recordStarts.contains(ranges.get(i)[0]), "cut at " + ranges.get(i)[0]);
+		}
+	}
+
+	@Test
+	void recordsLongerThanAPartGiveFewerPartitions() throws Exception {
+		Path file = write("type,id,narrative\nSALE,TXN1," + "x".repeat(1000) + "\nSALE,TXN2,short\n");
+
+		List<long[]> ranges = ranges(new FileRangePartitioner(file.toString()).partition(8));
+
+		assertTrue(ranges.size() < 8, ranges.size() + " partitions");
+		assertContiguous(ranges, Files.size(file));
+	}
+
+	private Path write(String content) throws Exception {
+		Path file = tempDir.resolve("input.csv");
+		Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+		return file;
+	}
+
+	/**
+	 * The [startOffset, endOffset) of partition0, partition1, ... in order.
+	 */
+	private static List<long[]> ranges(Map<String, ExecutionContext> partitions) {
+		List<long[]> ranges = new ArrayList<>();
+		for (int i = 0; i < partitions.size(); i++) {
+			ExecutionContext context = partitions.get("partition" + i);
+			ranges.add(new long[] { context.getLong(FileRangePartitioner.START_OFFSET_KEY),
+				context.getLong(FileRangePartitioner.END_OFFSET_KEY) });
+		}
+		return ranges;
+	}
+
+	private static void assertContiguous(List<long[]> ranges, long fileSize) {
+		long expectedStart = 0;
+		for (long[] range : ranges) {
+			assertEquals(expectedStart, range[0]);
+			assertTrue(range[1] > range[0]);
+			expectedStart = range[1];
+		}
+		assertEquals(fileSize, expectedStart);
+	}
+}
@@ -0,0 +1,152 @@
+package com.example.visa.recon.batch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.visa.recon.mapper.VisaBase2RecordMapper;
+import com.example.visa.recon.model.dto.VisaBase2Record;
+import com.example.visa.recon.model.entity.VisaBase2RecordEntity;
+import com.example.visa.recon.repository.VisaBase2RecordRepository;
+import com.example.visa.recon.service.TransactionIdPrescreen.Side;
+
+class FileToDbReconciliationProcessorTests {
+
+	private static final LocalDateTime CREATED = LocalDateTime.of(2024, 3, 1, 9, 30);
+
+	private final VisaBase2RecordRepository repository = mock(VisaBase2RecordRepository.class);
+	private final Map<String, VisaBase2RecordEntity> table = new TreeMap<>();
+	private final List<List<String>> bulkLookups = new ArrayList<>();
+	private final List<String> singleLookups = new ArrayList<>();
+
+	private FileToDbReconciliationProcessor processor;
+
+	@BeforeEach
+	void setUp() {
+		table.put("TXN1", entity(1, "TXN1", "100.00"));
+		table.put("TXN2", entity(2, "TXN2", "200.00"));
+		table.put("TXN4", entity(4, "TXN4", "400.00"));
+		when(repository.findByTransactionIdIn(anyList())).thenAnswer(invocation -> {
+			List<String> ids = invocation.getArgument(0);
+			bulkLookups.add(new ArrayList<>(ids));
+			List<VisaBase2RecordEntity> rows = new ArrayList<>();
+			for (String id : ids) {
+				if (table.containsKey(id)) {
+					rows.add(table.get(id));
+				}
+			}
+			return rows;
+		});
+		when(repository.findByTransactionId(any())).thenAnswer(invocation -> {
+			String id = invocation.getArgument(0);
+			singleLookups.add(id);
+			return table.get(id);
+		});
+
+		processor = new FileToDbReconciliationProcessor(new TransactionIdPrescreenListener(Side.DATABASE), 1L);
+		ReflectionTestUtils.setField(processor, "mapper", new VisaBase2RecordMapper());
+		ReflectionTestUtils.setField(processor, "repository", repository);
+		ReflectionTestUtils.setField(processor, "discrepancyCollector", new DiscrepancyCollector(1L, 1L));
+		ReflectionTestUtils.setField(processor, "lookupSize", 2);
+	}
+
+	@Test
+	void looksUpTheChunkInSlicesBeforeTheFirstItem() throws Exception {
+		List<VisaBase2Record> chunk = List.of(
+			record("TXN1", "100.00"),
+			record("TXN2", "250.00"),
+			record("TXN3", "300.00"),
+			record("TXN4", "400.00"),
+			record("TXN5", "500.00"));
+		for (VisaBase2Record record : chunk) {
+			processor.afterRead(record);
+		}
+
+		List<VisaBase2RecordEntity> written = new ArrayList<>();
+		for (VisaBase2Record record : chunk) {
+			written.add(processor.process(record));
+		}
+
+		assertEquals(List.of(List.of("TXN1", "TXN2"), List.of("TXN3", "TXN4"), List.of("TXN5")), bulkLookups);
+		assertEquals(List.of(), singleLookups);
+		// Unchanged rows are skipped, new ones inserted and changed ones update the existing row
+		assertNull(written.get(0));
+		assertEquals(Long.valueOf(2), written.get(1).getId());
+		assertEquals(CREATED, written.get(1).getCreatedAt());
+		assertEquals("250.00", written.get(1).getAmount());
+		assertNull(written.get(2).getId());
+		assertNull(written.get(3));
+		assertNull(written.get(4).getId());
+	}
+
+	@Test
+	void nextChunkStartsWithAnEmptyPrefetch() throws Exception {
+		processor.afterRead(record("TXN1", "100.00"));
+		processor.process(record("TXN1", "100.00"));
+		processor.afterChunk(null);
+
+		processor.afterRead(record("TXN4", "400.00"));
+		processor.process(record("TXN4", "400.00"));
+
+		assertEquals(List.of(List.of("TXN1"), List.of("TXN4")), bulkLookups);
+		assertEquals(List.of(), singleLookups);
+	}
+
+	@Test
+	void failedChunkDropsItsPrefetchedRows() throws Exception {
+		processor.afterRead(record("TXN2", "200.00"));
+		processor.process(record("TXN2", "200.00"));
+		processor.afterChunkError(null);
+
+		// The retried chunk sees the row as it is now, not as it was prefetched
+		table.put("TXN2", entity(2, "TXN2", "250.00"));
+		processor.afterRead(record("TXN2", "250.00"));
+
+		assertNull(processor.process(record("TXN2", "250.00")));
+		assertEquals(2, bulkLookups.size());
+	}
+
+	@Test
+	void itemsNotSeenByTheReadListenerAreLookedUpOneByOne() throws Exception {
+		VisaBase2RecordEntity written = processor.process(record("TXN2", "250.00"));
+
+		assertEquals(List.of(), bulkLookups);
+		assertEquals(List.of("TXN2"), singleLookups);
+		assertEquals(Long.valueOf(2), written.getId());
+	}
+
+	private static VisaBase2Record record(String transactionId, String amount) {
+		VisaBase2Record record = new VisaBase2Record();
+		record.setTransactionId(transactionId);
+		record.setAmount(amount);
+		record.setResponseCode("00");
+		record.setAuthorizationCode("A1B2C3");
+		record.setTransactionDate("2024-03-01");
+		return record;
+	}
+
+	private static VisaBase2RecordEntity entity(long id, String transactionId, String amount) {
+		VisaBase2RecordEntity entity = new VisaBase2RecordEntity();
+		entity.setId(id);
+		entity.setTransactionId(transactionId);
+		entity.setAmount(amount);
+		entity.setResponseCode("00");
+		entity.setAuthorizationCode("A1B2C3");
+		entity.setTransactionDate("2024-03-01");
+		entity.setCreatedAt(CREATED);
+		return entity;
+	}
+}
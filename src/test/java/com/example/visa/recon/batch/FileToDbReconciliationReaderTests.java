@@ -0,0 +1,122 @@
+package com.example.visa.recon.batch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.visa.recon.mapper.VisaBase2RecordMapper;
+import com.example.visa.recon.model.dto.VisaBase2Record;
+
+class FileToDbReconciliationReaderTests {
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void restartResumesAfterTheLastCommittedRecord() throws Exception {
+		Path file = write(6);
+		ExecutionContext context = new ExecutionContext();
+
+		FileToDbReconciliationReader first = reader(file);
+		first.open(context);
+		assertEquals("TXN1", first.read().getTransactionId());
+		assertEquals("TXN2", first.read().getTransactionId());
+		first.update(context);
+		// Read but never committed: the restarted reader must return it again
+		assertEquals("TXN3", first.read().getTransactionId());
+		first.close();
+
+		assertEquals(3, context.getLong(FileToDbReconciliationReader.LINE_NUMBER_KEY));
+		FileToDbReconciliationReader restarted = reader(file);
+		restarted.open(context);
+		assertEquals(List.of("TXN3", "TXN4", "TXN5", "TXN6"), readAll(restarted));
+		restarted.update(context);
+		restarted.close();
+
+		assertEquals(7, context.getLong(FileToDbReconciliationReader.LINE_NUMBER_KEY));
+		assertEquals(Files.size(file), context.getLong(FileToDbReconciliationReader.OFFSET_KEY));
+	}
+
+	@Test
+	void restartAtTheEndOfTheFileReadsNothing() throws Exception {
+		Path file = write(2);
+		ExecutionContext context = new ExecutionContext();
+
+		FileToDbReconciliationReader first = reader(file);
+		first.open(context);
+		readAll(first);
+		first.update(context);
+		first.close();
+
+		FileToDbReconciliationReader restarted = reader(file);
+		restarted.open(context);
+		assertNull(restarted.read());
+		restarted.close();
+	}
+
+	@Test
+	void rangeReadersSplitTheFileWithoutLosingOrRepeatingRecords() throws Exception {
+		Path file = write(5);
+		List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+		// Offset of the fourth record: header and three records before it
+		long cut = 0;
+		for (int i = 0; i < 4; i++) {
+			cut += lines.get(i).getBytes(StandardCharsets.UTF_8).length + 1;
+		}
+
+		FileToDbReconciliationReader head = new FileToDbReconciliationReader(file.toString(), 0, cut);
+		FileToDbReconciliationReader tail = new FileToDbReconciliationReader(file.toString(), cut, Files.size(file));
+		ReflectionTestUtils.setField(head, "mapper", new VisaBase2RecordMapper());
+		ReflectionTestUtils.setField(tail, "mapper", new VisaBase2RecordMapper());
+		head.open(new ExecutionContext());
+		tail.open(new ExecutionContext());
+
+		assertEquals(List.of("TXN1", "TXN2", "TXN3"), readAll(head));
+		assertEquals(List.of("TXN4", "TXN5"), readAll(tail));
+		head.close();
+		tail.close();
+	}
+
+	private FileToDbReconciliationReader reader(Path file) {
+		FileToDbReconciliationReader reader = new FileToDbReconciliationReader(file.toString());
+		ReflectionTestUtils.setField(reader, "mapper", new VisaBase2RecordMapper());
+		return reader;
+	}
+
+	private static List<String> readAll(FileToDbReconciliationReader reader) throws Exception {
+		List<String> ids = new ArrayList<>();
+		for (VisaBase2Record record; (record = reader.read()) != null; ) {
+			ids.add(record.getTransactionId());
+		}
+		return ids;
+	}
+
+	/**
+	 * Writes a header and records TXN1..TXNn with every CSV column.
+	 */
+	private Path write(int records) throws Exception {
+		List<String> lines = new ArrayList<>();
+		lines.add(String.join(",", Collections.nCopies(VisaBase2RecordMapper.CSV_FIELD_COUNT, "column")));
+		for (int i = 1; i <= records; i++) {
+			List<String> fields = new ArrayList<>(Collections.nCopies(VisaBase2RecordMapper.CSV_FIELD_COUNT, ""));
+			fields.set(0, "SALE");
+			fields.set(1, "TXN" + i);
+			fields.set(3, i + "00.00");
+			lines.add(String.join(",", fields));
+		}
+		Path file = tempDir.resolve("input.csv");
+		Files.write(file, lines, StandardCharsets.UTF_8);
+		return file;
+	}
+}
@@ -0,0 +1,76 @@
+package com.example.visa.recon.batch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.visa.recon.repository.VisaBase2RecordRepository;
+
+class IdRangePartitionerTests {
+
+	private final VisaBase2RecordRepository repository = mock(VisaBase2RecordRepository.class);
+
+	@Test
+	void splitsTheIdRangeIntoContiguousRangesOfEqualWidth() {
+		Map<String, ExecutionContext> partitions = partition(11L, 30L, 4);
+
+		assertEquals(List.of(
+			List.of(11L, 15L),
+			List.of(16L, 20L),
+			List.of(21L, 25L),
+			List.of(26L, 30L)), ranges(partitions));
+	}
+
+	@Test
+	void lastRangeIsShortWhenTheIdsDoNotDivideEvenly() {
+		Map<String, ExecutionContext> partitions = partition(1L, 10L, 3);
+
+		assertEquals(List.of(
+			List.of(1L, 4L),
+			List.of(5L, 8L),
+			List.of(9L, 10L)), ranges(partitions));
+	}
+
+	@Test
+	void fewerIdsThanPartitionsGiveOnePartitionPerId() {
+		Map<String, ExecutionContext> partitions = partition(7L, 8L, 4);
+
+		assertEquals(List.of(List.of(7L, 7L), List.of(8L, 8L)), ranges(partitions));
+	}
+
+	@Test
+	void emptyTableGivesOnePartitionThatReadsNothing() {
+		Map<String, ExecutionContext> partitions = partition(null, null, 4);
+
+		assertEquals(List.of(List.of(0L, 0L)), ranges(partitions));
+	}
+
+	private Map<String, ExecutionContext> partition(Long minId, Long maxId, int gridSize) {
+		when(repository.findMinId()).thenReturn(minId);
+		when(repository.findMaxId()).thenReturn(maxId);
+		IdRangePartitioner partitioner = new IdRangePartitioner();
+		ReflectionTestUtils.setField(partitioner, "repository", repository);
+		return partitioner.partition(gridSize);
+	}
+
+	/**
+	 * The [minId, maxId] of partition0, partition1, ... in order.
+	 */
+	private static List<List<Long>> ranges(Map<String, ExecutionContext> partitions) {
+		List<List<Long>> ranges = new ArrayList<>();
+		for (int i = 0; i < partitions.size(); i++) {
+			ExecutionContext context = partitions.get("partition" + i);
+			ranges.add(List.of(context.getLong(IdRangePartitioner.MIN_ID_KEY),
+				context.getLong(IdRangePartitioner.MAX_ID_KEY)));
+		}
+		return ranges;
+	}
+}
@@ -0,0 +1,246 @@
+package com.example.visa.recon.batch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.launch.support.TaskExecutorJobLauncher;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.test.JobLauncherTestUtils;
+import org.springframework.batch.test.context.SpringBatchTest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import com.example.visa.recon.mapper.VisaBase2RecordMapper;
+import com.example.visa.recon.model.Discrepancy;
+import com.example.visa.recon.model.dto.VisaBase2Record;
+import com.example.visa.recon.repository.VisaBase2RecordRepository;
+import com.example.visa.recon.service.ExcelReportGenerator;
+
+/**
+ * Runs the reconciliation job against an embedded database in each of its layouts, so steps
+ * run on the split executor, the partition executor and the async item processor threads,
+ * and restarts it after a failed chunk.
+ */
+class ReconciliationJobTests {
+
+	@Nested
+	@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:sequential;MODE=MySQL;DB_CLOSE_DELAY=-1")
+	class Sequential extends JobVariant {
+	}
+
+	@Nested
+	@TestPropertySource(properties = {
+		"spring.datasource.url=jdbc:h2:mem:concurrent;MODE=MySQL;DB_CLOSE_DELAY=-1",
+		"reconciliation.batch.concurrent=true" })
+	class Concurrent extends JobVariant {
+	}
+
+	@Nested
+	@TestPropertySource(properties = {
+		"spring.datasource.url=jdbc:h2:mem:partitioned;MODE=MySQL;DB_CLOSE_DELAY=-1",
+		"reconciliation.batch.partitioned=true" })
+	class Partitioned extends JobVariant {
+	}
+
+	@Nested
+	@TestPropertySource(properties = {
+		"spring.datasource.url=jdbc:h2:mem:concurrentPartitionedAsync;MODE=MySQL;DB_CLOSE_DELAY=-1",
+		"reconciliation.batch.concurrent=true",
+		"reconciliation.batch.partitioned=true",
+		"reconciliation.batch.async=true" })
+	class ConcurrentPartitionedAsync extends JobVariant {
+	}
+
+	@SpringBootTest(properties = {
+		"spring.datasource.driver-class-name=org.h2.Driver",
+		"spring.datasource.username=sa",
+		"spring.datasource.password=",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+		"spring.sql.init.mode=never",
+		"spring.batch.jdbc.initialize-schema=always",
+		"reconciliation.output.file=${java.io.tmpdir}/reconciliation-job-tests-output.csv",
+		"reconciliation.batch.chunk.size=2",
+		"reconciliation.batch.grid-size=2" })
+	@SpringBatchTest
+	abstract static class JobVariant {
+
+		@Autowired
+		private JobLauncherTestUtils jobLauncherTestUtils;
+
+		@Autowired
+		private JobRepository jobRepository;
+
+		@Autowired
+		private VisaBase2RecordRepository repository;
+
+		@Autowired
+		private VisaBase2RecordMapper mapper;
+
+		@MockitoBean
+		private ExcelReportGenerator reportGenerator;
+
+		@Value("${reconciliation.output.file}")
+		private String outputFile;
+
+		@TempDir
+		Path tempDir;
+
+		@BeforeEach
+		void setUp() throws Exception {
+			// The application launcher is asynchronous; run the job on the test thread
+			TaskExecutorJobLauncher launcher = new TaskExecutorJobLauncher();
+			launcher.setJobRepository(jobRepository);
+			launcher.setTaskExecutor(new SyncTaskExecutor());
+			launcher.afterPropertiesSet();
+			jobLauncherTestUtils.setJobLauncher(launcher);
+
+			repository.deleteAll();
+		}
+
+		@Test
+		@SuppressWarnings("unchecked")
+		void reportsTheDiscrepanciesOfEveryStepAndPartition() throws Exception {
+			repository.save(mapper.toEntity(record("TXN1", "100.00")));
+			repository.save(mapper.toEntity(record("TXN2", "200.00")));
+			repository.save(mapper.toEntity(record("TXN3", "300.00")));
+			Path input = tempDir.resolve("input.csv");
+			Files.write(input, List.of(
+				header(),
+				csvLine("TXN1", "100.00"),
+				csvLine("TXN2", "250.00"),
+				csvLine("TXN4", "400.00")), StandardCharsets.UTF_8);
+			String reportPath = tempDir.resolve("report.xlsx").toString();
+			JobParameters parameters = jobLauncherTestUtils.getUniqueJobParametersBuilder()
+				.addString("filePath", input.toString())
+				.addString("reportPath", reportPath)
+				.toJobParameters();
+
+			JobExecution execution = jobLauncherTestUtils.launchJob(parameters);
+
+			assertEquals(BatchStatus.COMPLETED, execution.getStatus(), execution.getAllFailureExceptions().toString());
+			ArgumentCaptor<List<Discrepancy>> fileToDb = ArgumentCaptor.forClass(List.class);
+			ArgumentCaptor<List<Discrepancy>> dbToFile = ArgumentCaptor.forClass(List.class);
+			ArgumentCaptor<Integer> dbRecords = ArgumentCaptor.forClass(Integer.class);
+			verify(reportGenerator).generateReport(eq(reportPath), fileToDb.capture(), dbToFile.capture(),
+				eq(3), dbRecords.capture(), any(), any());
+			assertEquals(List.of("TXN2 Amount Mismatch", "TXN4 Missing in Network"), describe(fileToDb.getValue()));
+			assertEquals(List.of("TXN3 Missing in File"), describe(dbToFile.getValue()));
+			// TXN4 is inserted by the file-to-database direction, which may run alongside
+			assertTrue(dbRecords.getValue() == 3 || dbRecords.getValue() == 4, dbRecords.getValue().toString());
+
+			// Records missing in the file end up in the one output file, whatever the layout
+			Path outputPath = Path.of(outputFile);
+			List<String> output = Files.readAllLines(outputPath, StandardCharsets.UTF_8);
+			assertEquals(1, output.size(), output.toString());
+			assertTrue(output.get(0).startsWith("SALE,TXN3,"), output.get(0));
+			try (Stream<Path> siblings = Files.list(outputPath.toAbsolutePath().getParent())) {
+				assertEquals(List.of(), siblings
+					.filter(path -> path.getFileName().toString().startsWith(outputPath.getFileName() + ".part-"))
+					.collect(Collectors.toList()));
+			}
+		}
+
+		@Test
+		@SuppressWarnings("unchecked")
+		void restartAfterAFailedChunkReportsEveryRecordOnce() throws Exception {
+			for (int i = 1; i <= 6; i++) {
+				repository.save(mapper.toEntity(record("TXN" + i, "100.00")));
+			}
+			// An amount that cannot be parsed fails the chunk holding TXN5 after earlier chunks
+			// have committed; the fix keeps the line length, so saved offsets stay valid
+			Path input = tempDir.resolve("input.csv");
+			List<String> lines = new ArrayList<>(List.of(header(),
+				csvLine("TXN1", "100.00"),
+				csvLine("TXN2", "200.00"),
+				csvLine("TXN3", "100.00"),
+				csvLine("TXN4", "100.00"),
+				csvLine("TXN5", "1x0.00"),
+				csvLine("TXN6", "100.00")));
+			Files.write(input, lines, StandardCharsets.UTF_8);
+			String reportPath = tempDir.resolve("report.xlsx").toString();
+			JobParameters parameters = jobLauncherTestUtils.getUniqueJobParametersBuilder()
+				.addString("filePath", input.toString())
+				.addString("reportPath", reportPath)
+				.toJobParameters();
+
+			JobExecution failed = jobLauncherTestUtils.launchJob(parameters);
+			assertEquals(BatchStatus.FAILED, failed.getStatus());
+
+			lines.set(5, csvLine("TXN5", "150.00"));
+			Files.write(input, lines, StandardCharsets.UTF_8);
+			JobExecution restarted = jobLauncherTestUtils.launchJob(parameters);
+
+			assertEquals(BatchStatus.COMPLETED, restarted.getStatus(), restarted.getAllFailureExceptions().toString());
+			assertEquals(failed.getJobInstance().getInstanceId(), restarted.getJobInstance().getInstanceId());
+			ArgumentCaptor<List<Discrepancy>> fileToDb = ArgumentCaptor.forClass(List.class);
+			ArgumentCaptor<List<Discrepancy>> dbToFile = ArgumentCaptor.forClass(List.class);
+			verify(reportGenerator).generateReport(eq(reportPath), fileToDb.capture(), dbToFile.capture(),
+				eq(6), eq(6), any(), any());
+			assertEquals(List.of("TXN2 Amount Mismatch", "TXN5 Amount Mismatch"), describe(fileToDb.getValue()));
+			assertEquals(List.of(), describe(dbToFile.getValue()));
+			assertEquals("150.00", repository.findByTransactionId("TXN5").getAmount());
+		}
+
+		VisaBase2Record record(String transactionId, String amount) {
+			VisaBase2Record record = new VisaBase2Record();
+			record.setTransactionType("SALE");
+			record.setTransactionId(transactionId);
+			record.setAmount(amount);
+			record.setTransactionDate("2024-03-23");
+			record.setResponseCode("00");
+			record.setAuthorizationCode("A1B2C3");
+			return record;
+		}
+
+		static String header() {
+			List<String> columns = new ArrayList<>(Collections.nCopies(VisaBase2RecordMapper.CSV_FIELD_COUNT, "column"));
+			columns.set(1, "transaction_id");
+			return String.join(",", columns);
+		}
+
+		static String csvLine(String transactionId, String amount) {
+			List<String> fields = new ArrayList<>(Collections.nCopies(VisaBase2RecordMapper.CSV_FIELD_COUNT, ""));
+			fields.set(0, "SALE");
+			fields.set(1, transactionId);
+			fields.set(3, amount);
+			fields.set(6, "2024-03-23");
+			fields.set(8, "00");
+			fields.set(10, "A1B2C3");
+			return String.join(",", fields);
+		}
+
+		static List<String> describe(List<Discrepancy> discrepancies) {
+			List<String> described = new ArrayList<>();
+			for (Discrepancy discrepancy : discrepancies) {
+				described.add(discrepancy.getTransactionId() + " " + discrepancy.getDiscrepancyType());
+			}
+			Collections.sort(described);
+			return described;
+		}
+	}
+}
@@ -0,0 +1,157 @@
+package com.example.visa.recon.csv;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.example.visa.recon.csv.CsvFileSplitter.ByteRange;
+
+class CsvFileSplitterTests {
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void rangesCoverTheFileAndStartOnRecords() throws Exception {
+		Path file = write(records(200));
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			byte[] bytes = Files.readAllBytes(file);
+			for (int parts = 1; parts <= 16; parts++) {
+				List<ByteRange> ranges = CsvFileSplitter.split(channel, parts);
+				assertTrue(ranges.size() <= parts);
+				assertEquals(0, ranges.get(0).getStart());
+				assertEquals(bytes.length, ranges.get(ranges.size() - 1).getEnd());
+				for (int i = 1; i < ranges.size(); i++) {
+					assertEquals(ranges.get(i - 1).getEnd(), ranges.get(i).getStart());
+					assertEquals('\n', bytes[(int) ranges.get(i).getStart() - 1]);
+				}
+			}
+		}
+	}
+
+	@Test
+	void quotedLineBreaksAreNeverCut() throws Exception {
+		List<String> expected = new ArrayList<>();
+		StringBuilder csv = new StringBuilder("id,note\n");
+		for (int i = 0; i < 300; i++) {
+			// Long quoted notes full of line breaks, quotes and commas, so most nominal cut points
+			// fall inside a quoted field
+			String note = "line one of " + i + "\nline \"\"two\"\", with comma\n\nlast line";
+			csv.append("TXN").append(i).append(",\"").append(note).append("\"\n");
+			expected.add("TXN" + i + "|" + note.replace("\"\"", "\""));
+		}
+		Path file = write(csv.toString());
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			for (int parts = 1; parts <= 32; parts++) {
+				assertEquals(expected, readRanges(channel, CsvFileSplitter.split(channel, parts)), "parts=" + parts);
+			}
+		}
+	}
+
+	@Test
+	void quotesInsideUnquotedFieldsDoNotOpenAQuotedField() throws Exception {
+		List<String> expected = new ArrayList<>();
+		StringBuilder csv = new StringBuilder("id,note\n");
+		for (int i = 0; i < 100; i++) {
+			csv.append("TXN").append(i).append(",5\" screen\n");
+			expected.add("TXN" + i + "|5\" screen");
+		}
+		Path file = write(csv.toString());
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			List<ByteRange> ranges = CsvFileSplitter.split(channel, 8);
+			assertEquals(8, ranges.size());
+			assertEquals(expected, readRanges(channel, ranges));
+		}
+	}
+
+	@Test
+	void unterminatedQuoteKeepsTheRestOfTheFileTogether() throws Exception {
+		Path file = write("id,note\nTXN1,plain\nTXN2,\"open\nTXN3,x\nTXN4,y\n");
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			List<ByteRange> ranges = CsvFileSplitter.split(channel, 4);
+			assertEquals(List.of("TXN1|plain", "TXN2|open\nTXN3,x\nTXN4,y\n"), readRanges(channel, ranges));
+		}
+	}
+
+	@Test
+	void emptyFileHasNoRanges() throws Exception {
+		Path file = write("");
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			assertTrue(CsvFileSplitter.split(channel, 4).isEmpty());
+		}
+	}
+
+	@Test
+	void spliteratorReadsEveryRangeOnceInParallelAndInOrder() throws Exception {
+		Path file = write(records(1000));
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			List<ByteRange> ranges = CsvFileSplitter.split(channel, 8);
+			Spliterator<String> spliterator =
+				new MappedRangeSpliterator<>(channel, ranges, reader -> reader.field(0), true);
+
+			List<String> ids = StreamSupport.stream(spliterator, true).collect(Collectors.toList());
+
+			List<String> expected = new ArrayList<>();
+			for (int i = 0; i < 1000; i++) {
+				expected.add("TXN" + i);
+			}
+			assertEquals(expected, ids);
+		}
+	}
+
+	private Path write(String content) throws Exception {
+		Path file = tempDir.resolve("records.csv");
+		Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+		return file;
+	}
+
+	private static String records(int count) {
+		StringBuilder csv = new StringBuilder("id,amount\n");
+		for (int i = 0; i < count; i++) {
+			csv.append("TXN").append(i).append(',').append(i * 10).append(".00\n");
+		}
+		return csv.toString();
+	}
+
+	/**
+	 * Reads every range with its own reader, skipping the header, and joins the fields of each
+	 * record with a bar.
+	 */
+	private static List<String> readRanges(FileChannel channel, List<ByteRange> ranges) {
+		List<String> records = new ArrayList<>();
+		for (ByteRange range : ranges) {
+			try (MappedCsvReader reader = MappedCsvReader.range(channel, range.getStart(), range.getEnd())) {
+				if (range.getStart() == 0) {
+					reader.nextLine();
+				}
+				while (reader.nextLine()) {
+					List<String> fields = new ArrayList<>();
+					for (int i = 0; i < reader.fieldCount(); i++) {
+						fields.add(reader.field(i));
+					}
+					records.add(String.join("|", fields));
+				}
+			}
+		}
+		return records;
+	}
+}
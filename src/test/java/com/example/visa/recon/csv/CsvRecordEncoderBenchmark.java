@@ -0,0 +1,136 @@
+package com.example.visa.recon.csv;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import com.example.visa.recon.mapper.VisaBase2RecordMapper;
+import com.example.visa.recon.model.dto.VisaBase2Record;
+
+/**
+ * Compares {@link CsvRecordEncoder} with the {@code String.join} + {@code BufferedWriter} path
+ * the file generator used before, on fully populated records written to a discarding stream.
+ * Reports time and heap allocation per record. Not part of the regular build; run with
+ * {@code mvn test -Dtest=CsvRecordEncoderBenchmark -Dbenchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class CsvRecordEncoderBenchmark {
+	private static final int RECORDS = 20_000;
+	private static final int WARMUP_ROUNDS = 15;
+	private static final int MEASURED_ROUNDS = 10;
+
+	@Test
+	void encoderVersusStringJoin() throws Exception {
+		List<VisaBase2Record> records = records();
+
+		Result legacy = measure("String.join", () -> writeWithStringJoin(records));
+		Result encoder = measure("CsvRecordEncoder", () -> writeWithEncoder(records));
+
+		System.out.println(legacy);
+		System.out.println(encoder);
+		assertTrue(encoder.bytesPerRecord < legacy.bytesPerRecord, encoder + " vs " + legacy);
+	}
+
+	/**
+	 * The line format of the generator before the encoder: fields joined with commas, no quoting.
+	 */
+	private static void writeWithStringJoin(List<VisaBase2Record> records) throws IOException {
+		try (Writer writer = new BufferedWriter(new OutputStreamWriter(OutputStream.nullOutputStream(),
+				StandardCharsets.UTF_8), 64 * 1024)) {
+			List<String> values = new ArrayList<>(VisaBase2RecordMapper.CSV_FIELD_COUNT);
+			for (VisaBase2Record record : records) {
+				values.clear();
+				for (Function<VisaBase2Record, String> column : VisaBase2RecordMapper.CSV_COLUMNS) {
+					values.add(column.apply(record));
+				}
+				writer.write(String.join(",", values));
+				writer.write('\n');
+			}
+		}
+	}
+
+	private static void writeWithEncoder(List<VisaBase2Record> records) throws IOException {
+		try (OutputStream out = new BufferedOutputStream(OutputStream.nullOutputStream(), 64 * 1024)) {
+			CsvRecordEncoder encoder = CsvRecordEncoder.get();
+			for (VisaBase2Record record : records) {
+				encoder.writeTo(out, record);
+			}
+		}
+	}
+
+	private static Result measure(String name, Run run) throws Exception {
+		for (int i = 0; i < WARMUP_ROUNDS; i++) {
+			run.run();
+		}
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long threadId = Thread.currentThread().getId();
+		long best = Long.MAX_VALUE;
+		long allocated = Long.MAX_VALUE;
+		for (int i = 0; i < MEASURED_ROUNDS; i++) {
+			long bytesBefore = threads.getThreadAllocatedBytes(threadId);
+			long start = System.nanoTime();
+			run.run();
+			best = Math.min(best, System.nanoTime() - start);
+			allocated = Math.min(allocated, threads.getThreadAllocatedBytes(threadId) - bytesBefore);
+		}
+		return new Result(name, (double) best / RECORDS, (double) allocated / RECORDS);
+	}
+
+	/**
+	 * Records with every CSV column set; a tenth carry non-ASCII merchant names.
+	 */
+	private static List<VisaBase2Record> records() throws IllegalAccessException {
+		List<VisaBase2Record> records = new ArrayList<>(RECORDS);
+		for (int i = 0; i < RECORDS; i++) {
+			VisaBase2Record record = new VisaBase2Record();
+			for (Field field : VisaBase2Record.class.getDeclaredFields()) {
+				if (field.getType() == String.class && !Modifier.isStatic(field.getModifiers())) {
+					field.setAccessible(true);
+					field.set(record, field.getName().toUpperCase() + i);
+				}
+			}
+			record.setAmount(i + ".25");
+			if (i % 10 == 0) {
+				record.setMerchantName("Caf\u00e9 M\u00fcller " + i);
+			}
+			records.add(record);
+		}
+		return records;
+	}
+
+	private interface Run {
+		void run() throws Exception;
+	}
+
+	private static final class Result {
+		private final String name;
+		private final double nanosPerRecord;
+		private final double bytesPerRecord;
+
+		Result(String name, double nanosPerRecord, double bytesPerRecord) {
+			this.name = name;
+			this.nanosPerRecord = nanosPerRecord;
+			this.bytesPerRecord = bytesPerRecord;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%-17s %8.1f ns/record %8.1f bytes allocated/record", name, nanosPerRecord, bytesPerRecord);
+		}
+	}
+}
@@ -0,0 +1,120 @@
+package com.example.visa.recon.csv;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.visa.recon.mapper.VisaBase2RecordMapper;
+import com.example.visa.recon.model.dto.VisaBase2Record;
+
+class CsvRecordEncoderTests {
+
+	@Test
+	void quotesFieldsWithDelimitersAndEncodesUtf8() {
+		VisaBase2Record record = VisaBase2Record.builder()
+			.transactionType("PURCHASE")
+			.transactionId("TXN1")
+			.amount("100.00")
+			.merchantName("Shop, Inc")
+			.narrative("say \"hi\" \u2013 ok")
+			.build();
+
+		CsvRecordEncoder encoder = CsvRecordEncoder.get();
+		int length = encoder.encode(record);
+		String line = new String(encoder.bytes(), 0, length, StandardCharsets.UTF_8);
+
+		String[] expected = new String[42];
+		Arrays.fill(expected, "");
+		expected[0] = "PURCHASE";
+		expected[1] = "TXN1";
+		expected[3] = "100.00";
+		expected[21] = "\"Shop, Inc\"";
+		expected[41] = "\"say \"\"hi\"\" \u2013 ok\"";
+		assertEquals(String.join(",", expected) + "\n", line);
+	}
+
+	@Test
+	void quotesFieldsWithLineBreaks() {
+		VisaBase2Record record = VisaBase2Record.builder()
+			.transactionId("TXN1")
+			.merchantName("first\nsecond")
+			.cardholderName("carriage\rreturn")
+			.narrative("\r\n")
+			.build();
+
+		String[] fields = fields(record);
+
+		assertEquals("\"first\nsecond\"", fields[21]);
+		assertEquals("\"carriage\rreturn\"", fields[15]);
+		assertEquals("\"\r\n\"", fields[41]);
+	}
+
+	@Test
+	void writesNullFieldsEmptyAndKeepsEmptyStringsUnquoted() {
+		VisaBase2Record record = VisaBase2Record.builder()
+			.transactionId("")
+			.build();
+
+		CsvRecordEncoder encoder = CsvRecordEncoder.get();
+		int length = encoder.encode(record);
+
+		assertEquals(VisaBase2RecordMapper.CSV_FIELD_COUNT, length);
+		assertEquals(",".repeat(VisaBase2RecordMapper.CSV_FIELD_COUNT - 1) + "\n",
+			new String(encoder.bytes(), 0, length, StandardCharsets.UTF_8));
+	}
+
+	@Test
+	void encodesNonAsciiCharactersLikeStringGetBytes() {
+		// Two-, three- and four-byte UTF-8 sequences, next to delimiters and quotes
+		String merchant = "Caf\u00e9 \u00c9cole, \u20ac5 \"\ud83d\ude00\"";
+		String narrative = "\u00fc\u4e2d\ud83d\ude00";
+		// Unpaired surrogates become '?', as with String.getBytes
+		String cardholder = "a\ud83db\ude00c\ud83d";
+		VisaBase2Record record = VisaBase2Record.builder()
+			.transactionId("TXN\u00e9")
+			.merchantName(merchant)
+			.narrative(narrative)
+			.cardholderName(cardholder)
+			.build();
+
+		String[] expected = new String[VisaBase2RecordMapper.CSV_FIELD_COUNT];
+		Arrays.fill(expected, "");
+		expected[1] = "TXN\u00e9";
+		expected[15] = cardholder;
+		expected[21] = "\"" + merchant.replace("\"", "\"\"") + "\"";
+		expected[41] = narrative;
+		CsvRecordEncoder encoder = CsvRecordEncoder.get();
+		int length = encoder.encode(record);
+
+		assertArrayEquals((String.join(",", expected) + "\n").getBytes(StandardCharsets.UTF_8),
+			Arrays.copyOf(encoder.bytes(), length));
+	}
+
+	@Test
+	void growsForLongLines() {
+		String longValue = "\u00e9".repeat(5000);
+		VisaBase2Record record = VisaBase2Record.builder()
+			.narrative(longValue)
+			.build();
+
+		String[] fields = fields(record);
+
+		assertEquals(longValue, fields[41]);
+	}
+
+	/**
+	 * Encodes a record and splits the line at the commas; only for lines whose quoted fields
+	 * contain no commas.
+	 */
+	private static String[] fields(VisaBase2Record record) {
+		CsvRecordEncoder encoder = CsvRecordEncoder.get();
+		int length = encoder.encode(record);
+		String line = new String(encoder.bytes(), 0, length, StandardCharsets.UTF_8);
+		assertEquals('\n', line.charAt(line.length() - 1));
+		return line.substring(0, line.length() - 1).split(",", -1);
+	}
+}
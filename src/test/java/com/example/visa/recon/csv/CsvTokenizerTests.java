@@ -0,0 +1,70 @@
+package com.example.visa.recon.csv;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CsvTokenizerTests {
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void tokenizesQuotedFieldsAcrossLines() {
+		CsvTokenizer tokenizer = new CsvTokenizer();
+
+		assertTrue(tokenizer.append(" A ,\"Shop, Inc\",\"say \"\"hi\"\"\",,\"multi\""));
+		assertEquals(List.of("A", "Shop, Inc", "say \"hi\"", "", "multi"), fields(tokenizer));
+
+		assertFalse(tokenizer.append("B,\"first line"));
+		assertTrue(tokenizer.append("second line\",C"));
+		assertEquals(List.of("B", "first line\nsecond line", "C"), fields(tokenizer));
+	}
+
+	@Test
+	void mappedReaderMatchesTokenizer() throws Exception {
+		Path file = tempDir.resolve("records.csv");
+		Files.write(file, ("A,\"Shop, Inc\",\"say \"\"hi\"\"\"\r\n"
+			+ "\n"
+			+ "B,\"first line\nsecond line\", C \n").getBytes(StandardCharsets.UTF_8));
+
+		try (MappedCsvReader reader = MappedCsvReader.open(file)) {
+			assertTrue(reader.nextLine());
+			assertEquals(List.of("A", "Shop, Inc", "say \"hi\""), fields(reader));
+			assertTrue(reader.nextLine());
+			assertEquals(List.of("B", "first line\nsecond line", "C"), fields(reader));
+			assertEquals(4, reader.lineNumber());
+			assertFalse(reader.nextLine());
+		}
+	}
+
+	@Test
+	void mappedReaderKeepsNonAsciiCharactersAtFieldEdges() throws Exception {
+		Path file = tempDir.resolve("names.csv");
+		Files.write(file, "\u00c9cole, Caf\u00e9 ,\u00fc\n".getBytes(StandardCharsets.UTF_8));
+
+		try (MappedCsvReader reader = MappedCsvReader.open(file)) {
+			assertTrue(reader.nextLine());
+			assertEquals(List.of("\u00c9cole", "Caf\u00e9", "\u00fc"), fields(reader));
+			assertFalse(reader.nextLine());
+		}
+	}
+
+	private static List<String> fields(CsvFields fields) {
+		List<String> values = new ArrayList<>();
+		for (int i = 0; i < fields.fieldCount(); i++) {
+			values.add(fields.field(i));
+		}
+		return values;
+	}
+
+}
@@ -0,0 +1,99 @@
+package com.example.visa.recon.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class BloomFilterTests {
+
+	@Test
+	void neverGivesAFalseNegative() {
+		BloomFilter filter = BloomFilter.create(100_000, 0.01);
+		for (int i = 0; i < 100_000; i++) {
+			filter.put(transactionId(i));
+		}
+
+		for (int i = 0; i < 100_000; i++) {
+			assertTrue(filter.mightContain(transactionId(i)), transactionId(i));
+		}
+		assertEquals(100_000, filter.insertions());
+	}
+
+	@Test
+	void falsePositiveRateStaysNearTheTarget() {
+		for (double target : new double[] { 0.1, 0.01, 0.001 }) {
+			BloomFilter filter = BloomFilter.create(50_000, target);
+			for (int i = 0; i < 50_000; i++) {
+				filter.put(transactionId(i));
+			}
+
+			// Sequential IDs that were never added, as the network file would contain them
+			int falsePositives = 0;
+			int probes = 200_000;
+			for (int i = 50_000; i < 50_000 + probes; i++) {
+				if (filter.mightContain(transactionId(i))) {
+					falsePositives++;
+				}
+			}
+			double rate = (double) falsePositives / probes;
+			assertTrue(rate < target * 1.5, "rate " + rate + " for target " + target);
+			assertEquals(target, filter.expectedFalsePositiveRate(), target * 0.2);
+		}
+	}
+
+	@Test
+	void sizesTheBitArrayFromInsertionsAndRate() {
+		BloomFilter filter = BloomFilter.create(1_000_000, 0.01);
+
+		// m = -n ln p / (ln 2)^2 and k = m / n ln 2
+		assertEquals(9_585_059, filter.bitSize());
+		assertEquals(7, filter.hashFunctions());
+		assertEquals((9_585_059 + 63) / 64 * 8, filter.sizeInBytes());
+		assertEquals(0.0, filter.expectedFalsePositiveRate());
+	}
+
+	@Test
+	void tinyFiltersStillHoldOneWord() {
+		BloomFilter filter = BloomFilter.create(0, 0.5);
+		filter.put("TXN1");
+
+		assertEquals(64, filter.bitSize());
+		assertTrue(filter.mightContain("TXN1"));
+	}
+
+	@Test
+	void rejectsRatesOutsideZeroAndOne() {
+		assertThrows(IllegalArgumentException.class, () -> BloomFilter.create(10, 0));
+		assertThrows(IllegalArgumentException.class, () -> BloomFilter.create(10, 1));
+		assertThrows(IllegalArgumentException.class, () -> BloomFilter.create(10, -0.5));
+	}
+
+	@Test
+	void concurrentPutsLoseNoBits() throws InterruptedException {
+		BloomFilter filter = BloomFilter.create(80_000, 0.01);
+		Thread[] writers = new Thread[4];
+		for (int w = 0; w < writers.length; w++) {
+			int offset = w;
+			writers[w] = new Thread(() -> {
+				for (int i = offset; i < 80_000; i += writers.length) {
+					filter.put(transactionId(i));
+				}
+			});
+			writers[w].start();
+		}
+		for (Thread writer : writers) {
+			writer.join();
+		}
+
+		for (int i = 0; i < 80_000; i++) {
+			assertTrue(filter.mightContain(transactionId(i)), transactionId(i));
+		}
+		assertEquals(80_000, filter.insertions());
+	}
+
+	private static String transactionId(int i) {
+		return String.format("TXN%010d", i);
+	}
+}
@@ -0,0 +1,104 @@
+package com.example.visa.recon.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class OffHeapTransactionIdSetTests {
+
+	@Test
+	void behavesLikeHashSetThroughResizesAndPageRollovers() {
+		Random random = new Random(11);
+		// 1 KB table pages and 64 to 256 byte arena pages, so both roll over many times
+		OffHeapTransactionIdSet set = new OffHeapTransactionIdSet(16, 10, 64, 256);
+		Set<String> reference = new HashSet<>();
+		for (int i = 0; i < 50_000; i++) {
+			String id = transactionId(random.nextInt(20_000));
+			if (random.nextBoolean()) {
+				assertEquals(reference.add(id), set.add(id), id);
+			} else {
+				assertEquals(reference.contains(id), set.contains(id), id);
+			}
+			assertEquals(reference.size(), set.size());
+		}
+		for (int i = 0; i < 20_000; i++) {
+			String id = transactionId(i);
+			assertEquals(reference.contains(id), set.contains(id), id);
+		}
+		assertFalse(set.contains("TXN"));
+		assertFalse(set.contains(""));
+	}
+
+	@Test
+	void keepsIdsOfDifferentLengthsAndNonAsciiCharactersApart() {
+		OffHeapTransactionIdSet set = new OffHeapTransactionIdSet(16, 10, 64, 256);
+		List<String> ids = List.of("A", "AA", "A\u00c9", "\u00c9A", "TXN1", "TXN10", "TXN1 ", "");
+		for (String id : ids) {
+			assertTrue(set.add(id), id);
+		}
+		for (String id : ids) {
+			assertFalse(set.add(id), id);
+			assertTrue(set.contains(id), id);
+		}
+		assertFalse(set.contains("\u00c9"));
+		assertEquals(ids.size(), set.size());
+	}
+
+	@Test
+	void lookupsRunningDuringAddsSeeEveryPublishedId() throws InterruptedException {
+		OffHeapTransactionIdSet set = new OffHeapTransactionIdSet(16, 10, 64, 256);
+		AtomicInteger published = new AtomicInteger();
+		List<String> failures = new CopyOnWriteArrayList<>();
+		Thread[] readers = new Thread[3];
+		for (int r = 0; r < readers.length; r++) {
+			readers[r] = new Thread(() -> {
+				Random random = new Random();
+				while (published.get() < 20_000) {
+					int count = published.get();
+					if (count > 0) {
+						String id = transactionId(random.nextInt(count));
+						if (!set.contains(id)) {
+							failures.add(id);
+						}
+					}
+				}
+			});
+			readers[r].start();
+		}
+		for (int i = 0; i < 20_000; i++) {
+			set.add(transactionId(i));
+			published.incrementAndGet();
+		}
+		for (Thread reader : readers) {
+			reader.join();
+		}
+		assertEquals(List.of(), failures);
+		assertEquals(20_000, set.size());
+	}
+
+	@Test
+	void closedSetRejectsFurtherUse() {
+		OffHeapTransactionIdSet set = new OffHeapTransactionIdSet(1_000);
+		set.add("TXN1");
+		set.close();
+
+		assertEquals(0, set.size());
+		assertEquals(0, set.offHeapBytes());
+		assertThrows(IllegalStateException.class, () -> set.contains("TXN1"));
+		assertThrows(IllegalStateException.class, () -> set.add("TXN2"));
+	}
+
+	private static String transactionId(int n) {
+		return "TXN" + (1711180000000000000L + n * 7919L);
+	}
+}
@@ -0,0 +1,57 @@
+package com.example.visa.recon.matching;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.visa.recon.model.dto.VisaBase2Record;
+
+class MatchingKeyMapTests {
+
+	@Test
+	void behavesLikeHashMapUnderPutsAndRemoves() {
+		Random random = new Random(7);
+		MatchingKeyMap<Integer> map = new MatchingKeyMap<>(4);
+		Map<MatchingKey, Integer> reference = new HashMap<>();
+		for (int i = 0; i < 100_000; i++) {
+			MatchingKey key = new MatchingKey(random.nextInt(50), 1L, random.nextInt(40), 100L);
+			switch (random.nextInt(3)) {
+				case 0:
+					assertEquals(reference.put(key, i), map.put(key, i));
+					break;
+				case 1:
+					assertEquals(reference.remove(key), map.remove(key));
+					break;
+				default:
+					assertEquals(reference.get(key), map.get(key));
+					break;
+			}
+			assertEquals(reference.size(), map.size());
+		}
+	}
+
+	@Test
+	void keysMatchOnIdTimestampAndCents() {
+		MatchingKey key = MatchingKey.of(record("TXN1", "10:00:00", "100.5"));
+
+		assertEquals(key, MatchingKey.of(record("TXN1", "10:00:00", "100.50")));
+		assertEquals(10050L, key.getAmountMinorUnits());
+		assertNotEquals(key, MatchingKey.of(record("TXN2", "10:00:00", "100.50")));
+		assertNotEquals(key, MatchingKey.of(record("TXN1", "10:00:01", "100.50")));
+	}
+
+	private static VisaBase2Record record(String transactionId, String time, String amount) {
+		return VisaBase2Record.builder()
+			.transactionId(transactionId)
+			.transactionDate("2025-03-23")
+			.transactionTime(time)
+			.amount(amount)
+			.build();
+	}
+
+}
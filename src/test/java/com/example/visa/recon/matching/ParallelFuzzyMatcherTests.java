@@ -0,0 +1,72 @@
+package com.example.visa.recon.matching;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.ToDoubleBiFunction;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.visa.recon.model.dto.VisaBase2Record;
+
+class ParallelFuzzyMatcherTests {
+
+	// Source 0 slightly prefers target 0, which is the only candidate of source 1
+	private static final double[][] SCORES = {
+		{0.95, 0.9},
+		{0.9, 0.0},
+	};
+
+	private static final ToDoubleBiFunction<ParsedTransaction, ParsedTransaction> SCORER =
+		(source, target) -> SCORES[source.getIndex()][target.getIndex()];
+
+	@Test
+	void greedyTakesBestCandidateInSourceOrder() {
+		assertArrayEquals(new int[] {0, -1}, match(new ParallelFuzzyMatcher(null, 0)));
+	}
+
+	@Test
+	void assignmentMaximisesTotalScoreOfComponent() {
+		ParallelFuzzyMatcher matcher = new ParallelFuzzyMatcher(null, 16);
+
+		assertArrayEquals(new int[] {1, 0}, match(matcher));
+		List<String> report = matcher.getStats().report();
+		assertEquals(1, report.size());
+		assertTrue(report.get(0).startsWith("size 2: 1 components (1 optimal), 2 pairs"), report.get(0));
+	}
+
+	@Test
+	void assignmentOnPoolEqualsCallerThread() {
+		ForkJoinPool pool = new ForkJoinPool(3);
+		try {
+			assertArrayEquals(new int[] {1, 0}, match(new ParallelFuzzyMatcher(pool, 16)));
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	private static int[] match(ParallelFuzzyMatcher matcher) {
+		List<ParsedTransaction> sources = transactions();
+		List<ParsedTransaction> targets = transactions();
+		FuzzyMatchIndex index = new FuzzyMatchIndex(targets, 10, 5.0);
+		return matcher.match(sources, targets.size(), index, SCORER, 0.8);
+	}
+
+	private static List<ParsedTransaction> transactions() {
+		List<ParsedTransaction> transactions = new ArrayList<>();
+		for (int i = 0; i < 2; i++) {
+			VisaBase2Record record = VisaBase2Record.builder()
+				.transactionId("TXN1")
+				.transactionDate("2025-03-23")
+				.transactionTime("12:00:00")
+				.amount("100.00")
+				.build();
+			transactions.add(ParsedTransaction.parse(record, i));
+		}
+		return transactions;
+	}
+}
@@ -0,0 +1,154 @@
+package com.example.visa.recon.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.visa.recon.model.entity.VisaBase2RecordEntity;
+
+class VisaBase2RecordBulkWriterTests {
+
+	private static final LocalDateTime CREATED = LocalDateTime.of(2024, 3, 1, 9, 30);
+
+	private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+
+	private VisaBase2RecordBulkWriter writer;
+	private String sql;
+	private int batchSize;
+	// Parameters bound for each row, by parameter index
+	private final List<Map<Integer, Object>> rows = new ArrayList<>();
+
+	@BeforeEach
+	void setUp() {
+		when(jdbcTemplate.batchUpdate(anyString(), any(), anyInt(), any())).thenAnswer(invocation -> {
+			sql = invocation.getArgument(0);
+			batchSize = invocation.getArgument(2);
+			Collection<VisaBase2RecordEntity> entities = invocation.getArgument(1);
+			ParameterizedPreparedStatementSetter<VisaBase2RecordEntity> setter = invocation.getArgument(3);
+			for (VisaBase2RecordEntity entity : entities) {
+				Map<Integer, Object> parameters = new TreeMap<>();
+				setter.setValues(recording(parameters), entity);
+				rows.add(parameters);
+			}
+			return new int[0][];
+		});
+		writer = new VisaBase2RecordBulkWriter();
+		ReflectionTestUtils.setField(writer, "jdbcTemplate", jdbcTemplate);
+		ReflectionTestUtils.setField(writer, "batchSize", 500);
+	}
+
+	@Test
+	void upsertUpdatesEveryColumnButTheTransactionIdAndCreationTime() {
+		writer.upsertAll(List.of(entity("TXN1")));
+
+		List<String> columns = columns(sql);
+		assertEquals(44, columns.size());
+		assertEquals("transaction_id", columns.get(1));
+		assertEquals(List.of("created_at", "updated_at"), columns.subList(42, 44));
+		assertEquals(columns.size(), sql.chars().filter(c -> c == '?').count());
+
+		String updates = sql.substring(sql.indexOf(" ON DUPLICATE KEY UPDATE ") + 25);
+		for (String column : columns) {
+			boolean updated = !column.equals("transaction_id") && !column.equals("created_at");
+			assertEquals(updated, Arrays.asList(updates.split(", ")).contains(column + " = VALUES(" + column + ")"), column);
+		}
+		assertEquals(500, batchSize);
+	}
+
+	@Test
+	void bindsOneValuePerPlaceholderInColumnOrder() {
+		VisaBase2RecordEntity entity = entity("TXN1");
+		entity.setId(42L);
+		entity.setCreatedAt(CREATED);
+
+		assertEquals(1, writer.upsertAll(List.of(entity)));
+
+		Map<Integer, Object> parameters = rows.get(0);
+		assertEquals(44, parameters.size());
+		assertEquals(rangeClosed(1, 44), List.copyOf(parameters.keySet()));
+		assertEquals("SALE", parameters.get(1));
+		assertEquals("TXN1", parameters.get(2));
+		assertEquals("100.00", parameters.get(4));
+		assertEquals("narrative TXN1", parameters.get(42));
+		// Existing rows keep their creation time; the id is never bound
+		assertEquals(Timestamp.valueOf(CREATED), parameters.get(43));
+		assertFalse(parameters.containsValue(42L));
+	}
+
+	@Test
+	void newRowsAreCreatedAndUpdatedAtTheSameTime() {
+		writer.upsertAll(List.of(entity("TXN1"), entity("TXN2")));
+
+		assertEquals(2, rows.size());
+		for (Map<Integer, Object> parameters : rows) {
+			assertTrue(parameters.get(43) instanceof Timestamp);
+			assertEquals(parameters.get(43), parameters.get(44));
+		}
+		assertEquals("TXN2", rows.get(1).get(2));
+	}
+
+	@Test
+	void emptyListSendsNothing() {
+		assertEquals(0, writer.upsertAll(List.of()));
+		assertNull(sql);
+	}
+
+	private static List<String> columns(String sql) {
+		String names = sql.substring(sql.indexOf('(') + 1, sql.indexOf(')'));
+		return Arrays.asList(names.split(", "));
+	}
+
+	private static List<Integer> rangeClosed(int from, int to) {
+		List<Integer> range = new ArrayList<>();
+		for (int i = from; i <= to; i++) {
+			range.add(i);
+		}
+		return range;
+	}
+
+	/**
+	 * A statement that records the parameters set on it.
+	 */
+	private static PreparedStatement recording(Map<Integer, Object> parameters) {
+		return (PreparedStatement) Proxy.newProxyInstance(VisaBase2RecordBulkWriterTests.class.getClassLoader(),
+			new Class<?>[] { PreparedStatement.class }, (proxy, method, args) -> {
+				if (method.getName().startsWith("set") && args.length == 2 && args[0] instanceof Integer) {
+					parameters.put((Integer) args[0], args[1]);
+					return null;
+				}
+				throw new UnsupportedOperationException(method.getName());
+			});
+	}
+
+	private static VisaBase2RecordEntity entity(String transactionId) {
+		VisaBase2RecordEntity entity = new VisaBase2RecordEntity();
+		entity.setTransactionType("SALE");
+		entity.setTransactionId(transactionId);
+		entity.setAmount("100.00");
+		entity.setNarrative("narrative " + transactionId);
+		return entity;
+	}
+}
@@ -0,0 +1,107 @@
+package com.example.visa.recon.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.visa.recon.matching.MatchingStage;
+import com.example.visa.recon.model.dto.VisaBase2Record;
+
+class ReconciliationEngineTests {
+
+	@Test
+	void hashJoinMatchesNestedScanReference() {
+		List<VisaBase2Record> switchTransactions = List.of(
+			record("TXN1", "100.00", "00"),
+			record("TXN2", "200.00", "00"),
+			record("TXN3", "300.00", "00"),
+			record("TXN4", "400.00", "05"));
+		List<VisaBase2Record> networkTransactions = List.of(
+			record("TXN1", "100.00", "00"),
+			record("TXN2", "250.00", "00"),
+			record("TXN4", "400.00", "00"),
+			record("TXN5", "500.00", "00"));
+
+		ReconciliationEngine engine = new ReconciliationEngine(switchTransactions, networkTransactions);
+		List<Discrepancy> discrepancies = engine.reconcile();
+
+		List<Discrepancy> switchSide = discrepancies.stream()
+			.filter(d -> !"Missing in Switch".equals(d.getDiscrepancyType()))
+			.collect(Collectors.toList());
+		assertEquals(engine.reconcileByNestedScan(), switchSide);
+
+		List<String> missingInSwitch = discrepancies.stream()
+			.filter(d -> "Missing in Switch".equals(d.getDiscrepancyType()))
+			.map(Discrepancy::getTransactionId)
+			.collect(Collectors.toList());
+		assertEquals(List.of("TXN5"), missingInSwitch);
+	}
+
+	@Test
+	void missingInSwitchFollowsNetworkInputOrder() {
+		List<String> networkIds = List.of("TXN9", "TXN17", "TXN3", "TXN42", "TXN3", "TXN1", "TXN25", "TXN8");
+		List<VisaBase2Record> networkTransactions = networkIds.stream()
+			.map(id -> record(id, "100.00", "00"))
+			.collect(Collectors.toList());
+
+		List<Discrepancy> discrepancies = new ReconciliationEngine(List.of(record("TXN1", "100.00", "00")),
+			networkTransactions).reconcile();
+
+		// Duplicates are reported once, at their first occurrence
+		assertEquals(List.of("TXN9", "TXN17", "TXN3", "TXN42", "TXN25", "TXN8"), discrepancies.stream()
+			.map(Discrepancy::getTransactionId)
+			.collect(Collectors.toList()));
+	}
+
+	@Test
+	void cascadeMatchesNetworkRecordsWithoutCommonTransactionId() {
+		List<VisaBase2Record> switchTransactions = List.of(
+			record("TXN1", "100.00", "00"),
+			record("TXN2", "200.00", "00"),
+			record("TXN3", "300.00", "00"),
+			record("TXN4", "400.00", "00"));
+		VisaBase2Record byRrn = record("NET2", "200.00", "00");
+		byRrn.setRrn("RRNTXN2");
+		VisaBase2Record byStan = record("NET3", "300.00", "05");
+		byStan.setRrn(null);
+		VisaBase2Record unmatched = record("NET9", "900.00", "00");
+		List<VisaBase2Record> networkTransactions = List.of(record("TXN1", "100.00", "00"), byRrn, byStan, unmatched);
+
+		List<Discrepancy> idOnly = new ReconciliationEngine(switchTransactions, networkTransactions).reconcile();
+		List<Discrepancy> cascade = new ReconciliationEngine(switchTransactions, networkTransactions,
+			List.of(MatchingStage.TRANSACTION_ID, MatchingStage.RRN, MatchingStage.STAN_TERMINAL_DATE)).reconcile();
+
+		assertEquals(List.of("TXN2 Missing in Network", "TXN3 Missing in Network", "TXN4 Missing in Network",
+			"NET2 Missing in Switch", "NET3 Missing in Switch", "NET9 Missing in Switch"), sorted(idOnly));
+		assertEquals(List.of("TXN3 Response Code Mismatch", "TXN4 Missing in Network", "NET9 Missing in Switch"),
+			sorted(cascade));
+	}
+
+	private static List<String> sorted(List<Discrepancy> discrepancies) {
+		return discrepancies.stream()
+			.sorted(Comparator.comparing((Discrepancy d) -> d.getDiscrepancyType().startsWith("Missing in Switch"))
+				.thenComparing(Discrepancy::getTransactionId))
+			.map(d -> d.getTransactionId() + " " + d.getDiscrepancyType())
+			.collect(Collectors.toList());
+	}
+
+	private VisaBase2Record record(String transactionId, String amount, String responseCode) {
+		return VisaBase2Record.builder()
+			.transactionId(transactionId)
+			.amount(amount)
+			.responseCode(responseCode)
+			.authorizationCode("AUTH0001")
+			.transactionDate("2025-03-23")
+			.transactionTime("10:00:00")
+			.rrn("RRN" + transactionId)
+			.transactionType("PURCHASE")
+			.Stan("STAN" + transactionId.substring(3))
+			.terminalId("TERM0001")
+			.build();
+	}
+
+}
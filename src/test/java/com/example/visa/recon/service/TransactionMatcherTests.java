@@ -0,0 +1,188 @@
+package com.example.visa.recon.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.visa.recon.matching.MatchingStage;
+import com.example.visa.recon.model.dto.VisaBase2Record;
+import com.example.visa.recon.service.TransactionMatcher.MatchedPair;
+
+class TransactionMatcherTests {
+
+	private static final LocalDateTime BASE = LocalDateTime.of(2025, 3, 23, 23, 30);
+
+	@Test
+	void fuzzyMatchesAgreeWithFullScanAcrossMidnight() {
+		Random random = new Random(42);
+		List<VisaBase2Record> sources = new ArrayList<>();
+		List<VisaBase2Record> targets = new ArrayList<>();
+		for (int i = 0; i < 300; i++) {
+			sources.add(record("TXN" + random.nextInt(60), BASE.plusMinutes(random.nextInt(60)), 100 + random.nextInt(20)));
+			targets.add(record("TXN" + random.nextInt(60), BASE.plusMinutes(random.nextInt(60)), 100 + random.nextInt(20)));
+		}
+
+		List<MatchedPair> matches = new TransactionMatcher().findFuzzyMatches(sources, targets, 10, 5.0);
+
+		assertEquals(fullScan(sources, targets, 10, 5.0), pairs(matches));
+	}
+
+	@Test
+	void parallelFuzzyMatchesEqualSequentialForAnyPoolSize() {
+		Random random = new Random(7);
+		List<VisaBase2Record> sources = new ArrayList<>();
+		List<VisaBase2Record> targets = new ArrayList<>();
+		for (int i = 0; i < 2000; i++) {
+			sources.add(record("TXN" + random.nextInt(300), BASE.plusMinutes(random.nextInt(120)), 100 + random.nextInt(20)));
+			targets.add(record("TXN" + random.nextInt(300), BASE.plusMinutes(random.nextInt(120)), 100 + random.nextInt(20)));
+		}
+		TransactionMatcher matcher = new TransactionMatcher();
+		List<String> sequential = pairs(matcher.findFuzzyMatches(sources, targets, 10, 5.0));
+
+		for (int parallelism : new int[] {1, 3, 8}) {
+			ForkJoinPool pool = new ForkJoinPool(parallelism);
+			try {
+				assertEquals(sequential, pairs(matcher.findFuzzyMatches(sources, targets, 10, 5.0, pool)));
+			} finally {
+				pool.shutdown();
+			}
+		}
+	}
+
+	@Test
+	void fuzzyMatchesTransactionsEitherSideOfMidnight() {
+		List<VisaBase2Record> sources = List.of(record("TXN1", LocalDateTime.of(2025, 3, 23, 23, 59), 100));
+		List<VisaBase2Record> targets = List.of(record("TXN1", LocalDateTime.of(2025, 3, 24, 0, 0), 100.1));
+
+		List<MatchedPair> matches = new TransactionMatcher().findFuzzyMatches(sources, targets, 10, 1.0);
+
+		assertEquals(1, matches.size());
+		assertEquals(targets.get(0), matches.get(0).getTarget());
+	}
+
+	@Test
+	void cascadeMatchesOnKeysBeforeFuzzyMatching() {
+		VisaBase2Record byRrn = record("TXN1", BASE, 100);
+		byRrn.setRrn("RRN1");
+		VisaBase2Record fuzzy = record("TXN3", BASE, 300);
+		List<VisaBase2Record> sources = List.of(byRrn, record("TXN2", BASE, 200), fuzzy);
+		VisaBase2Record networkByRrn = record("NET1", BASE.plusHours(1), 100);
+		networkByRrn.setRrn("RRN1");
+		VisaBase2Record networkFuzzy = record("TXN3", BASE.plusMinutes(2), 300);
+		List<VisaBase2Record> targets = List.of(networkFuzzy, networkByRrn);
+
+		List<MatchedPair> matches = new TransactionMatcher().findCascadeMatches(sources, targets,
+			List.of(MatchingStage.RRN), 10, 5.0);
+
+		assertEquals(2, matches.size());
+		assertEquals(networkByRrn, matches.get(0).getTarget());
+		assertEquals(1.0, matches.get(0).getMatchScore());
+		assertEquals(fuzzy, matches.get(1).getSource());
+		assertEquals(networkFuzzy, matches.get(1).getTarget());
+	}
+
+	@Test
+	void exactMatchesPairEachTargetOnceOnIdTimeAndAmount() {
+		List<VisaBase2Record> sources = List.of(
+			record("TXN1", BASE, 100),
+			record("TXN1", BASE, 100),
+			record("TXN2", BASE, 200),
+			record("TXN3", BASE, 300));
+		List<VisaBase2Record> targets = List.of(
+			record("TXN1", BASE, 100),
+			record("TXN2", BASE.plusSeconds(1), 200),
+			record("TXN3", BASE, 300.01));
+
+		List<MatchedPair> matches = new TransactionMatcher().findExactMatches(sources, targets);
+
+		assertEquals(List.of(describe(sources.get(0)) + " -> " + describe(targets.get(0))), pairs(matches));
+	}
+
+	@Test
+	void assignmentMaxSizePairsCompetingSourcesForBestTotalScore() {
+		// Greedy gives source 0 the exact target and leaves source 1, which only reaches it, unmatched
+		List<VisaBase2Record> sources = List.of(record("TXN1", BASE, 100), record("TXN1", BASE.minusMinutes(5), 100));
+		List<VisaBase2Record> targets = List.of(record("TXN1", BASE, 100), record("TXN1", BASE.plusMinutes(1), 100));
+		TransactionMatcher matcher = new TransactionMatcher();
+		assertEquals(List.of(describe(sources.get(0)) + " -> " + describe(targets.get(0))),
+			pairs(matcher.findFuzzyMatches(sources, targets, 10, 5.0)));
+
+		ReflectionTestUtils.setField(matcher, "assignmentMaxSize", 16);
+
+		assertEquals(List.of(describe(sources.get(0)) + " -> " + describe(targets.get(1)),
+			describe(sources.get(1)) + " -> " + describe(targets.get(0))),
+			pairs(matcher.findFuzzyMatches(sources, targets, 10, 5.0)));
+	}
+
+	private static List<String> pairs(List<MatchedPair> matches) {
+		return matches.stream()
+			.map(match -> describe(match.getSource()) + " -> " + describe(match.getTarget()))
+			.collect(Collectors.toList());
+	}
+
+	/**
+	 * Reference matcher scoring every source against every unmatched target.
+	 */
+	private static List<String> fullScan(List<VisaBase2Record> sources, List<VisaBase2Record> targets,
+			long timeToleranceMinutes, double amountTolerancePercent) {
+		List<String> pairs = new ArrayList<>();
+		boolean[] matched = new boolean[targets.size()];
+		for (VisaBase2Record source : sources) {
+			int best = -1;
+			double bestScore = 0.0;
+			for (int i = 0; i < targets.size(); i++) {
+				if (matched[i]) {
+					continue;
+				}
+				VisaBase2Record target = targets.get(i);
+				double score = source.getTransactionId().equals(target.getTransactionId()) ? 0.3 : 0.0;
+				long minutes = Math.abs(ChronoUnit.MINUTES.between(timestamp(source), timestamp(target)));
+				if (minutes <= timeToleranceMinutes) {
+					score += 0.35 * (1 - ((double) minutes / timeToleranceMinutes));
+				}
+				double sourceAmount = Double.parseDouble(source.getAmount());
+				double amountDiffPercent = Math.abs(sourceAmount - Double.parseDouble(target.getAmount())) / sourceAmount * 100;
+				if (amountDiffPercent <= amountTolerancePercent) {
+					score += 0.35 * (1 - (amountDiffPercent / amountTolerancePercent));
+				}
+				if (score > bestScore && score >= 0.8) {
+					best = i;
+					bestScore = score;
+				}
+			}
+			if (best >= 0) {
+				matched[best] = true;
+				pairs.add(describe(source) + " -> " + describe(targets.get(best)));
+			}
+		}
+		return pairs;
+	}
+
+	private static String describe(VisaBase2Record record) {
+		return record.getTransactionId() + "@" + timestamp(record) + "/" + record.getAmount();
+	}
+
+	private static LocalDateTime timestamp(VisaBase2Record record) {
+		return LocalDateTime.parse(record.getTransactionDate() + "T" + record.getTransactionTime());
+	}
+
+	private static VisaBase2Record record(String transactionId, LocalDateTime timestamp, double amount) {
+		return VisaBase2Record.builder()
+			.transactionId(transactionId)
+			.transactionDate(timestamp.toLocalDate().toString())
+			.transactionTime(timestamp.toLocalTime().format(DateTimeFormatter.ISO_LOCAL_TIME))
+			.amount(String.format("%.2f", amount))
+			.build();
+	}
+
+}